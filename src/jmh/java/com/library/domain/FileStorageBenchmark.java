@@ -0,0 +1,113 @@
+package com.library.domain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Load and save throughput of {@link FileStorage} for books, loans and
+ * fines files of 1k, 100k and 1M records, generated by
+ * {@link DatasetGenerator}.
+ * <p>
+ * Each benchmark is measured both as throughput and as sampled latency
+ * (for percentiles); {@code com.library.BenchmarkMain} adds the GC
+ * profiler for allocation rates.
+ * </p>
+ *
+ * @author Maram
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class FileStorageBenchmark {
+
+    /**
+     * Records per file.
+     */
+    @Param({"1000", "100000", "1000000"})
+    int records;
+
+    private Path dir;
+    private FileStorage storage;
+    private List<Book> books;
+    private List<Loan> loans;
+
+    /**
+     * Generates the data files once per parameter value.
+     *
+     * @throws IOException if the temporary directory cannot be created
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("library-bench");
+        storage = new FileStorage(dir.toString());
+
+        DatasetGenerator generator = new DatasetGenerator(Math.max(1, records / 10), records, records, records, 1);
+        generator.setToday(LocalDate.of(2025, 1, 1));
+        generator.generate(dir);
+        books = storage.loadBooks();
+        loans = storage.loadLoans();
+    }
+
+    /**
+     * Deletes the data files.
+     *
+     * @throws IOException if a file cannot be deleted
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<Book> loadBooks() {
+        return storage.loadBooks();
+    }
+
+    @Benchmark
+    public List<Loan> loadLoans() {
+        return storage.loadLoans();
+    }
+
+    @Benchmark
+    public List<Fine> loadFines() {
+        return storage.loadFines();
+    }
+
+    @Benchmark
+    public void saveBooks() {
+        storage.saveBooks(books);
+    }
+
+    @Benchmark
+    public void saveLoans() {
+        storage.saveLoans(loans);
+    }
+}
@@ -0,0 +1,202 @@
+package com.library.service;
+
+import com.library.domain.Book;
+import com.library.domain.BookRepository;
+import com.library.domain.DatasetGenerator;
+import com.library.domain.FileStorage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Latency of {@link BookService#searchByTitle(String)},
+ * {@link BookService#searchByAuthor(String)} and
+ * {@link BookService#searchByIsbn(String)} on generated catalogs, next
+ * to the linear scans the service used before it had indexes.
+ * <p>
+ * The catalog comes from {@link DatasetGenerator}: book {@code i} has the
+ * title {@code "Classic|Modern SeriesNNN WorkNNNNNNN"} and the author
+ * {@code "Smith|Jones ClanNNN WriterNNNNNNN"}, so a query can hit one
+ * book ({@code unique}), one book in a thousand ({@code rare}) or half
+ * the catalog ({@code common}). The hit position selects the target book
+ * the query is built from: the first, middle or last book of the catalog,
+ * or none (a query matching nothing, the worst case of a scan).
+ * </p>
+ *
+ * @author Maram
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class BookSearchBenchmark {
+
+    /**
+     * Number of books in the catalog.
+     */
+    @Param({"1000", "100000", "1000000"})
+    int catalogSize;
+
+    /**
+     * Share of the catalog a keyword query matches.
+     */
+    @Param({"unique", "rare", "common"})
+    String selectivity;
+
+    /**
+     * Position in the catalog of the book the query targets.
+     */
+    @Param({"first", "middle", "last", "none"})
+    String hitPosition;
+
+    private Path dir;
+    private BookService service;
+    private List<Book> catalog;
+    private String titleQuery;
+    private String authorQuery;
+    private String isbnQuery;
+
+    /**
+     * Generates the catalog and warms the service's indexes.
+     *
+     * @throws IOException if the temporary directory cannot be created
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("library-bench");
+        new DatasetGenerator(0, catalogSize, 0, 0, 1).generate(dir);
+        FileStorage storage = new FileStorage(dir.toString());
+
+        service = new BookService(new BookRepository(storage));
+        catalog = service.getAllBooks();
+        service.searchByTitle("warm-up");
+
+        int target;
+        switch (hitPosition) {
+            case "first":
+                target = 0;
+                break;
+            case "middle":
+                target = catalogSize / 2;
+                break;
+            case "last":
+                target = catalogSize - 1;
+                break;
+            default:
+                target = -1;
+        }
+        if (target < 0) {
+            titleQuery = "Missing";
+            authorQuery = "Nobody";
+            isbnQuery = "0000000000000";
+            return;
+        }
+        isbnQuery = DatasetGenerator.isbn(target);
+        switch (selectivity) {
+            case "unique":
+                titleQuery = String.format("Work%07d", target);
+                authorQuery = String.format("Writer%07d", target);
+                break;
+            case "rare":
+                titleQuery = String.format("Series%03d", target % 1000);
+                authorQuery = String.format("Clan%03d", target % 1000);
+                break;
+            default:
+                titleQuery = target % 2 == 0 ? "Classic" : "Modern";
+                authorQuery = target % 2 == 0 ? "Smith" : "Jones";
+        }
+    }
+
+    /**
+     * Deletes the catalog file.
+     *
+     * @throws IOException if a file cannot be deleted
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+
+    /* ============================
+       Service search paths
+       ============================ */
+
+    @Benchmark
+    public List<Book> searchByTitle() {
+        return service.searchByTitle(titleQuery);
+    }
+
+    @Benchmark
+    public List<Book> searchByAuthor() {
+        return service.searchByAuthor(authorQuery);
+    }
+
+    @Benchmark
+    public Book searchByIsbn() {
+        return service.searchByIsbn(isbnQuery);
+    }
+
+    /* ============================
+       Linear-scan baselines
+       ============================ */
+
+    @Benchmark
+    public List<Book> linearScanByTitle() {
+        List<Book> result = new ArrayList<>();
+        String keyword = titleQuery.toLowerCase();
+        for (Book b : catalog) {
+            if (b.getTitle().toLowerCase().contains(keyword)) {
+                result.add(b);
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<Book> linearScanByAuthor() {
+        List<Book> result = new ArrayList<>();
+        String keyword = authorQuery.toLowerCase();
+        for (Book b : catalog) {
+            if (b.getAuthor().toLowerCase().contains(keyword)) {
+                result.add(b);
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    public Book linearScanByIsbn() {
+        for (Book b : catalog) {
+            if (b.getIsbn().equalsIgnoreCase(isbnQuery)) {
+                return b;
+            }
+        }
+        return null;
+    }
+}
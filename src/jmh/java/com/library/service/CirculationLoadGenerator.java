@@ -0,0 +1,372 @@
+package com.library.service;
+
+import com.library.domain.Book;
+import com.library.domain.BookRepository;
+import com.library.domain.DatasetGenerator;
+import com.library.domain.FileStorage;
+import com.library.domain.Fine;
+import com.library.domain.FineCalculator;
+import com.library.domain.FineRepository;
+import com.library.domain.LatencyHistogram;
+import com.library.domain.Loan;
+import com.library.domain.LoanRepository;
+import com.library.domain.MediaType;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load generator for the circulation services.
+ * <p>
+ * Simulates concurrent patrons, each on its own thread, doing a mix of
+ * book and CD checkouts ({@link BorrowingService}), returns
+ * ({@link LoanService}), fine payments ({@link FineService}) and catalog
+ * searches ({@link BookService}) against a generated data directory.
+ * Reports throughput, latency percentiles per operation and any
+ * violated invariant: a book lent twice at once, a book flag that
+ * disagrees with its loans, or a negative fine or balance.
+ * </p>
+ *
+ * <pre>
+ * mvn -P benchmarks -DskipTests package
+ * java -cp target/benchmarks.jar com.library.service.CirculationLoadGenerator \
+ *      --patrons 64 --seconds 60 --books 100000 [--dir DIR] [--seed 1]
+ * </pre>
+ *
+ * <p>
+ * Refused operations (item already lent, patron not eligible) are the
+ * expected outcome of contention and are counted separately from errors.
+ * </p>
+ *
+ * @author Maram
+ * @version 1.0
+ */
+public final class CirculationLoadGenerator {
+
+    /**
+     * Operations of the mix, with their share of all operations in percent.
+     */
+    enum Op {
+        SEARCH(50),
+        BORROW_BOOK(20),
+        BORROW_CD(5),
+        RETURN(15),
+        PAY_FINE(10);
+
+        final int weight;
+
+        Op(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    private final int patrons;
+    private final long durationNanos;
+    private final int catalogSize;
+    private final Path dir;
+    private final long seed;
+
+    private BookService bookService;
+    private LoanService loanService;
+    private FineService fineService;
+    private BorrowingService borrowingService;
+    private LoanRepository loans;
+
+    /**
+     * Loan currently believed to hold each lent book, to catch double lending.
+     */
+    private final Map<String, String> lentBooks = new ConcurrentHashMap<>();
+    private final Queue<String> violations = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Latency of each operation, shared by all patrons.
+     */
+    private final LatencyHistogram[] latency = new LatencyHistogram[Op.values().length];
+
+    CirculationLoadGenerator(int patrons, long seconds, int catalogSize, Path dir, long seed) {
+        this.patrons = patrons;
+        this.durationNanos = TimeUnit.SECONDS.toNanos(seconds);
+        this.catalogSize = catalogSize;
+        this.dir = dir;
+        this.seed = seed;
+        for (int i = 0; i < latency.length; i++) {
+            latency[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Runs the load test with the options given on the command line.
+     *
+     * @param args {@code --patrons N --seconds N --books N --dir DIR --seed N}
+     * @throws Exception if the run fails
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        }
+        Path dir = options.containsKey("dir")
+                ? Paths.get(options.get("dir"))
+                : Files.createTempDirectory("library-load");
+        CirculationLoadGenerator generator = new CirculationLoadGenerator(
+                Integer.parseInt(options.getOrDefault("patrons", "32")),
+                Long.parseLong(options.getOrDefault("seconds", "30")),
+                Integer.parseInt(options.getOrDefault("books", "10000")),
+                dir,
+                Long.parseLong(options.getOrDefault("seed", "1")));
+        boolean clean = generator.run();
+        System.exit(clean ? 0 : 1);
+    }
+
+    /**
+     * Generates the data, runs the patrons and prints the report.
+     *
+     * @return true if no invariant was violated
+     * @throws InterruptedException if interrupted while waiting for the patrons
+     */
+    boolean run() throws InterruptedException {
+        generateData();
+
+        FileStorage storage = new FileStorage(dir.toString());
+        BookRepository books = new BookRepository(storage);
+        loans = new LoanRepository(storage);
+        bookService = new BookService(books);
+        loanService = new LoanService(loans, books);
+        fineService = new FineService(new FineRepository(storage), new FineCalculator());
+        borrowingService = new BorrowingService(loanService, fineService);
+
+        Patron[] workers = new Patron[patrons];
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[patrons];
+        for (int i = 0; i < patrons; i++) {
+            workers[i] = new Patron("U" + (i + 1), new SplittableRandom(seed + i), start);
+            threads[i] = new Thread(workers[i], "patron-" + (i + 1));
+            threads[i].start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+        long elapsed = System.nanoTime() - begin;
+
+        checkFinalState();
+        report(workers, elapsed);
+        return violations.isEmpty();
+    }
+
+    /**
+     * Generates the catalog with a loan history, a few books still lent
+     * and unpaid fines for some patrons. No patron starts with an overdue
+     * loan, since only their own loans can be returned.
+     */
+    private void generateData() {
+        DatasetGenerator generator = new DatasetGenerator(patrons, catalogSize,
+                5L * catalogSize, Math.max(1, patrons / 5), seed);
+        generator.setActiveFraction(0.05);
+        generator.setOverdueFraction(0);
+        generator.setPaidFineFraction(0.5);
+        generator.generate(dir);
+    }
+
+    /**
+     * Checks the invariants on the data left on disk after the run.
+     */
+    private void checkFinalState() {
+        FileStorage storage = new FileStorage(dir.toString());
+        Map<String, Integer> activeByBook = new HashMap<>();
+        for (Loan loan : storage.loadLoans()) {
+            if (!loan.isReturned() && loan.getMediaType() == MediaType.BOOK) {
+                activeByBook.merge(loan.getBookId(), 1, Integer::sum);
+            }
+        }
+        activeByBook.forEach((bookId, count) -> {
+            if (count > 1) {
+                violations.add("Book " + bookId + " has " + count + " active loans");
+            }
+        });
+        for (Book book : storage.loadBooks()) {
+            boolean lent = activeByBook.containsKey(book.getId());
+            if (book.isBorrowed() != lent) {
+                violations.add("Book " + book.getId() + " borrowed=" + book.isBorrowed()
+                        + " but has " + (lent ? "an" : "no") + " active loan");
+            }
+        }
+        Map<String, Double> balances = new HashMap<>();
+        for (Fine fine : storage.loadFines()) {
+            if (fine.getAmount() < 0) {
+                violations.add("Fine " + fine.getId() + " has negative amount " + fine.getAmount());
+            }
+            if (!fine.isPaid()) {
+                balances.merge(fine.getUserId(), fine.getAmount(), Double::sum);
+            }
+        }
+        balances.forEach((userId, balance) -> {
+            if (balance < 0) {
+                violations.add("User " + userId + " has negative balance " + balance);
+            }
+        });
+    }
+
+    private void report(Patron[] workers, long elapsedNanos) {
+        LatencyHistogram.Snapshot[] snapshots = new LatencyHistogram.Snapshot[latency.length];
+        long[] ok = new long[latency.length];
+        long[] refused = new long[latency.length];
+        long[] errors = new long[latency.length];
+        for (int i = 0; i < latency.length; i++) {
+            snapshots[i] = latency[i].snapshot();
+        }
+        for (Patron p : workers) {
+            for (int i = 0; i < latency.length; i++) {
+                ok[i] += p.ok[i];
+                refused[i] += p.refused[i];
+                errors[i] += p.errors[i];
+            }
+        }
+
+        double seconds = elapsedNanos / 1e9;
+        long total = 0;
+        for (LatencyHistogram.Snapshot h : snapshots) {
+            total += h.getCount();
+        }
+        System.out.printf("%d patrons, %d books, %.1f s, %d ops, %.0f ops/s (data in %s)%n",
+                patrons, catalogSize, seconds, total, total / seconds, dir);
+        System.out.printf("%-12s %10s %10s %8s %10s %10s %10s %10s%n",
+                "operation", "ok", "refused", "errors", "p50 us", "p99 us", "p999 us", "max us");
+        for (Op op : Op.values()) {
+            LatencyHistogram.Snapshot h = snapshots[op.ordinal()];
+            System.out.printf("%-12s %10d %10d %8d %10.1f %10.1f %10.1f %10.1f%n",
+                    op, ok[op.ordinal()], refused[op.ordinal()], errors[op.ordinal()],
+                    h.percentile(0.50) / 1e3, h.percentile(0.99) / 1e3,
+                    h.percentile(0.999) / 1e3, h.getMax() / 1e3);
+        }
+        if (violations.isEmpty()) {
+            System.out.println("Invariants: OK");
+        } else {
+            System.out.println("Invariant violations: " + violations.size());
+            violations.stream().limit(20).forEach(v -> System.out.println("  " + v));
+        }
+    }
+
+    /**
+     * One simulated patron.
+     */
+    private final class Patron implements Runnable {
+        final String userId;
+        final SplittableRandom random;
+        final CountDownLatch start;
+        final List<String> myLoans = new ArrayList<>();
+        final long[] ok = new long[Op.values().length];
+        final long[] refused = new long[ok.length];
+        final long[] errors = new long[ok.length];
+
+        Patron(String userId, SplittableRandom random, CountDownLatch start) {
+            this.userId = userId;
+            this.random = random;
+            this.start = start;
+        }
+
+        @Override
+        public void run() {
+            try {
+                start.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long end = System.nanoTime() + durationNanos;
+            while (System.nanoTime() < end) {
+                Op op = pick();
+                long t0 = System.nanoTime();
+                try {
+                    execute(op);
+                    ok[op.ordinal()]++;
+                } catch (IllegalStateException e) {
+                    refused[op.ordinal()]++;
+                } catch (RuntimeException e) {
+                    errors[op.ordinal()]++;
+                }
+                latency[op.ordinal()].record(System.nanoTime() - t0);
+            }
+        }
+
+        private Op pick() {
+            int r = random.nextInt(100);
+            for (Op op : Op.values()) {
+                r -= op.weight;
+                if (r < 0) {
+                    return op;
+                }
+            }
+            return Op.SEARCH;
+        }
+
+        private void execute(Op op) {
+            switch (op) {
+                case SEARCH:
+                    search();
+                    break;
+                case BORROW_BOOK:
+                    borrowBook();
+                    break;
+                case BORROW_CD:
+                    myLoans.add(borrowingService.borrowCd(userId, "C" + (random.nextInt(500) + 1)).getId());
+                    break;
+                case RETURN:
+                    returnOne();
+                    break;
+                default:
+                    fineService.payFine(userId, 1 + random.nextInt(10));
+            }
+        }
+
+        private void search() {
+            int i = random.nextInt(catalogSize);
+            switch (random.nextInt(3)) {
+                case 0:
+                    bookService.searchByTitle(String.format("Series%03d", i % 1000));
+                    break;
+                case 1:
+                    bookService.searchByAuthor(String.format("Writer%07d", i));
+                    break;
+                default:
+                    bookService.searchByIsbn(DatasetGenerator.isbn(i));
+            }
+        }
+
+        private void borrowBook() {
+            String bookId = "B" + (random.nextInt(catalogSize) + 1);
+            Loan loan = borrowingService.borrowBook(userId, bookId);
+            String previous = lentBooks.putIfAbsent(bookId, loan.getId());
+            if (previous != null) {
+                violations.add("Book " + bookId + " lent by " + loan.getId() + " while held by " + previous);
+            }
+            myLoans.add(loan.getId());
+        }
+
+        private void returnOne() {
+            if (myLoans.isEmpty()) {
+                return;
+            }
+            String loanId = myLoans.remove(random.nextInt(myLoans.size()));
+            Loan loan = loans.findById(loanId);
+            if (loan != null && loan.getMediaType() == MediaType.BOOK) {
+                // release before the return so a new borrower never sees a stale holder
+                lentBooks.remove(loan.getBookId(), loanId);
+            }
+            loanService.returnBook(loanId);
+        }
+    }
+}
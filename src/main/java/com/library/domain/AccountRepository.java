@@ -0,0 +1,229 @@
+package com.library.domain;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * In-memory repository of accounts (admins, librarians or users).
+ * <p>
+ * One instance manages one account file. Use the factory methods
+ * {@link #admins(FileStorage)}, {@link #librarians(FileStorage)} and
+ * {@link #users(FileStorage)} to create a repository for each role.
+ * </p>
+ * <p>
+ * Accounts are indexed by ID and by case-folded email, so logins and
+ * duplicate-email checks are hash lookups on the cached accounts.
+ * </p>
+ *
+ * @param <T> the account type
+ * @author Maram
+ * @version 1.0
+ */
+public class AccountRepository<T extends User> extends CachedRepository<T> {
+
+    /**
+     * Resolves the backing file from the storage.
+     */
+    private final Function<FileStorage, Path> file;
+
+    /**
+     * Reads all accounts of this role.
+     */
+    private final Function<FileStorage, List<T>> loader;
+
+    /**
+     * Writes all accounts of this role.
+     */
+    private final BiConsumer<FileStorage, List<T>> saver;
+
+    /**
+     * Prefix of IDs minted for new accounts, or null if this role's
+     * accounts are not created by the application.
+     */
+    private final String idPrefix;
+
+    /**
+     * Accounts by ID. If an ID appears twice the first account wins.
+     */
+    private final Map<String, T> byId = new HashMap<>();
+
+    /**
+     * Accounts by case-folded email, in file order.
+     */
+    private final Map<String, List<T>> byEmail = new HashMap<>();
+
+    private AccountRepository(FileStorage storage,
+                              Function<FileStorage, Path> file,
+                              Function<FileStorage, List<T>> loader,
+                              BiConsumer<FileStorage, List<T>> saver,
+                              String idPrefix) {
+        super(storage);
+        this.file = file;
+        this.loader = loader;
+        this.saver = saver;
+        this.idPrefix = idPrefix;
+    }
+
+    /**
+     * @param storage the file storage backend
+     * @return a repository over admins.txt
+     */
+    public static AccountRepository<Admin> admins(FileStorage storage) {
+        return new AccountRepository<>(storage,
+                FileStorage::adminsFile, FileStorage::loadAdmins, FileStorage::saveAdmins, null);
+    }
+
+    /**
+     * @param storage the file storage backend
+     * @return a repository over librarians.txt
+     */
+    public static AccountRepository<Librarian> librarians(FileStorage storage) {
+        return new AccountRepository<>(storage,
+                FileStorage::librariansFile, FileStorage::loadLibrarians, FileStorage::saveLibrarians, null);
+    }
+
+    /**
+     * @param storage the file storage backend
+     * @return a repository over users.txt
+     */
+    public static AccountRepository<User> users(FileStorage storage) {
+        return new AccountRepository<>(storage,
+                FileStorage::usersFile, FileStorage::loadUsers, FileStorage::saveUsers, "U");
+    }
+
+    @Override
+    protected List<Path> files() {
+        return List.of(file.apply(storage));
+    }
+
+    @Override
+    protected List<T> load() {
+        return loader.apply(storage);
+    }
+
+    @Override
+    protected void save(List<T> records) {
+        saver.accept(storage, records);
+    }
+
+    @Override
+    protected void rebuildIndexes(List<T> records) {
+        byId.clear();
+        byEmail.clear();
+        for (T account : records) {
+            index(account);
+        }
+    }
+
+    private void index(T account) {
+        byId.putIfAbsent(account.getId(), account);
+        if (account.getEmail() != null) {
+            byEmail.computeIfAbsent(foldCase(account.getEmail()), e -> new ArrayList<>(1)).add(account);
+        }
+    }
+
+    /**
+     * Folds an email the way {@link String#equalsIgnoreCase(String)}
+     * compares characters, so equal keys mean equal-ignoring-case emails.
+     *
+     * @param email the email
+     * @return the lookup key
+     */
+    static String foldCase(String email) {
+        char[] chars = email.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Mints an ID for a new account. Only the {@link #users(FileStorage)}
+     * repository mints IDs; admins and librarians are added to their
+     * files by hand.
+     *
+     * @return a new, unused account ID
+     * @throws IllegalStateException if this repository does not mint IDs
+     */
+    public String nextId() {
+        if (idPrefix == null) {
+            throw new IllegalStateException("Account IDs are not minted for "
+                    + file.apply(storage).getFileName() + "; only users.txt accounts get generated IDs");
+        }
+        return storage.ids().next(idPrefix);
+    }
+
+    /**
+     * @param id account ID
+     * @return the account, or null if not found
+     */
+    public synchronized T findById(String id) {
+        records();
+        return byId.get(id);
+    }
+
+    /**
+     * @param email email address, compared case-insensitively
+     * @return the first account with that email, or null if none
+     */
+    public synchronized T findByEmail(String email) {
+        List<T> accounts = accountsWithEmail(email);
+        return accounts.isEmpty() ? null : accounts.get(0);
+    }
+
+    /**
+     * Finds the account matching login credentials.
+     *
+     * @param email    email address, compared case-insensitively
+     * @param password password, compared exactly
+     * @return the first account with that email and password, or null if none
+     */
+    public synchronized T authenticate(String email, String password) {
+        for (T account : accountsWithEmail(email)) {
+            if (account.getPassword().equals(password)) {
+                return account;
+            }
+        }
+        return null;
+    }
+
+    private List<T> accountsWithEmail(String email) {
+        records();
+        if (email == null) {
+            return List.of();
+        }
+        return byEmail.getOrDefault(foldCase(email), List.of());
+    }
+
+    /**
+     * Adds an account and writes the file through to storage.
+     *
+     * @param account the new account
+     */
+    public synchronized void add(T account) {
+        records().add(account);
+        index(account);
+        writeThrough();
+    }
+
+    /**
+     * Removes every account with the given ID.
+     *
+     * @param id account ID
+     * @return true if an account was removed
+     */
+    public synchronized boolean remove(String id) {
+        List<T> accounts = records();
+        boolean removed = accounts.removeIf(a -> a.getId().equals(id));
+        if (removed) {
+            rebuildIndexes(accounts);
+            writeThrough();
+        }
+        return removed;
+    }
+}
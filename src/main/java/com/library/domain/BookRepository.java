@@ -0,0 +1,167 @@
+package com.library.domain;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory repository of books backed by books.txt and the borrowed
+ * flags recorded in the loan journal.
+ * <p>
+ * Keeps the parsed catalog, an ID index and a normalized ISBN index
+ * (see {@link Isbn#normalize(String)}) in memory, plus inverted
+ * full-text indexes over titles and authors (see {@link TextIndex}). See
+ * {@link CachedRepository} for how external file changes are detected.
+ * </p>
+ *
+ * @author Maram
+ * @version 1.0
+ */
+public class BookRepository extends CachedRepository<Book> {
+
+    /**
+     * Books by ID. If an ID appears twice the first book wins.
+     */
+    private final Map<String, Book> byId = new HashMap<>();
+
+    /**
+     * Books by normalized ISBN. If an ISBN appears twice the first book wins.
+     */
+    private final Map<String, Book> byIsbn = new HashMap<>();
+
+    /**
+     * Full-text index of titles.
+     */
+    private final TextIndex<Book> titles = new TextIndex<>(Book::getTitle);
+
+    /**
+     * Full-text index of authors.
+     */
+    private final TextIndex<Book> authors = new TextIndex<>(Book::getAuthor);
+
+    /**
+     * Creates a book repository.
+     *
+     * @param storage the file storage backend
+     */
+    public BookRepository(FileStorage storage) {
+        super(storage);
+    }
+
+    @Override
+    protected List<Path> files() {
+        return List.of(storage.booksFile(), storage.loanJournalFile());
+    }
+
+    @Override
+    protected List<Book> load() {
+        return storage.loadBooks();
+    }
+
+    @Override
+    protected void save(List<Book> records) {
+        storage.saveBooks(records);
+    }
+
+    @Override
+    protected void rebuildIndexes(List<Book> records) {
+        byId.clear();
+        byIsbn.clear();
+        titles.clear();
+        authors.clear();
+        for (Book book : records) {
+            index(book);
+        }
+    }
+
+    private void index(Book book) {
+        byId.putIfAbsent(book.getId(), book);
+        if (book.getIsbn() != null) {
+            byIsbn.putIfAbsent(Isbn.normalize(book.getIsbn()), book);
+        }
+        titles.add(book);
+        authors.add(book);
+    }
+
+    /**
+     * @param id book ID
+     * @return the book, or null if not found
+     */
+    public synchronized Book findById(String id) {
+        records();
+        return byId.get(id);
+    }
+
+    /**
+     * Looks a book up by ISBN, ignoring hyphens, spaces, case and whether
+     * the ISBN is given in its 10- or 13-digit form.
+     *
+     * @param isbn the ISBN
+     * @return the book, or null if not found
+     */
+    public synchronized Book findByIsbn(String isbn) {
+        records();
+        return isbn == null ? null : byIsbn.get(Isbn.normalize(isbn));
+    }
+
+    /**
+     * Searches titles. Every word of the query must match a word of the
+     * title or the start of one, ignoring case.
+     *
+     * @param query search words
+     * @return matching books, most relevant first
+     */
+    public synchronized List<Book> searchTitles(String query) {
+        records();
+        return titles.search(query);
+    }
+
+    /**
+     * Searches author names. Every word of the query must match a word
+     * of the name or the start of one, ignoring case.
+     *
+     * @param query search words
+     * @return matching books, most relevant first
+     */
+    public synchronized List<Book> searchAuthors(String query) {
+        records();
+        return authors.search(query);
+    }
+
+    /**
+     * @return a new, unused book ID
+     */
+    public String nextId() {
+        return storage.ids().next("B");
+    }
+
+    /**
+     * Updates a book's borrowed flag after its checkout or return was
+     * appended to the loan journal. Only the cached book changes; the
+     * catalog is not re-read.
+     *
+     * @param bookId   ID of the book, or null if the journal record
+     *                 concerned another kind of item
+     * @param borrowed the new borrowed flag
+     */
+    public synchronized void recordLoanChange(String bookId, boolean borrowed) {
+        applyAppend(storage.loanJournalFile(), cached -> {
+            Book book = bookId == null ? null : byId.get(bookId);
+            if (book != null) {
+                book.setBorrowed(borrowed);
+            }
+        });
+    }
+
+    /**
+     * Adds a book and writes the catalog through to storage.
+     *
+     * @param book the new book
+     */
+    public synchronized void add(Book book) {
+        records().add(book);
+        index(book);
+        writeThrough();
+    }
+}
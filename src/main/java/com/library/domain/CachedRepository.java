@@ -0,0 +1,228 @@
+package com.library.domain;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Base class for repositories that keep parsed records in memory.
+ * <p>
+ * Records are read from {@link FileStorage} once and then served from
+ * memory. Before every access the backing files are checked (size,
+ * modification time, and writes made through the storage); if a file was
+ * changed outside this repository the records are reloaded and the
+ * subclass indexes are rebuilt. Changes are written through to the
+ * storage immediately.
+ * </p>
+ *
+ * @param <T> the record type
+ * @author Maram
+ * @version 1.0
+ */
+public abstract class CachedRepository<T> {
+
+    /**
+     * Storage the records are read from and written to.
+     */
+    protected final FileStorage storage;
+
+    /**
+     * Cached records, or null if not loaded yet.
+     */
+    private List<T> records;
+
+    /**
+     * State of each backing file, in the order of {@link #files()}, when
+     * the records were loaded or last written.
+     */
+    private List<FileStamp> stamps;
+
+    /**
+     * Creates a repository over the given storage. Nothing is read until
+     * the first access.
+     *
+     * @param storage the file storage backend
+     */
+    protected CachedRepository(FileStorage storage) {
+        this.storage = storage;
+    }
+
+    /**
+     * @return the files whose content makes up this repository
+     */
+    protected abstract List<Path> files();
+
+    /**
+     * Reads all records from storage.
+     *
+     * @return a mutable list of records
+     */
+    protected abstract List<T> load();
+
+    /**
+     * Writes all records to storage.
+     *
+     * @param records the records to persist
+     */
+    protected abstract void save(List<T> records);
+
+    /**
+     * Rebuilds any subclass indexes after the records were (re)loaded.
+     *
+     * @param records the freshly loaded records
+     */
+    protected void rebuildIndexes(List<T> records) {
+    }
+
+    /**
+     * Returns the cached records, reloading them first if a backing file
+     * changed since they were read.
+     *
+     * @return the live cached list
+     */
+    protected synchronized List<T> records() {
+        List<FileStamp> current = currentStamps();
+        if (records == null || !current.equals(stamps)) {
+            records = load();
+            stamps = current;
+            rebuildIndexes(records);
+        }
+        return records;
+    }
+
+    /**
+     * Applies a record just appended to one of the backing files to the
+     * cached records, without re-reading them. If any other backing file
+     * changed since the records were read, the cache is dropped instead;
+     * if nothing is cached yet there is nothing to update.
+     *
+     * @param appended the file that was appended to
+     * @param change   updates the cached records to match the file
+     */
+    protected synchronized void applyAppend(Path appended, Consumer<List<T>> change) {
+        if (records == null) {
+            return;
+        }
+        List<Path> files = files();
+        List<FileStamp> current = currentStamps();
+        for (int i = 0; i < files.size(); i++) {
+            if (!files.get(i).equals(appended) && !current.get(i).equals(stamps.get(i))) {
+                invalidate();
+                return;
+            }
+        }
+        change.accept(records);
+        stamps = current;
+    }
+
+    private List<FileStamp> currentStamps() {
+        List<FileStamp> current = new ArrayList<>();
+        for (Path file : files()) {
+            current.add(FileStamp.of(storage, List.of(file)));
+        }
+        return current;
+    }
+
+    /**
+     * Persists the whole cached list after in-memory changes.
+     * If the write fails the cache is dropped so it is re-read next time.
+     */
+    protected synchronized void writeThrough() {
+        try {
+            save(records());
+        } catch (RuntimeException e) {
+            invalidate();
+            throw e;
+        }
+        restamp();
+    }
+
+    /**
+     * Marks the cache as matching the files again after this repository
+     * wrote to them directly (e.g. by appending a record).
+     */
+    protected synchronized void restamp() {
+        stamps = currentStamps();
+    }
+
+    /**
+     * Drops the cached records so they are re-read on the next access.
+     */
+    public synchronized void invalidate() {
+        records = null;
+        stamps = null;
+    }
+
+    /**
+     * Persists changes made in place to records returned by this repository.
+     */
+    public synchronized void saveChanges() {
+        writeThrough();
+    }
+
+    /**
+     * @return a copy of all records
+     */
+    public synchronized List<T> findAll() {
+        return new ArrayList<>(records());
+    }
+
+    /**
+     * @param filter condition the records must satisfy
+     * @return all records matching the condition, in storage order
+     */
+    public synchronized List<T> findAll(Predicate<? super T> filter) {
+        List<T> result = new ArrayList<>();
+        for (T record : records()) {
+            if (filter.test(record)) {
+                result.add(record);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Visits the records in storage order without copying them.
+     *
+     * @param visitor called for each record; return false to stop early
+     * @return true if every record was visited, false if the visitor stopped
+     */
+    public synchronized boolean forEach(Predicate<? super T> visitor) {
+        for (T record : records()) {
+            if (!visitor.test(record)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param filter condition to look for
+     * @return the first matching record, or null if none matches
+     */
+    public synchronized T findFirst(Predicate<? super T> filter) {
+        for (T record : records()) {
+            if (filter.test(record)) {
+                return record;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param filter condition to look for
+     * @return true if at least one record matches
+     */
+    public synchronized boolean anyMatch(Predicate<? super T> filter) {
+        return findFirst(filter) != null;
+    }
+
+    /**
+     * @return number of records
+     */
+    public synchronized int size() {
+        return records().size();
+    }
+}
@@ -0,0 +1,486 @@
+package com.library.domain;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Writes a synthetic data directory (users, books, loans, fines, admins
+ * and librarians) of any size, for load tests and benchmarks.
+ * <p>
+ * The output depends only on the sizes, the seed, the settings and the
+ * reference date, so a dataset can be generated again instead of being
+ * kept. Records are written as they are generated; only one bit per book
+ * is held in memory, so ten million loans need no more heap than ten.
+ * </p>
+ *
+ * <ul>
+ *     <li>Book popularity is Zipfian: the loans and fines of a book or
+ *     user are drawn with probability proportional to 1/rank^skew. The
+ *     ranks are spread over the IDs, so popular books are not simply
+ *     the first ones.</li>
+ *     <li>Per-user loan and fine counts are skewed the same way, with
+ *     their own exponent.</li>
+ *     <li>A share of the loans is still active, at most one per book,
+ *     and a share of the active loans is overdue. The borrowed flags in
+ *     books.txt agree with the active loans.</li>
+ * </ul>
+ *
+ * <p>
+ * Book {@code i} (ID {@code "B" + (i + 1)}) has the title, author and
+ * ISBN given by {@link #title(int)}, {@link #author(int)} and
+ * {@link #isbn(int)}, so a caller can build queries of known selectivity.
+ * </p>
+ *
+ * <pre>
+ * java -cp library-sys.jar com.library.domain.DatasetGenerator DIR \
+ *      --users 1000000 --books 2000000 --loans 10000000 --fines 500000 --seed 1
+ * </pre>
+ *
+ * @author Maram
+ * @version 1.0
+ */
+public class DatasetGenerator {
+
+    /**
+     * Loan period of a book, as used by the loan service.
+     */
+    private static final int LOAN_DAYS = 28;
+
+    /**
+     * How far back the history of returned loans goes.
+     */
+    private static final int HISTORY_DAYS = 730;
+
+    private static final String[] FIRST_NAMES = {
+            "Aseel", "Maram", "Ola", "Ahmad", "Lina", "Omar", "Sara", "Yousef",
+            "Huda", "Khaled", "Rana", "Sami", "Dana", "Majd", "Noor", "Tariq"
+    };
+
+    private static final String[] LAST_NAMES = {
+            "Qedan", "Qusy", "Ahmad", "Haddad", "Nasser", "Saleh", "Khalil",
+            "Mansour", "Odeh", "Yasin", "Daher", "Hamdan"
+    };
+
+    private final int users;
+    private final int books;
+    private final long loans;
+    private final long fines;
+    private final long seed;
+
+    private double bookSkew = 1.0;
+    private double userSkew = 0.8;
+    private double activeFraction = 0.1;
+    private double overdueFraction = 0.2;
+    private double paidFineFraction = 0.7;
+    private int admins = 2;
+    private int librarians = 5;
+    private LocalDate today = LocalDate.now();
+
+    /**
+     * Creates a generator.
+     *
+     * @param users number of users
+     * @param books number of books
+     * @param loans number of loans, returned and active
+     * @param fines number of fines, paid and unpaid
+     * @param seed  seed of every random choice
+     * @throws IllegalArgumentException if a count is negative, or there are
+     *                                  loans or fines without users or books to give them to
+     */
+    public DatasetGenerator(int users, int books, long loans, long fines, long seed) {
+        if (users < 0 || books < 0 || loans < 0 || fines < 0) {
+            throw new IllegalArgumentException("Counts must not be negative");
+        }
+        if ((loans > 0 && (users == 0 || books == 0)) || (fines > 0 && users == 0)) {
+            throw new IllegalArgumentException("Loans need users and books; fines need users");
+        }
+        this.users = users;
+        this.books = books;
+        this.loans = loans;
+        this.fines = fines;
+        this.seed = seed;
+    }
+
+    /**
+     * @param skew Zipf exponent of book popularity; 0 makes every book equally popular
+     */
+    public void setBookSkew(double skew) {
+        this.bookSkew = requireNonNegative(skew);
+    }
+
+    /**
+     * @param skew Zipf exponent of how loans and fines spread over users
+     */
+    public void setUserSkew(double skew) {
+        this.userSkew = requireNonNegative(skew);
+    }
+
+    /**
+     * @param fraction share of loans that are not returned yet, 0 to 1
+     */
+    public void setActiveFraction(double fraction) {
+        this.activeFraction = requireFraction(fraction);
+    }
+
+    /**
+     * @param fraction share of active loans that are past their due date, 0 to 1
+     */
+    public void setOverdueFraction(double fraction) {
+        this.overdueFraction = requireFraction(fraction);
+    }
+
+    /**
+     * @param fraction share of fines that are paid, 0 to 1
+     */
+    public void setPaidFineFraction(double fraction) {
+        this.paidFineFraction = requireFraction(fraction);
+    }
+
+    /**
+     * @param admins number of admins
+     */
+    public void setAdmins(int admins) {
+        this.admins = Math.max(0, admins);
+    }
+
+    /**
+     * @param librarians number of librarians
+     */
+    public void setLibrarians(int librarians) {
+        this.librarians = Math.max(0, librarians);
+    }
+
+    /**
+     * @param today date the loan dates are relative to
+     */
+    public void setToday(LocalDate today) {
+        this.today = today;
+    }
+
+    /**
+     * @param i book index, from 0
+     * @return the title of book {@code i}: {@code "Classic|Modern SeriesNNN WorkNNNNNNN"},
+     *         shared by half, a thousandth and one of the books
+     */
+    public static String title(int i) {
+        return (i % 2 == 0 ? "Classic" : "Modern") + String.format(" Series%03d Work%07d", i % 1000, i);
+    }
+
+    /**
+     * @param i book index, from 0
+     * @return the author of book {@code i}: {@code "Smith|Jones ClanNNN WriterNNNNNNN"}
+     */
+    public static String author(int i) {
+        return (i % 2 == 0 ? "Smith" : "Jones") + String.format(" Clan%03d Writer%07d", i % 1000, i);
+    }
+
+    /**
+     * @param i book index, from 0
+     * @return the ISBN of book {@code i}
+     */
+    public static String isbn(int i) {
+        return String.valueOf(9780000000000L + i);
+    }
+
+    /**
+     * Writes the six data files into a directory, replacing any there.
+     * The loan journal and ID sequences left by an earlier dataset are
+     * removed.
+     *
+     * @param dir the data directory
+     * @throws RuntimeException if a file cannot be written
+     */
+    public void generate(Path dir) {
+        try {
+            Files.createDirectories(dir);
+            Files.deleteIfExists(dir.resolve("loans.journal"));
+            Files.deleteIfExists(dir.resolve("sequences.txt"));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to prepare " + dir, e);
+        }
+        SplittableRandom root = new SplittableRandom(seed);
+        writeStaff(dir.resolve("admins.txt"), admins, "", "admin", root.split());
+        writeStaff(dir.resolve("librarians.txt"), librarians, "L", "librarian", root.split());
+        writeUsers(dir.resolve("users.txt"), root.split());
+        BitSet lent = writeLoans(dir.resolve("loans.txt"), root.split());
+        writeBooks(dir.resolve("books.txt"), lent);
+        writeFines(dir.resolve("fines.txt"), root.split());
+    }
+
+    /* ============================
+       Files
+       ============================ */
+
+    private void writeStaff(Path file, int count, String prefix, String role, SplittableRandom random) {
+        try (BufferedWriter out = open(file)) {
+            for (int i = 1; i <= count; i++) {
+                out.write(String.join(";", prefix + i, name(random),
+                        role + i + "@library.example", password(random)));
+                out.newLine();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write " + file, e);
+        }
+    }
+
+    private void writeUsers(Path file, SplittableRandom random) {
+        try (BufferedWriter out = open(file)) {
+            for (int i = 1; i <= users; i++) {
+                out.write(String.join(";", "U" + i, name(random),
+                        "user" + i + "@example.com", password(random)));
+                out.newLine();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write " + file, e);
+        }
+    }
+
+    /**
+     * Writes the loans.
+     *
+     * @return the indexes of the books with an active loan
+     */
+    private BitSet writeLoans(Path file, SplittableRandom random) {
+        BitSet lent = new BitSet(books);
+        ZipfSampler bookRank = loans > 0 ? new ZipfSampler(books, bookSkew) : null;
+        ZipfSampler userRank = loans > 0 ? new ZipfSampler(users, userSkew) : null;
+        RankScrambler bookIds = new RankScrambler(books, seed ^ 0x5DEECE66DL);
+        RankScrambler userIds = new RankScrambler(users, seed ^ 0xB5297A4DL);
+        try (BufferedWriter out = open(file)) {
+            for (long l = 1; l <= loans; l++) {
+                int book = bookIds.index(bookRank.sample(random));
+                int user = userIds.index(userRank.sample(random));
+                LocalDate borrowed;
+                LocalDate returned = null;
+                if (random.nextDouble() < activeFraction && !lent.get(book)) {
+                    lent.set(book);
+                    borrowed = random.nextDouble() < overdueFraction
+                            ? today.minusDays(LOAN_DAYS + 1 + random.nextInt(60))
+                            : today.minusDays(random.nextInt(LOAN_DAYS + 1));
+                } else {
+                    borrowed = today.minusDays(1 + random.nextInt(HISTORY_DAYS));
+                    returned = borrowed.plusDays(1 + random.nextInt(LOAN_DAYS + 14));
+                    if (returned.isAfter(today)) {
+                        returned = today;
+                    }
+                }
+                out.write(String.join(";",
+                        "L" + l,
+                        "U" + (user + 1),
+                        "B" + (book + 1),
+                        borrowed.toString(),
+                        borrowed.plusDays(LOAN_DAYS).toString(),
+                        returned == null ? "" : returned.toString(),
+                        MediaType.BOOK.name()));
+                out.newLine();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write " + file, e);
+        }
+        return lent;
+    }
+
+    private void writeBooks(Path file, BitSet lent) {
+        try (BufferedWriter out = open(file)) {
+            for (int i = 0; i < books; i++) {
+                out.write(String.join(";", "B" + (i + 1), title(i), author(i), isbn(i),
+                        Boolean.toString(lent.get(i))));
+                out.newLine();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write " + file, e);
+        }
+    }
+
+    private void writeFines(Path file, SplittableRandom random) {
+        ZipfSampler userRank = fines > 0 ? new ZipfSampler(users, userSkew) : null;
+        RankScrambler userIds = new RankScrambler(users, seed ^ 0xB5297A4DL);
+        try (BufferedWriter out = open(file)) {
+            for (long f = 1; f <= fines; f++) {
+                int user = userIds.index(userRank.sample(random));
+                boolean paid = random.nextDouble() < paidFineFraction;
+                // a paid fine is stored with nothing left to pay, as FineService does
+                double amount = paid ? 0.0 : 5 * (1 + random.nextInt(20));
+                out.write(String.join(";", "F" + f, "U" + (user + 1),
+                        Double.toString(amount), Boolean.toString(paid)));
+                out.newLine();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write " + file, e);
+        }
+    }
+
+    private static BufferedWriter open(Path file) throws IOException {
+        return new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    private static String name(SplittableRandom random) {
+        return FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " "
+                + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+    }
+
+    private static String password(SplittableRandom random) {
+        return "pw" + (100000 + random.nextInt(900000));
+    }
+
+    private static double requireNonNegative(double value) {
+        if (!(value >= 0)) {
+            throw new IllegalArgumentException("Value must not be negative: " + value);
+        }
+        return value;
+    }
+
+    private static double requireFraction(double value) {
+        if (!(value >= 0 && value <= 1)) {
+            throw new IllegalArgumentException("Fraction must be in 0..1: " + value);
+        }
+        return value;
+    }
+
+    /* ============================
+       Distributions
+       ============================ */
+
+    /**
+     * Draws ranks 1..n with probability proportional to 1/rank^exponent,
+     * in constant time and memory, by rejection-inversion (Hörmann and
+     * Derflinger, 1996).
+     */
+    static final class ZipfSampler {
+        private final int n;
+        private final double exponent;
+        private final double hIntegralX1;
+        private final double hIntegralN;
+        private final double s;
+
+        ZipfSampler(int n, double exponent) {
+            this.n = n;
+            this.exponent = exponent;
+            this.hIntegralX1 = hIntegral(1.5) - 1;
+            this.hIntegralN = hIntegral(n + 0.5);
+            this.s = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+        }
+
+        /**
+         * @param random source of randomness
+         * @return a rank from 1 to n
+         */
+        int sample(SplittableRandom random) {
+            while (true) {
+                double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+                double x = hIntegralInverse(u);
+                long k = (long) (x + 0.5);
+                if (k < 1) {
+                    k = 1;
+                } else if (k > n) {
+                    k = n;
+                }
+                if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+                    return (int) k;
+                }
+            }
+        }
+
+        private double h(double x) {
+            return Math.exp(-exponent * Math.log(x));
+        }
+
+        private double hIntegral(double x) {
+            double logX = Math.log(x);
+            return expm1OverX((1 - exponent) * logX) * logX;
+        }
+
+        private double hIntegralInverse(double x) {
+            double t = x * (1 - exponent);
+            if (t < -1) {
+                t = -1;
+            }
+            return Math.exp(log1pOverX(t) * x);
+        }
+
+        private static double log1pOverX(double x) {
+            return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1 - x * (0.5 - x * (1.0 / 3 - 0.25 * x));
+        }
+
+        private static double expm1OverX(double x) {
+            return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1 + x * 0.5 * (1 + x / 3 * (1 + 0.25 * x));
+        }
+    }
+
+    /**
+     * Maps ranks 1..n onto indexes 0..n-1 one to one, by a stride
+     * coprime with n, so consecutive ranks land far apart.
+     */
+    static final class RankScrambler {
+        private final long n;
+        private final long stride;
+        private final long offset;
+
+        RankScrambler(int n, long seed) {
+            this.n = Math.max(n, 1);
+            SplittableRandom random = new SplittableRandom(seed);
+            long candidate = (long) (this.n * 0.6180339887) | 1;
+            while (gcd(candidate, this.n) != 1) {
+                candidate += 2;
+            }
+            this.stride = candidate;
+            this.offset = this.n > 1 ? random.nextLong(this.n) : 0;
+        }
+
+        int index(int rank) {
+            return (int) (((rank - 1) * stride + offset) % n);
+        }
+
+        private static long gcd(long a, long b) {
+            while (b != 0) {
+                long t = a % b;
+                a = b;
+                b = t;
+            }
+            return a;
+        }
+    }
+
+    /**
+     * Generates a dataset from the command line.
+     *
+     * @param args the data directory, then any of {@code --users --books
+     *             --loans --fines --seed --overdue --active --today}
+     */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Usage: DatasetGenerator DIR [--users N] [--books N] [--loans N]"
+                    + " [--fines N] [--seed N] [--overdue F] [--active F] [--today YYYY-MM-DD]");
+            System.exit(2);
+        }
+        Map<String, String> options = new HashMap<>();
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        }
+        DatasetGenerator generator = new DatasetGenerator(
+                Integer.parseInt(options.getOrDefault("users", "1000")),
+                Integer.parseInt(options.getOrDefault("books", "10000")),
+                Long.parseLong(options.getOrDefault("loans", "50000")),
+                Long.parseLong(options.getOrDefault("fines", "2000")),
+                Long.parseLong(options.getOrDefault("seed", "1")));
+        if (options.containsKey("overdue")) {
+            generator.setOverdueFraction(Double.parseDouble(options.get("overdue")));
+        }
+        if (options.containsKey("active")) {
+            generator.setActiveFraction(Double.parseDouble(options.get("active")));
+        }
+        if (options.containsKey("today")) {
+            generator.setToday(LocalDate.parse(options.get("today")));
+        }
+        generator.generate(Paths.get(args[0]));
+    }
+}
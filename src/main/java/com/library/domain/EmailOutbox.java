@@ -0,0 +1,423 @@
+package com.library.domain;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durable queue of outgoing emails, kept in outbox.txt.
+ * <p>
+ * The file is append-only: queuing a message, a failed attempt, a
+ * delivery and giving up on a message each append one record, which is
+ * forced to disk before the call returns. Replaying the file therefore
+ * restores every message that was queued and not yet delivered, with its
+ * attempt count, after a crash or restart. Text fields are Base64 encoded
+ * so subjects and bodies may contain separators and line breaks.
+ * </p>
+ *
+ * <pre>
+ * Q;M1;1718000000000;&lt;to&gt;;&lt;subject&gt;;&lt;body&gt;[;&lt;key&gt;]   queued
+ * F;M1;1;1718000030000;&lt;error&gt;                       attempt 1 failed, retry at
+ * S;M1;1718000031000                                  delivered
+ * D;M2;1718000090000;&lt;error&gt;                         dead-lettered
+ * K;M1;1718000000000;&lt;key&gt;                           key of a delivered message
+ * </pre>
+ *
+ * <p>
+ * A message may be queued with an idempotency key. Queuing another
+ * message with a key the outbox still knows returns the first message's
+ * ID and writes nothing, so a caller that crashed after queuing can
+ * simply queue again. Keys of delivered messages are remembered for
+ * {@link #KEY_RETENTION_MILLIS} after they were queued.
+ * </p>
+ *
+ * <p>
+ * Delivered messages are dropped from memory at once and from the file when
+ * it is compacted; dead-lettered ones are kept for inspection. Delivery is
+ * at least once: a message sent just before a crash, whose delivery was
+ * not yet recorded, is sent again.
+ * </p>
+ *
+ * @author Maram
+ * @version 1.0
+ */
+public final class EmailOutbox {
+
+    /**
+     * Number of records appended since the last compaction after which
+     * the file is rewritten without delivered messages.
+     */
+    public static final int DEFAULT_COMPACTION_THRESHOLD = 1000;
+
+    /**
+     * How long after queuing the key of a delivered message is remembered.
+     */
+    public static final long KEY_RETENTION_MILLIS = TimeUnit.DAYS.toMillis(2);
+
+    private static final String QUEUED = "Q";
+    private static final String FAILED = "F";
+    private static final String SENT = "S";
+    private static final String DEAD = "D";
+    private static final String KEY = "K";
+
+    private final Path file;
+    private final int compactionThreshold;
+
+    /**
+     * Undelivered entries (pending and dead) in queue order, or null
+     * until the file has been read.
+     */
+    private Map<String, OutboxEntry> entries;
+
+    /**
+     * Outbox ID by idempotency key, for undelivered messages and
+     * remembered delivered ones.
+     */
+    private final Map<String, String> idByKey = new HashMap<>();
+
+    /**
+     * Queue time of each remembered delivered message, by key.
+     */
+    private final Map<String, Long> deliveredKeys = new HashMap<>();
+
+    private long lastId;
+    private int recordsSinceCompaction;
+
+    /**
+     * Creates an outbox over a file.
+     *
+     * @param file                the outbox file
+     * @param compactionThreshold records appended before the file is compacted
+     * @throws IllegalArgumentException if the threshold is not positive
+     */
+    EmailOutbox(Path file, int compactionThreshold) {
+        if (compactionThreshold <= 0) {
+            throw new IllegalArgumentException("Compaction threshold must be positive");
+        }
+        this.file = file;
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    /**
+     * Queues a message for delivery.
+     *
+     * @param message the message
+     * @param now     current time in epoch milliseconds
+     * @return the outbox ID of the message
+     */
+    public synchronized String enqueue(EmailMessage message, long now) {
+        return enqueue(message, null, now);
+    }
+
+    /**
+     * Queues a message for delivery unless a message with the same key
+     * was already queued.
+     *
+     * @param message the message
+     * @param key     idempotency key, or null to always queue
+     * @param now     current time in epoch milliseconds
+     * @return the outbox ID of the message, or of the earlier message
+     *         queued with the same key
+     */
+    public synchronized String enqueue(EmailMessage message, String key, long now) {
+        load();
+        if (key != null && idByKey.containsKey(key)) {
+            return idByKey.get(key);
+        }
+        String id = "M" + (lastId + 1);
+        append(queuedRecord(id, key, message, now));
+        lastId++;
+        entries.put(id, new OutboxEntry(id, key, message, now, 0, now, null, OutboxEntry.Status.PENDING));
+        if (key != null) {
+            idByKey.put(key, id);
+        }
+        return id;
+    }
+
+    /**
+     * @param now current time in epoch milliseconds
+     * @return pending entries whose next attempt is due, in queue order
+     */
+    public synchronized List<OutboxEntry> due(long now) {
+        List<OutboxEntry> due = new ArrayList<>();
+        for (OutboxEntry entry : load().values()) {
+            if (entry.getStatus() == OutboxEntry.Status.PENDING && entry.getNextAttemptAt() <= now) {
+                due.add(entry);
+            }
+        }
+        return due;
+    }
+
+    /**
+     * @return every entry still waiting to be delivered, in queue order
+     */
+    public synchronized List<OutboxEntry> pending() {
+        return withStatus(OutboxEntry.Status.PENDING);
+    }
+
+    /**
+     * @return every entry that was given up on, in queue order
+     */
+    public synchronized List<OutboxEntry> deadLetters() {
+        return withStatus(OutboxEntry.Status.DEAD);
+    }
+
+    /**
+     * Records a successful delivery.
+     *
+     * @param id  outbox ID
+     * @param now current time in epoch milliseconds
+     */
+    public synchronized void markSent(String id, long now) {
+        OutboxEntry entry = pendingEntry(id);
+        if (entry == null) {
+            return;
+        }
+        append(SENT + ";" + id + ";" + now);
+        entries.remove(id);
+        if (entry.getKey() != null) {
+            deliveredKeys.put(entry.getKey(), entry.getCreatedAt());
+        }
+        compactIfNeeded(now);
+    }
+
+    /**
+     * Records a failed attempt and when to try again.
+     *
+     * @param id            outbox ID
+     * @param nextAttemptAt earliest time of the next attempt, in epoch milliseconds
+     * @param error         reason for the failure
+     * @return the updated entry, or null if the ID is not pending
+     */
+    public synchronized OutboxEntry markFailed(String id, long nextAttemptAt, String error) {
+        OutboxEntry entry = pendingEntry(id);
+        if (entry == null) {
+            return null;
+        }
+        OutboxEntry failed = entry.withFailure(nextAttemptAt, error);
+        append(FAILED + ";" + id + ";" + failed.getAttempts() + ";" + nextAttemptAt + ";" + encode(error));
+        entries.put(id, failed);
+        return failed;
+    }
+
+    /**
+     * Gives up on a message. It stays in the outbox as a dead letter.
+     *
+     * @param id    outbox ID
+     * @param now   current time in epoch milliseconds
+     * @param error reason for giving up
+     */
+    public synchronized void markDead(String id, long now, String error) {
+        OutboxEntry entry = pendingEntry(id);
+        if (entry == null) {
+            return;
+        }
+        append(DEAD + ";" + id + ";" + now + ";" + encode(error));
+        entries.put(id, entry.withStatus(OutboxEntry.Status.DEAD, error));
+    }
+
+    /**
+     * Rewrites the file with only the undelivered entries and the keys of
+     * delivered messages queued less than {@link #KEY_RETENTION_MILLIS}
+     * before {@code now}.
+     *
+     * @param now current time in epoch milliseconds
+     */
+    public synchronized void compact(long now) {
+        load();
+        deliveredKeys.entrySet().removeIf(k -> {
+            boolean expired = k.getValue() < now - KEY_RETENTION_MILLIS;
+            if (expired) {
+                idByKey.remove(k.getKey());
+            }
+            return expired;
+        });
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (BufferedWriter out = Files.newBufferedWriter(tmp,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                // keep the highest ID so IDs are never reused
+                out.write(SENT + ";M" + lastId + ";0");
+                out.newLine();
+                for (Map.Entry<String, Long> k : deliveredKeys.entrySet()) {
+                    out.write(KEY + ";" + idByKey.get(k.getKey()) + ";" + k.getValue() + ";" + encode(k.getKey()));
+                    out.newLine();
+                }
+                for (OutboxEntry e : entries.values()) {
+                    out.write(queuedRecord(e.getId(), e.getKey(), e.getMessage(), e.getCreatedAt()));
+                    out.newLine();
+                    if (e.getAttempts() > 0) {
+                        out.write(FAILED + ";" + e.getId() + ";" + e.getAttempts() + ";"
+                                + e.getNextAttemptAt() + ";" + encode(e.getLastError()));
+                        out.newLine();
+                    }
+                    if (e.getStatus() == OutboxEntry.Status.DEAD) {
+                        out.write(DEAD + ";" + e.getId() + ";" + e.getNextAttemptAt() + ";"
+                                + encode(e.getLastError()));
+                        out.newLine();
+                    }
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            recordsSinceCompaction = 0;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to compact outbox", e);
+        }
+    }
+
+    private List<OutboxEntry> withStatus(OutboxEntry.Status status) {
+        List<OutboxEntry> result = new ArrayList<>();
+        for (OutboxEntry entry : load().values()) {
+            if (entry.getStatus() == status) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    private OutboxEntry pendingEntry(String id) {
+        OutboxEntry entry = load().get(id);
+        return (entry != null && entry.getStatus() == OutboxEntry.Status.PENDING) ? entry : null;
+    }
+
+    private void compactIfNeeded(long now) {
+        if (recordsSinceCompaction >= compactionThreshold) {
+            compact(now);
+        }
+    }
+
+    private static String queuedRecord(String id, String key, EmailMessage m, long createdAt) {
+        return QUEUED + ";" + id + ";" + createdAt + ";" + encode(m.getTo()) + ";"
+                + encode(m.getSubject()) + ";" + encode(m.getBody())
+                + (key == null ? "" : ";" + encode(key));
+    }
+
+    /**
+     * Appends one record and forces it to disk. An unterminated record
+     * left at the end of the file by an earlier crash is cut off first.
+     */
+    private void append(String record) {
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            try (FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                long end = FileStorage.committedLength(channel);
+                if (end < channel.size()) {
+                    // drop a record torn by a crash mid-write
+                    channel.truncate(end);
+                }
+                ByteBuffer bytes = ByteBuffer.wrap(
+                        (record + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes, end + bytes.position());
+                }
+                channel.force(false);
+            }
+            recordsSinceCompaction++;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to append to outbox", e);
+        }
+    }
+
+    /**
+     * Replays the file on first use.
+     * <p>
+     * Malformed records and an unterminated last record (torn by a crash
+     * mid-write) are skipped.
+     * </p>
+     *
+     * @return the undelivered entries
+     */
+    private Map<String, OutboxEntry> load() {
+        if (entries != null) {
+            return entries;
+        }
+        Map<String, OutboxEntry> loaded = new LinkedHashMap<>();
+        long maxId = 0;
+        int records = 0;
+        if (Files.exists(file)) {
+            try (RecordScanner r = RecordScanner.open(file)) {
+                while (r.next()) {
+                    if (!r.terminated()) {
+                        break; // torn by a crash mid-write; never committed
+                    }
+                    if (r.fieldCount() < 3) {
+                        continue;
+                    }
+                    records++;
+                    String id = r.field(1);
+                    maxId = Math.max(maxId, IdAllocator.numberOf(id, "M"));
+                    try {
+                        if (r.fieldEquals(0, QUEUED) && r.fieldCount() >= 6) {
+                            long createdAt = Long.parseLong(r.field(2));
+                            EmailMessage message = new EmailMessage(
+                                    decode(r.field(3)), decode(r.field(4)), decode(r.field(5)));
+                            String key = r.fieldCount() >= 7 ? decode(r.field(6)) : null;
+                            loaded.put(id, new OutboxEntry(id, key, message, createdAt, 0, createdAt,
+                                    null, OutboxEntry.Status.PENDING));
+                            if (key != null) {
+                                idByKey.put(key, id);
+                            }
+                        } else if (r.fieldEquals(0, FAILED) && r.fieldCount() >= 5) {
+                            OutboxEntry entry = loaded.get(id);
+                            if (entry != null) {
+                                loaded.put(id, new OutboxEntry(id, entry.getKey(), entry.getMessage(),
+                                        entry.getCreatedAt(), Integer.parseInt(r.field(2)),
+                                        Long.parseLong(r.field(3)), decode(r.field(4)),
+                                        OutboxEntry.Status.PENDING));
+                            }
+                        } else if (r.fieldEquals(0, SENT)) {
+                            OutboxEntry entry = loaded.remove(id);
+                            if (entry != null && entry.getKey() != null) {
+                                deliveredKeys.put(entry.getKey(), entry.getCreatedAt());
+                            }
+                        } else if (r.fieldEquals(0, KEY) && r.fieldCount() >= 4) {
+                            String key = decode(r.field(3));
+                            idByKey.put(key, id);
+                            deliveredKeys.put(key, Long.parseLong(r.field(2)));
+                        } else if (r.fieldEquals(0, DEAD) && r.fieldCount() >= 4) {
+                            OutboxEntry entry = loaded.get(id);
+                            if (entry != null) {
+                                loaded.put(id, entry.withStatus(OutboxEntry.Status.DEAD, decode(r.field(3))));
+                            }
+                        }
+                    } catch (IllegalArgumentException e) {
+                        // skip malformed records
+                    }
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to load outbox", e);
+            }
+        }
+        entries = loaded;
+        lastId = maxId;
+        recordsSinceCompaction = records;
+        return entries;
+    }
+
+    private static String encode(String text) {
+        if (text == null) {
+            return "";
+        }
+        return Base64.getEncoder().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String field) {
+        return new String(Base64.getDecoder().decode(field.trim()), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,71 @@
+package com.library.domain;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A snapshot of the on-disk state of one or more data files.
+ * <p>
+ * Two stamps are equal only if every file has the same existence, size,
+ * modification time and file identity, and the same number of writes was
+ * made through {@link FileStorage}. A cache holding data parsed from the
+ * files can compare stamps to decide whether it must reload.
+ * </p>
+ *
+ * @author Maram
+ * @version 1.0
+ */
+final class FileStamp {
+
+    /**
+     * One attribute tuple per file, in the order the files were given.
+     */
+    private final List<Object> parts;
+
+    private FileStamp(List<Object> parts) {
+        this.parts = parts;
+    }
+
+    /**
+     * Captures the current state of the given files.
+     *
+     * @param storage storage the files belong to
+     * @param files   files to stamp
+     * @return the stamp
+     */
+    static FileStamp of(FileStorage storage, List<Path> files) {
+        List<Object> parts = new ArrayList<>();
+        for (Path file : files) {
+            parts.add(storage.writeVersion(file));
+            try {
+                BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+                parts.add(attrs.size());
+                parts.add(attrs.lastModifiedTime());
+                parts.add(attrs.fileKey());
+            } catch (NoSuchFileException e) {
+                parts.add("missing");
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to read attributes of " + file, e);
+            }
+        }
+        return new FileStamp(parts);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof FileStamp)) return false;
+        return parts.equals(((FileStamp) o).parts);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(parts);
+    }
+}
@@ -1,10 +1,30 @@
 package com.library.domain;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Handles all file-based persistence for the library system.
@@ -14,7 +34,18 @@ import java.util.List;
  * Data is stored in plain text files inside a base directory.
  * </p>
  *
- * <p>Each record is stored using semicolon-separated format.</p>
+ * <p>Each record is stored using semicolon-separated format. Files are
+ * read with {@link RecordScanner}, which tokenizes records directly in a
+ * reused read buffer. Besides the list-returning {@code loadX} methods,
+ * {@code forEachX} visitors and {@link #streamLoans()} parse records lazily
+ * so callers can stop at the first match with constant memory.</p>
+ *
+ * <p>Loans are stored as a loans.txt snapshot plus an append-only
+ * loans.journal. Creating or returning a loan appends one journal record;
+ * the journal is periodically folded back into the snapshot.</p>
+ *
+ * <p>Load, save and journal append times are recorded as
+ * {@code storage.*} timers in {@link MetricsRegistry#global()}.</p>
  *
  * @author Maram
  * @version 1.0
@@ -26,61 +57,270 @@ public class FileStorage {
      */
     private final Path baseDir;
 
+    /**
+     * Journal record type for a newly created loan.
+     */
+    private static final String JOURNAL_ADD = "ADD";
+
+    /**
+     * Journal record type for a returned loan.
+     */
+    private static final String JOURNAL_RETURN = "RET";
+
+    /**
+     * Default number of journal records after which the loan journal
+     * is compacted into a new loans.txt snapshot.
+     */
+    public static final int DEFAULT_JOURNAL_COMPACTION_THRESHOLD = 1000;
+
+    /**
+     * Timers of the load, save and journal operations, in
+     * {@link MetricsRegistry#global()}.
+     */
+    private static final MetricsRegistry.Timer LOAD_ADMINS_TIMER =
+            MetricsRegistry.global().timer("storage.load.admins");
+    private static final MetricsRegistry.Timer LOAD_BOOKS_TIMER =
+            MetricsRegistry.global().timer("storage.load.books");
+    private static final MetricsRegistry.Timer LOAD_FINES_TIMER =
+            MetricsRegistry.global().timer("storage.load.fines");
+    private static final MetricsRegistry.Timer LOAD_LIBRARIANS_TIMER =
+            MetricsRegistry.global().timer("storage.load.librarians");
+    private static final MetricsRegistry.Timer LOAD_LOANS_TIMER =
+            MetricsRegistry.global().timer("storage.load.loans");
+    private static final MetricsRegistry.Timer LOAD_USERS_TIMER =
+            MetricsRegistry.global().timer("storage.load.users");
+    private static final MetricsRegistry.Timer SAVE_ADMINS_TIMER =
+            MetricsRegistry.global().timer("storage.save.admins");
+    private static final MetricsRegistry.Timer SAVE_BOOKS_TIMER =
+            MetricsRegistry.global().timer("storage.save.books");
+    private static final MetricsRegistry.Timer SAVE_FINES_TIMER =
+            MetricsRegistry.global().timer("storage.save.fines");
+    private static final MetricsRegistry.Timer SAVE_LIBRARIANS_TIMER =
+            MetricsRegistry.global().timer("storage.save.librarians");
+    private static final MetricsRegistry.Timer SAVE_LOANS_TIMER =
+            MetricsRegistry.global().timer("storage.save.loans");
+    private static final MetricsRegistry.Timer SAVE_USERS_TIMER =
+            MetricsRegistry.global().timer("storage.save.users");
+    private static final MetricsRegistry.Timer APPEND_LOAN_JOURNAL_TIMER =
+            MetricsRegistry.global().timer("storage.append.loanJournal");
+
+    /**
+     * Number of journal records that triggers compaction.
+     */
+    private final int journalCompactionThreshold;
+
+    /**
+     * Number of records in the loan journal, or -1 if not yet counted.
+     */
+    private int journalRecords = -1;
+
+    /**
+     * Number of writes made through this instance, per file. Lets caches
+     * detect in-process writes even when the file timestamp does not move.
+     */
+    private final Map<Path, AtomicLong> writeVersions = new ConcurrentHashMap<>();
+
+    /**
+     * ID sequences for this directory, created on first use.
+     */
+    private IdAllocator ids;
+
+    /**
+     * Email outbox for this directory, created on first use.
+     */
+    private EmailOutbox outbox;
+
+    /**
+     * Sent-reminder log for this directory, created on first use.
+     */
+    private ReminderLog reminderLog;
+
     /**
      * Creates a new FileStorage instance.
      *
      * @param baseDirName the directory where the text files will be stored
      */
     public FileStorage(String baseDirName) {
+        this(baseDirName, DEFAULT_JOURNAL_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * Creates a new FileStorage instance with a custom journal compaction threshold.
+     *
+     * @param baseDirName                the directory where the text files will be stored
+     * @param journalCompactionThreshold number of loan journal records that triggers compaction
+     */
+    public FileStorage(String baseDirName, int journalCompactionThreshold) {
+        if (journalCompactionThreshold <= 0) {
+            throw new IllegalArgumentException("Compaction threshold must be positive");
+        }
         this.baseDir = Paths.get(baseDirName);
+        this.journalCompactionThreshold = journalCompactionThreshold;
     }
 
     /* ============================
-       Private helper file path methods
+       File path helpers
        ============================ */
 
     /**
      * @return path to admins.txt file
      */
-    private Path adminsFile() {
+    Path adminsFile() {
         return baseDir.resolve("admins.txt");
     }
 
     /**
      * @return path to librarians.txt file
      */
-    private Path librariansFile() {
+    Path librariansFile() {
         return baseDir.resolve("librarians.txt");
     }
 
     /**
      * @return path to users.txt file
      */
-    private Path usersFile() {
+    Path usersFile() {
         return baseDir.resolve("users.txt");
     }
 
     /**
      * @return path to books.txt file
      */
-    private Path booksFile() {
+    Path booksFile() {
         return baseDir.resolve("books.txt");
     }
 
     /**
      * @return path to loans.txt file
      */
-    private Path loansFile() {
+    Path loansFile() {
         return baseDir.resolve("loans.txt");
     }
 
+    /**
+     * @return path to loans.journal file (append-only log of loan changes)
+     */
+    Path loanJournalFile() {
+        return baseDir.resolve("loans.journal");
+    }
+
     /**
      * @return path to fines.txt file
      */
-    private Path finesFile() {
+    Path finesFile() {
         return baseDir.resolve("fines.txt");
     }
 
+    Path sequencesFile() {
+        return baseDir.resolve("sequences.txt");
+    }
+
+    /**
+     * @return path to outbox.txt file
+     */
+    Path outboxFile() {
+        return baseDir.resolve("outbox.txt");
+    }
+
+    /**
+     * @return path to reminders.txt file
+     */
+    Path reminderLogFile() {
+        return baseDir.resolve("reminders.txt");
+    }
+
+    /**
+     * Returns the ID allocator for this directory. Loans, fines, books
+     * and users use the prefixes "L", "F", "B" and "U".
+     *
+     * @return the shared allocator
+     */
+    public synchronized IdAllocator ids() {
+        if (ids == null) {
+            ids = new IdAllocator(sequencesFile(), IdAllocator.DEFAULT_BLOCK_SIZE, this::highestId);
+        }
+        return ids;
+    }
+
+    /**
+     * Returns the durable email outbox for this directory.
+     *
+     * @return the shared outbox
+     */
+    public synchronized EmailOutbox outbox() {
+        if (outbox == null) {
+            outbox = new EmailOutbox(outboxFile(), EmailOutbox.DEFAULT_COMPACTION_THRESHOLD);
+        }
+        return outbox;
+    }
+
+    /**
+     * Returns the log of overdue reminders already sent from this directory.
+     *
+     * @return the shared reminder log
+     */
+    public synchronized ReminderLog reminderLog() {
+        if (reminderLog == null) {
+            reminderLog = new ReminderLog(reminderLogFile());
+        }
+        return reminderLog;
+    }
+
+    /**
+     * Finds the highest numeric ID stored with a prefix, streaming the
+     * file the prefix belongs to.
+     *
+     * @param prefix "L", "F", "B" or "U"
+     * @return the highest number, or 0 if there is none or the prefix is unknown
+     */
+    private long highestId(String prefix) {
+        long[] max = {0};
+        switch (prefix) {
+            case "L":
+                forEachLoan(l -> track(max, IdAllocator.numberOf(l.getId(), prefix)));
+                break;
+            case "F":
+                forEachFine(f -> track(max, IdAllocator.numberOf(f.getId(), prefix)));
+                break;
+            case "B":
+                forEachBook(b -> track(max, IdAllocator.numberOf(b.getId(), prefix)));
+                break;
+            case "U":
+                forEachUser(u -> track(max, IdAllocator.numberOf(u.getId(), prefix)));
+                break;
+            default:
+                break;
+        }
+        return max[0];
+    }
+
+    private static boolean track(long[] max, long value) {
+        max[0] = Math.max(max[0], value);
+        return true;
+    }
+
+
+    /**
+     * Returns how many times the given file has been written through this
+     * storage instance.
+     *
+     * @param file one of the data files managed by this storage
+     * @return the write count, 0 if never written
+     */
+    long writeVersion(Path file) {
+        AtomicLong version = writeVersions.get(file);
+        return version == null ? 0 : version.get();
+    }
+
+    /**
+     * Records that a data file was written.
+     *
+     * @param file the written file
+     */
+    private void recordWrite(Path file) {
+        writeVersions.computeIfAbsent(file, f -> new AtomicLong()).incrementAndGet();
+    }
+
 
     /* ============================
        Admins
@@ -92,24 +332,12 @@ public class FileStorage {
      * @return list of Admin objects
      */
     public List<Admin> loadAdmins() {
+        long start = System.nanoTime();
         List<Admin> admins = new ArrayList<>();
-        try {
-            if (!Files.exists(adminsFile())) {
-                return admins;
-            }
-            for (String line : Files.readAllLines(adminsFile())) {
-                if (line.isBlank()) continue;
-                String[] parts = line.split(";");
-                if (parts.length < 4) continue;
-                String id = parts[0];
-                String name = parts[1];
-                String email = parts[2];
-                String password = parts[3];
-                admins.add(new Admin(id, name, email, password));
-            }
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to load admins", e);
-        }
+        scan(adminsFile(), r -> r.nonEmptyFieldCount() < 4 ? null
+                        : new Admin(r.field(0), r.field(1), r.field(2), r.field(3)),
+                admins::add, "Failed to load admins");
+        LOAD_ADMINS_TIMER.recordSince(start);
         return admins;
     }
 
@@ -118,7 +346,8 @@ public class FileStorage {
      *
      * @param admins the admin list to save
      */
-    public void saveAdmins(List<Admin> admins) {
+    public synchronized void saveAdmins(List<Admin> admins) {
+        long start = System.nanoTime();
         List<String> lines = new ArrayList<>();
         for (Admin a : admins) {
             String line = String.join(";",
@@ -134,6 +363,8 @@ public class FileStorage {
             Files.write(adminsFile(), lines,
                     StandardOpenOption.CREATE,
                     StandardOpenOption.TRUNCATE_EXISTING);
+            recordWrite(adminsFile());
+            SAVE_ADMINS_TIMER.recordSince(start);
         } catch (IOException e) {
             throw new RuntimeException("Failed to save admins", e);
         }
@@ -150,24 +381,12 @@ public class FileStorage {
      * @return list of Librarian objects
      */
     public List<Librarian> loadLibrarians() {
+        long start = System.nanoTime();
         List<Librarian> librarians = new ArrayList<>();
-        try {
-            if (!Files.exists(librariansFile())) {
-                return librarians;
-            }
-            for (String line : Files.readAllLines(librariansFile())) {
-                if (line.isBlank()) continue;
-                String[] parts = line.split(";");
-                if (parts.length < 4) continue;
-                String id = parts[0];
-                String name = parts[1];
-                String email = parts[2];
-                String password = parts[3];
-                librarians.add(new Librarian(id, name, email, password));
-            }
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to load librarians", e);
-        }
+        scan(librariansFile(), r -> r.nonEmptyFieldCount() < 4 ? null
+                        : new Librarian(r.field(0), r.field(1), r.field(2), r.field(3)),
+                librarians::add, "Failed to load librarians");
+        LOAD_LIBRARIANS_TIMER.recordSince(start);
         return librarians;
     }
 
@@ -182,35 +401,32 @@ public class FileStorage {
      * @return list of User objects
      */
     public List<User> loadUsers() {
+        long start = System.nanoTime();
         List<User> users = new ArrayList<>();
-        try {
-            if (!Files.exists(usersFile())) {
-                return users;
-            }
-            for (String line : Files.readAllLines(usersFile())) {
-                if (line.isBlank()) continue;
-                String[] parts = line.split(";");
-                if (parts.length < 4) continue;
-
-                String id = parts[0];
-                String name = parts[1];
-                String email = parts[2];
-                String password = parts[3];
-
-                users.add(new User(id, name, email, password));
-            }
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to load users.txt", e);
-        }
+        forEachUser(users::add);
+        LOAD_USERS_TIMER.recordSince(start);
         return users;
     }
 
+    /**
+     * Visits the users in users.txt one at a time without building a list.
+     *
+     * @param visitor called for each user; return false to stop early
+     * @return true if every user was visited, false if the visitor stopped
+     */
+    public boolean forEachUser(Predicate<? super User> visitor) {
+        return scan(usersFile(), r -> r.nonEmptyFieldCount() < 4 ? null
+                        : new User(r.field(0), r.field(1), r.field(2), r.field(3)),
+                visitor, "Failed to load users.txt");
+    }
+
     /**
      * Saves all users to users.txt.
      *
      * @param users list of users to save
      */
-    public void saveUsers(List<User> users) {
+    public synchronized void saveUsers(List<User> users) {
+        long start = System.nanoTime();
         List<String> lines = new ArrayList<>();
         for (User u : users) {
             String line = String.join(";",
@@ -226,6 +442,8 @@ public class FileStorage {
             Files.write(usersFile(), lines,
                     StandardOpenOption.CREATE,
                     StandardOpenOption.TRUNCATE_EXISTING);
+            recordWrite(usersFile());
+            SAVE_USERS_TIMER.recordSince(start);
         } catch (IOException e) {
             throw new RuntimeException("Failed to save users.txt", e);
         }
@@ -238,38 +456,49 @@ public class FileStorage {
 
     /**
      * Loads all books from books.txt.
+     * <p>
+     * Checkouts and returns recorded in the loan journal since the last
+     * compaction override the stored borrowed flag, so a checkout is a
+     * single journal record and never touches books.txt.
+     * </p>
      *
      * @return list of Book objects
      */
     public List<Book> loadBooks() {
+        long start = System.nanoTime();
         List<Book> books = new ArrayList<>();
-        try {
-            if (!Files.exists(booksFile())) {
-                return books;
-            }
-            for (String line : Files.readAllLines(booksFile())) {
-                if (line.isBlank()) continue;
-                String[] parts = line.split(";");
-                if (parts.length < 5) continue;
-                String id = parts[0];
-                String title = parts[1];
-                String author = parts[2];
-                String isbn = parts[3];
-                boolean borrowed = Boolean.parseBoolean(parts[4]);
-                books.add(new Book(id, title, author, isbn, borrowed));
-            }
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to load books", e);
-        }
+        forEachBook(books::add);
+        LOAD_BOOKS_TIMER.recordSince(start);
         return books;
     }
 
     /**
-     * Saves all books to books.txt.
+     * Visits the books in books.txt one at a time without building a list.
+     *
+     * @param visitor called for each book; return false to stop early
+     * @return true if every book was visited, false if the visitor stopped
+     */
+    public boolean forEachBook(Predicate<? super Book> visitor) {
+        Map<String, Boolean> borrowed = readLoanJournal().bookStates;
+        return scan(booksFile(), r -> {
+            if (r.nonEmptyFieldCount() < 5) {
+                return null;
+            }
+            String id = r.field(0);
+            Boolean state = borrowed.get(id);
+            return new Book(id, r.field(1), r.field(2), r.field(3),
+                    state != null ? state : r.booleanField(4));
+        }, visitor, "Failed to load books");
+    }
+
+    /**
+     * Saves all books to books.txt, writing a temporary file that is then
+     * moved into place.
      *
      * @param books list of books to save
      */
-    public void saveBooks(List<Book> books) {
+    public synchronized void saveBooks(List<Book> books) {
+        long start = System.nanoTime();
         List<String> lines = new ArrayList<>();
         for (Book b : books) {
             String line = String.join(";",
@@ -283,9 +512,15 @@ public class FileStorage {
         }
         try {
             Files.createDirectories(baseDir);
-            Files.write(booksFile(), lines,
+            Path tmp = booksFile().resolveSibling("books.txt.tmp");
+            Files.write(tmp, lines,
                     StandardOpenOption.CREATE,
                     StandardOpenOption.TRUNCATE_EXISTING);
+            Files.move(tmp, booksFile(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            recordWrite(booksFile());
+            SAVE_BOOKS_TIMER.recordSince(start);
         } catch (IOException e) {
             throw new RuntimeException("Failed to save books", e);
         }
@@ -297,72 +532,539 @@ public class FileStorage {
        ============================ */
 
     /**
-     * Loads all loans from loans.txt.
+     * Loads all loans by reading the loans.txt snapshot and replaying
+     * the loan journal on top of it.
      *
      * @return list of Loan objects
      */
     public List<Loan> loadLoans() {
+        long start = System.nanoTime();
         List<Loan> loans = new ArrayList<>();
+        forEachLoan(loans::add);
+        LOAD_LOANS_TIMER.recordSince(start);
+        return loans;
+    }
+
+    /**
+     * Visits every loan (snapshot plus journal) one at a time without
+     * building a list.
+     *
+     * @param visitor called for each loan; return false to stop early
+     * @return true if every loan was visited, false if the visitor stopped
+     */
+    public boolean forEachLoan(Predicate<? super Loan> visitor) {
+        try (Stream<Loan> loans = streamLoans()) {
+            Iterator<Loan> it = loans.iterator();
+            while (it.hasNext()) {
+                if (!visitor.test(it.next())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Returns a lazily parsed stream of every loan, snapshot first and
+     * then loans created in the journal, with journal returns applied.
+     * <p>
+     * Only the journal (bounded by the compaction threshold) is held in
+     * memory; snapshot records are parsed as the stream is consumed. The
+     * stream holds the file open and must be closed.
+     * </p>
+     *
+     * @return stream of loans
+     */
+    public Stream<Loan> streamLoans() {
+        LoanJournal journal = readLoanJournal();
+        RecordIterator<Loan> snapshot = new RecordIterator<>(loansFile(),
+                r -> r.fieldCount() < 6 ? null : parseLoan(r, 0), "Failed to load loans");
+
+        Iterator<Loan> loans = new Iterator<Loan>() {
+            private int added = 0;
+
+            @Override
+            public boolean hasNext() {
+                return snapshot.hasNext() || added < journal.added.size();
+            }
+
+            @Override
+            public Loan next() {
+                if (snapshot.hasNext()) {
+                    return journal.applyReturn(snapshot.next(), -1);
+                }
+                if (added >= journal.added.size()) {
+                    throw new NoSuchElementException();
+                }
+                int i = added++;
+                return journal.applyReturn(journal.added.get(i), journal.addedAt.get(i));
+            }
+        };
+        return StreamSupport.stream(
+                        Spliterators.spliteratorUnknownSize(loans, Spliterator.ORDERED | Spliterator.NONNULL),
+                        false)
+                .onClose(snapshot::close);
+    }
+
+    /**
+     * Saves all loans to loans.txt as a fresh snapshot.
+     * <p>
+     * The snapshot is written to a temporary file and moved into place,
+     * after which the loan journal is discarded because every change it
+     * recorded is now part of the snapshot.
+     * </p>
+     *
+     * @param loans list of Loan objects to save
+     */
+    public synchronized void saveLoans(List<Loan> loans) {
+        writeLoanSnapshot(visitor -> {
+            for (Loan loan : loans) {
+                visitor.test(loan);
+            }
+        });
+    }
+
+    /**
+     * Records a newly created loan by appending a single record to the
+     * loan journal. The loans.txt snapshot is not touched, and for book
+     * loans the same record marks the book as borrowed (see
+     * {@link #loadBooks()}), so a checkout is one durable write.
+     *
+     * @param loan the new loan
+     */
+    public void appendLoan(Loan loan) {
+        appendLoanJournal(JOURNAL_ADD + ";" + formatLoan(loan));
+    }
+
+    /**
+     * Records the return of a loan by appending a single record to the
+     * loan journal. The loans.txt snapshot is not touched.
+     *
+     * @param loanId     ID of the returned loan
+     * @param returnDate date on which the item was returned
+     */
+    public void appendLoanReturn(String loanId, LocalDate returnDate) {
+        appendLoanJournal(JOURNAL_RETURN + ";" + loanId + ";" + returnDate);
+    }
+
+    /**
+     * Records the return of a loan by appending a single record to the
+     * loan journal. For book loans the record also names the book, so the
+     * book becomes available again by the same write.
+     *
+     * @param loan       the returned loan
+     * @param returnDate date on which the item was returned
+     */
+    public void appendLoanReturn(Loan loan, LocalDate returnDate) {
+        if (loan.getMediaType() != MediaType.BOOK) {
+            appendLoanReturn(loan.getId(), returnDate);
+            return;
+        }
+        appendLoanJournal(JOURNAL_RETURN + ";" + loan.getId() + ";" + returnDate + ";" + loan.getBookId());
+    }
+
+    /**
+     * Folds the loan journal into a new loans.txt snapshot.
+     * <p>
+     * Called automatically once the journal grows past the compaction
+     * threshold, but may also be invoked explicitly (e.g. at shutdown).
+     * </p>
+     */
+    public synchronized void compactLoans() {
+        writeLoanSnapshot(this::forEachLoan);
+    }
+
+    /**
+     * Writes a new loans.txt snapshot from the loans supplied by
+     * {@code source}, streaming them to a temporary file that is then
+     * moved into place, and discards the loan journal.
+     * <p>
+     * Book states recorded in the journal are first written to books.txt.
+     * A crash at any point leaves either the old files plus the journal,
+     * or the new files; replaying the journal over the new files again is
+     * harmless.
+     * </p>
+     *
+     * @param source feeds every loan of the new snapshot to the given visitor
+     */
+    private void writeLoanSnapshot(Consumer<Predicate<Loan>> source) {
+        long start = System.nanoTime();
         try {
-            if (!Files.exists(loansFile())) {
-                return loans;
+            Files.createDirectories(baseDir);
+            Path tmp = loansFile().resolveSibling("loans.txt.tmp");
+            try (BufferedWriter out = Files.newBufferedWriter(tmp,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                source.accept(loan -> {
+                    try {
+                        out.write(formatLoan(loan));
+                        out.newLine();
+                        return true;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            if (!readLoanJournal().bookStates.isEmpty()) {
+                // fold journal checkouts into books.txt before the journal goes away
+                saveBooks(loadBooks());
             }
-            for (String line : Files.readAllLines(loansFile())) {
-                if (line.isBlank()) continue;
-
-                String[] parts = line.split(";", -1);
-                if (parts.length < 6) continue;
-
-                String id = parts[0];
-                String userId = parts[1];
-                String bookId = parts[2];
-                LocalDate borrowDate = LocalDate.parse(parts[3]);
-                LocalDate dueDate = LocalDate.parse(parts[4]);
-                LocalDate returnDate = parts[5].isEmpty() ? null : LocalDate.parse(parts[5]);
-
-                MediaType mediaType = MediaType.BOOK;
-                if (parts.length >= 7 && !parts[6].isBlank()) {
-                    mediaType = MediaType.valueOf(parts[6]);
+            Files.move(tmp, loansFile(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            Files.deleteIfExists(loanJournalFile());
+            journalRecords = 0;
+            recordWrite(loansFile());
+            recordWrite(loanJournalFile());
+            SAVE_LOANS_TIMER.recordSince(start);
+        } catch (IOException | UncheckedIOException e) {
+            throw new RuntimeException("Failed to save loans", e);
+        }
+    }
+
+    /**
+     * Appends one record to the loan journal and compacts the journal
+     * into a snapshot when it has grown past the threshold.
+     * <p>
+     * The record is forced to disk before this method returns; the
+     * record is the commit point of the change. An unterminated record
+     * left at the end of the journal by an earlier crash is cut off first.
+     * </p>
+     *
+     * @param record the journal line to append
+     */
+    private synchronized void appendLoanJournal(String record) {
+        long start = System.nanoTime();
+        try {
+            Files.createDirectories(baseDir);
+            try (FileChannel channel = FileChannel.open(loanJournalFile(),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                long end = committedLength(channel);
+                if (end < channel.size()) {
+                    // drop a record torn by a crash mid-write
+                    channel.truncate(end);
+                    journalRecords = -1;
+                }
+                if (journalRecords < 0) {
+                    journalRecords = countJournalRecords();
                 }
+                ByteBuffer bytes = ByteBuffer.wrap(
+                        (record + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes, end + bytes.position());
+                }
+                channel.force(false);
+            }
+            journalRecords++;
+            recordWrite(loanJournalFile());
+            APPEND_LOAN_JOURNAL_TIMER.recordSince(start);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to append to loan journal", e);
+        }
+        if (journalRecords >= journalCompactionThreshold) {
+            compactLoans();
+        }
+    }
 
-                loans.add(new Loan(id, userId, bookId, borrowDate, dueDate, returnDate, mediaType));
+    /**
+     * Reads the loan journal into memory.
+     * <p>
+     * Malformed records and an unterminated last record (torn by a crash
+     * mid-write) are skipped. Book checkouts and returns are collected as
+     * the last recorded state of each book, so replaying a journal whose
+     * effects were already written to books.txt changes nothing.
+     * </p>
+     *
+     * @return the journal contents
+     */
+    private LoanJournal readLoanJournal() {
+        LoanJournal journal = new LoanJournal();
+        if (!Files.exists(loanJournalFile())) {
+            return journal;
+        }
+        try (RecordScanner r = RecordScanner.open(loanJournalFile())) {
+            int position = 0;
+            while (r.next()) {
+                if (!r.terminated()) {
+                    break; // torn by a crash mid-write; never committed
+                }
+                try {
+                    if (r.fieldEquals(0, JOURNAL_ADD) && r.fieldCount() >= 7) {
+                        Loan loan = parseLoan(r, 1);
+                        journal.added.add(loan);
+                        journal.addedAt.add(position);
+                        if (loan.getMediaType() == MediaType.BOOK) {
+                            journal.bookStates.put(loan.getBookId(), !loan.isReturned());
+                            journal.bookOfLoan.putIfAbsent(loan.getId(), loan.getBookId());
+                        }
+                    } else if (r.fieldEquals(0, JOURNAL_RETURN) && r.fieldCount() >= 3) {
+                        LocalDate date = r.dateField(2);
+                        journal.returns.computeIfAbsent(r.field(1), id -> new ArrayList<>())
+                                .add(new JournalReturn(position, date));
+                        String bookId = (r.fieldCount() >= 4 && !r.isEmpty(3))
+                                ? r.field(3) : journal.bookOfLoan.get(r.field(1));
+                        if (bookId != null) {
+                            journal.bookStates.put(bookId, false);
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    // torn or corrupt journal record; ignore it
+                }
+                position++;
             }
         } catch (IOException e) {
             throw new RuntimeException("Failed to load loans", e);
         }
-        return loans;
+        return journal;
     }
 
     /**
-     * Saves all loans to loans.txt.
+     * @return number of non-blank records currently in the loan journal
+     * @throws IOException if the journal cannot be read
+     */
+    private int countJournalRecords() throws IOException {
+        if (!Files.exists(loanJournalFile())) {
+            return 0;
+        }
+        int count = 0;
+        try (RecordScanner r = RecordScanner.open(loanJournalFile())) {
+            while (r.next()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Finds the end of the last complete (newline-terminated) record.
      *
-     * @param loans list of Loan objects to save
+     * @param channel open journal channel
+     * @return length of the journal without any torn trailing record
+     * @throws IOException if the journal cannot be read
      */
-    public void saveLoans(List<Loan> loans) {
-        List<String> lines = new ArrayList<>();
-        for (Loan loan : loans) {
-            String returnDateStr = (loan.getReturnDate() == null)
-                    ? ""
-                    : loan.getReturnDate().toString();
+    static long committedLength(FileChannel channel) throws IOException {
+        long end = channel.size();
+        ByteBuffer one = ByteBuffer.allocate(1);
+        while (end > 0) {
+            one.clear();
+            channel.read(one, end - 1);
+            if (one.get(0) == '\n') {
+                break;
+            }
+            end--;
+        }
+        return end;
+    }
 
-            String line = String.join(";",
-                    loan.getId(),
-                    loan.getUserId(),
-                    loan.getBookId(),
-                    loan.getBorrowDate().toString(),
-                    loan.getDueDate().toString(),
-                    returnDateStr,
-                    loan.getMediaType().name()
-            );
-            lines.add(line);
+    /**
+     * Parses a loan from the current record of a scanner.
+     *
+     * @param r      scanner positioned on a loan record
+     * @param offset index of the loan ID within the record
+     * @return the parsed loan
+     */
+    private static Loan parseLoan(RecordScanner r, int offset) {
+        String id = r.field(offset);
+        String userId = r.field(offset + 1);
+        String bookId = r.field(offset + 2);
+        LocalDate borrowDate = r.dateField(offset + 3);
+        LocalDate dueDate = r.dateField(offset + 4);
+        LocalDate returnDate = r.isEmpty(offset + 5) ? null : r.dateField(offset + 5);
+
+        MediaType mediaType = MediaType.BOOK;
+        if (r.fieldCount() >= offset + 7 && !r.isBlank(offset + 6)) {
+            mediaType = MediaType.valueOf(r.field(offset + 6));
         }
-        try {
-            Files.createDirectories(baseDir);
-            Files.write(loansFile(), lines,
-                    StandardOpenOption.CREATE,
-                    StandardOpenOption.TRUNCATE_EXISTING);
+
+        return new Loan(id, userId, bookId, borrowDate, dueDate, returnDate, mediaType);
+    }
+
+    /**
+     * Formats a loan as a semicolon-separated record.
+     *
+     * @param loan the loan to format
+     * @return the record line
+     */
+    private static String formatLoan(Loan loan) {
+        String returnDateStr = (loan.getReturnDate() == null)
+                ? ""
+                : loan.getReturnDate().toString();
+
+        return String.join(";",
+                loan.getId(),
+                loan.getUserId(),
+                loan.getBookId(),
+                loan.getBorrowDate().toString(),
+                loan.getDueDate().toString(),
+                returnDateStr,
+                loan.getMediaType().name()
+        );
+    }
+
+
+    /* ============================
+       Record scanning helpers
+       ============================ */
+
+    /**
+     * Parses the current record of a scanner.
+     *
+     * @param <T> record type
+     */
+    private interface RecordParser<T> {
+
+        /**
+         * @param r scanner positioned on a record
+         * @return the parsed record, or null to skip the line
+         */
+        T parse(RecordScanner r);
+    }
+
+    /**
+     * Parses a record file and feeds each record to a visitor.
+     *
+     * @param file    the file to read; a missing file has no records
+     * @param parser  record parser
+     * @param visitor called for each record; return false to stop early
+     * @param error   message used if the file cannot be read
+     * @param <T>     record type
+     * @return true if every record was visited, false if the visitor stopped
+     */
+    private static <T> boolean scan(Path file, RecordParser<T> parser,
+                                    Predicate<? super T> visitor, String error) {
+        if (!Files.exists(file)) {
+            return true;
+        }
+        try (RecordScanner r = RecordScanner.open(file)) {
+            while (r.next()) {
+                T record = parser.parse(r);
+                if (record != null && !visitor.test(record)) {
+                    return false;
+                }
+            }
+            return true;
         } catch (IOException e) {
-            throw new RuntimeException("Failed to save loans", e);
+            throw new RuntimeException(error, e);
+        }
+    }
+
+    /**
+     * Pull-style iterator over the records of a file. The file is opened
+     * on first use and closed when exhausted or when {@link #close()} is called.
+     *
+     * @param <T> record type
+     */
+    private static final class RecordIterator<T> implements Iterator<T> {
+        private final Path file;
+        private final RecordParser<T> parser;
+        private final String error;
+        private RecordScanner scanner;
+        private T next;
+        private boolean done;
+
+        RecordIterator(Path file, RecordParser<T> parser, String error) {
+            this.file = file;
+            this.parser = parser;
+            this.error = error;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next != null) return true;
+            if (done) return false;
+            try {
+                if (scanner == null) {
+                    if (!Files.exists(file)) {
+                        done = true;
+                        return false;
+                    }
+                    scanner = RecordScanner.open(file);
+                }
+                while (scanner.next()) {
+                    next = parser.parse(scanner);
+                    if (next != null) return true;
+                }
+            } catch (IOException e) {
+                close();
+                throw new RuntimeException(error, e);
+            }
+            close();
+            return false;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T result = next;
+            next = null;
+            return result;
+        }
+
+        void close() {
+            done = true;
+            if (scanner != null) {
+                try {
+                    scanner.close();
+                } catch (IOException e) {
+                    // nothing useful to do; the file was only read
+                }
+                scanner = null;
+            }
+        }
+    }
+
+    /**
+     * A return recorded in the loan journal.
+     */
+    private static final class JournalReturn {
+        final int position;
+        final LocalDate date;
+
+        JournalReturn(int position, LocalDate date) {
+            this.position = position;
+            this.date = date;
+        }
+    }
+
+    /**
+     * The loan journal held in memory while loans are streamed.
+     * <p>
+     * A return applies to the first loan with the matching ID that
+     * existed when it was recorded, mirroring how loans are looked up
+     * when they are returned.
+     * </p>
+     */
+    private static final class LoanJournal {
+        final List<Loan> added = new ArrayList<>();
+        final List<Integer> addedAt = new ArrayList<>();
+        final Map<String, List<JournalReturn>> returns = new HashMap<>();
+        /** Borrowed flag of each book touched by the journal; the last record wins. */
+        final Map<String, Boolean> bookStates = new LinkedHashMap<>();
+        /** Book of each book loan created in the journal, for returns that do not name it. */
+        final Map<String, String> bookOfLoan = new HashMap<>();
+        private final Set<String> claimed = new HashSet<>();
+
+        /**
+         * Applies the journal return for this loan, if any.
+         *
+         * @param loan  a loan in stream order
+         * @param after journal position the loan was created at (-1 for the snapshot)
+         * @return the same loan
+         */
+        Loan applyReturn(Loan loan, int after) {
+            List<JournalReturn> list = returns.get(loan.getId());
+            if (list == null || !claimed.add(loan.getId()) || loan.isReturned()) {
+                return loan;
+            }
+            for (JournalReturn ret : list) {
+                if (ret.position > after) {
+                    loan.markReturned(ret.date);
+                    break;
+                }
+            }
+            return loan;
         }
     }
 
@@ -377,35 +1079,32 @@ public class FileStorage {
      * @return list of Fine objects
      */
     public List<Fine> loadFines() {
+        long start = System.nanoTime();
         List<Fine> fines = new ArrayList<>();
-        try {
-            if (!Files.exists(finesFile())) {
-                return fines;
-            }
-            for (String line : Files.readAllLines(finesFile())) {
-                if (line.isBlank()) continue;
-                String[] parts = line.split(";");
-                if (parts.length < 4) continue;
-
-                String id = parts[0];
-                String userId = parts[1];
-                double amount = Double.parseDouble(parts[2]);
-                boolean paid = Boolean.parseBoolean(parts[3]);
-
-                fines.add(new Fine(id, userId, amount, paid));
-            }
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to load fines.txt", e);
-        }
+        forEachFine(fines::add);
+        LOAD_FINES_TIMER.recordSince(start);
         return fines;
     }
 
+    /**
+     * Visits the fines in fines.txt one at a time without building a list.
+     *
+     * @param visitor called for each fine; return false to stop early
+     * @return true if every fine was visited, false if the visitor stopped
+     */
+    public boolean forEachFine(Predicate<? super Fine> visitor) {
+        return scan(finesFile(), r -> r.nonEmptyFieldCount() < 4 ? null
+                        : new Fine(r.field(0), r.field(1), r.doubleField(2), r.booleanField(3)),
+                visitor, "Failed to load fines.txt");
+    }
+
     /**
      * Saves all fines to fines.txt.
      *
      * @param fines list of fines to save
      */
-    public void saveFines(List<Fine> fines) {
+    public synchronized void saveFines(List<Fine> fines) {
+        long start = System.nanoTime();
         List<String> lines = new ArrayList<>();
         for (Fine fine : fines) {
             String line = String.join(";",
@@ -421,6 +1120,8 @@ public class FileStorage {
             Files.write(finesFile(), lines,
                     StandardOpenOption.CREATE,
                     StandardOpenOption.TRUNCATE_EXISTING);
+            recordWrite(finesFile());
+            SAVE_FINES_TIMER.recordSince(start);
         } catch (IOException e) {
             throw new RuntimeException("Failed to save fines.txt", e);
         }
@@ -431,7 +1132,8 @@ public class FileStorage {
      *
      * @param librarians list of librarians
      */
-    public void saveLibrarians(List<Librarian> librarians) {
+    public synchronized void saveLibrarians(List<Librarian> librarians) {
+        long start = System.nanoTime();
         List<String> lines = new ArrayList<>();
         for (Librarian l : librarians) {
             String line = String.join(";",
@@ -447,6 +1149,8 @@ public class FileStorage {
             Files.write(librariansFile(), lines,
                     StandardOpenOption.CREATE,
                     StandardOpenOption.TRUNCATE_EXISTING);
+            recordWrite(librariansFile());
+            SAVE_LIBRARIANS_TIMER.recordSince(start);
         } catch (IOException e) {
             throw new RuntimeException("Failed to save librarians", e);
         }
@@ -0,0 +1,205 @@
+package com.library.domain;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory repository of fines backed by fines.txt.
+ * <p>
+ * Fines keep their file order, which is also the order payments are
+ * applied in. See {@link CachedRepository} for caching behaviour.
+ * </p>
+ * <p>
+ * The repository also keeps each user's fines and a running ledger of
+ * their outstanding (unpaid) balance, keyed by the trimmed user ID. The
+ * ledger is rebuilt on load, extended by {@link #add(Fine)} and refreshed
+ * per user by {@link #pay(String, double)}. {@link #reconcile()} recomputes
+ * it from every fine.
+ * </p>
+ *
+ * @author Maram
+ * @version 1.0
+ */
+public class FineRepository extends CachedRepository<Fine> {
+
+    /**
+     * Fines by trimmed user ID, in file order.
+     */
+    private final Map<String, List<Fine>> byUser = new HashMap<>();
+
+    /**
+     * Outstanding balance by trimmed user ID.
+     */
+    private final Map<String, Double> balances = new HashMap<>();
+
+    /**
+     * Creates a fine repository.
+     *
+     * @param storage the file storage backend
+     */
+    public FineRepository(FileStorage storage) {
+        super(storage);
+    }
+
+    @Override
+    protected List<Path> files() {
+        return List.of(storage.finesFile());
+    }
+
+    @Override
+    protected List<Fine> load() {
+        return storage.loadFines();
+    }
+
+    @Override
+    protected void save(List<Fine> records) {
+        storage.saveFines(records);
+    }
+
+    @Override
+    protected void rebuildIndexes(List<Fine> records) {
+        byUser.clear();
+        balances.clear();
+        for (Fine fine : records) {
+            index(fine);
+        }
+    }
+
+    private void index(Fine fine) {
+        String userId = fine.getUserId().trim();
+        byUser.computeIfAbsent(userId, id -> new ArrayList<>()).add(fine);
+        if (!fine.isPaid()) {
+            balances.merge(userId, fine.getAmount(), Double::sum);
+        }
+    }
+
+    /**
+     * Sums a user's unpaid fines in file order.
+     *
+     * @param userId trimmed user ID
+     * @return the outstanding balance
+     */
+    private double sumUnpaid(String userId) {
+        double total = 0.0;
+        for (Fine fine : byUser.getOrDefault(userId, List.of())) {
+            if (!fine.isPaid()) {
+                total += fine.getAmount();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * @return a new, unused fine ID
+     */
+    public String nextId() {
+        return storage.ids().next("F");
+    }
+
+    /**
+     * Adds a fine and writes the fines through to storage.
+     *
+     * @param fine the new fine
+     */
+    public synchronized void add(Fine fine) {
+        records().add(fine);
+        index(fine);
+        writeThrough();
+    }
+
+    /**
+     * @param userId user ID; surrounding whitespace is ignored
+     * @return the user's fines in file order
+     */
+    public synchronized List<Fine> findByUser(String userId) {
+        records();
+        return new ArrayList<>(byUser.getOrDefault(userId.trim(), List.of()));
+    }
+
+    /**
+     * Returns the user's outstanding balance from the ledger.
+     *
+     * @param userId user ID; surrounding whitespace is ignored
+     * @return total of the user's unpaid fines
+     */
+    public synchronized double outstandingBalance(String userId) {
+        records();
+        return balances.getOrDefault(userId.trim(), 0.0);
+    }
+
+    /**
+     * Applies a payment to a user's unpaid fines, oldest first, refreshes
+     * the user's ledger entry and writes the fines through to storage.
+     * A fully paid fine is marked paid with amount 0; a partly paid one
+     * keeps the rest as its amount.
+     *
+     * @param userId user ID exactly as stored on the fines
+     * @param amount amount paid; nothing changes if not positive
+     * @return the user's outstanding balance after the payment
+     */
+    public synchronized double pay(String userId, double amount) {
+        records();
+        String id = userId.trim();
+        if (amount <= 0) {
+            return balances.getOrDefault(id, 0.0);
+        }
+
+        double remainingToPay = amount;
+
+        for (Fine fine : byUser.getOrDefault(id, List.of())) {
+            if (!fine.getUserId().equals(userId) || fine.isPaid()) {
+                continue;
+            }
+
+            if (remainingToPay <= 0) break;
+
+            double fineAmount = fine.getAmount();
+
+            if (remainingToPay >= fineAmount) {
+                remainingToPay -= fineAmount;
+                fine.setAmount(0);
+                fine.setPaid(true);
+            } else {
+                fine.setAmount(fineAmount - remainingToPay);
+                remainingToPay = 0;
+            }
+        }
+
+        double balance = sumUnpaid(id);
+        balances.put(id, balance);
+        writeThrough();
+        return balance;
+    }
+
+    /**
+     * Persists changes made in place to any fines and recomputes the
+     * whole ledger.
+     */
+    @Override
+    public synchronized void saveChanges() {
+        rebuildIndexes(records());
+        writeThrough();
+    }
+
+    /**
+     * Recomputes every balance from the fines and corrects the ledger.
+     *
+     * @return number of users whose ledger balance was wrong
+     */
+    public synchronized int reconcile() {
+        records();
+        Map<String, Double> ledger = new HashMap<>(balances);
+        rebuildIndexes(records());
+        int corrected = 0;
+        for (String userId : byUser.keySet()) {
+            double expected = balances.getOrDefault(userId, 0.0);
+            if (Double.compare(ledger.getOrDefault(userId, 0.0), expected) != 0) {
+                corrected++;
+            }
+        }
+        return corrected;
+    }
+}
@@ -0,0 +1,209 @@
+package com.library.domain;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * Hands out unique, increasing IDs such as {@code L17} or {@code B4}.
+ * <p>
+ * Each prefix has its own sequence. The sequences are persisted in
+ * sequences.txt ({@code prefix;next}) and reserved in blocks: the file
+ * records the end of the reserved block before any ID from it is handed
+ * out, so minting an ID usually does not touch the disk and a crash can
+ * only skip numbers, never repeat them.
+ * </p>
+ * <p>
+ * The first time a prefix is used, before sequences.txt has an entry for
+ * it, its sequence is also moved past the highest ID already stored with
+ * that prefix, so data created before the allocator existed cannot
+ * collide with new IDs. Once a sequence is recorded it is trusted and the
+ * data files are never scanned again, so records added by hand afterwards
+ * must use IDs below it. Block reservation is serialized between
+ * allocators in this JVM and, through a file lock, between processes.
+ * </p>
+ *
+ * @author Maram
+ * @version 1.0
+ */
+public final class IdAllocator {
+
+    /**
+     * Number of IDs reserved per write to sequences.txt.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 32;
+
+    /**
+     * In-JVM monitors per sequences file, so two allocators over the same
+     * directory never reserve concurrently (file locks are per process).
+     */
+    private static final Map<Path, Object> FILE_MONITORS = new ConcurrentHashMap<>();
+
+    private final Path file;
+    private final int blockSize;
+    private final ToLongFunction<String> highestExisting;
+    private final Map<String, Block> blocks = new HashMap<>();
+
+    /**
+     * Creates an allocator.
+     *
+     * @param file            the sequences file
+     * @param blockSize       IDs reserved per write
+     * @param highestExisting highest numeric ID already stored for a prefix
+     *                        (0 if none)
+     * @throws IllegalArgumentException if blockSize is not positive
+     */
+    IdAllocator(Path file, int blockSize, ToLongFunction<String> highestExisting) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive");
+        }
+        this.file = file.toAbsolutePath().normalize();
+        this.blockSize = blockSize;
+        this.highestExisting = highestExisting;
+    }
+
+    /**
+     * Returns the next ID for a prefix.
+     *
+     * @param prefix ID prefix, e.g. "L"
+     * @return a new ID, never returned before for this prefix
+     */
+    public synchronized String next(String prefix) {
+        Block block = blocks.get(prefix);
+        if (block == null || block.next >= block.end) {
+            block = reserve(prefix, block);
+            blocks.put(prefix, block);
+        }
+        return prefix + block.next++;
+    }
+
+    /**
+     * Reserves the next block of IDs for a prefix and records it on disk.
+     *
+     * @param prefix  ID prefix
+     * @param current the exhausted block, or null on first use
+     * @return the new block
+     */
+    private Block reserve(String prefix, Block current) {
+        long floor = (current == null) ? seed(prefix) : current.end;
+        Object monitor = FILE_MONITORS.computeIfAbsent(file, f -> new Object());
+        synchronized (monitor) {
+            try {
+                Files.createDirectories(file.getParent());
+                Path lockFile = file.resolveSibling(file.getFileName() + ".lock");
+                try (FileChannel lockChannel = FileChannel.open(lockFile,
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                     FileLock ignored = lockChannel.lock()) {
+                    Map<String, Long> sequences = read();
+                    long start = Math.max(floor, sequences.getOrDefault(prefix, 1L));
+                    long end = start + blockSize;
+                    sequences.put(prefix, end);
+                    write(sequences);
+                    return new Block(start, end);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to reserve IDs for prefix " + prefix, e);
+            }
+        }
+    }
+
+    /**
+     * Lowest ID a first block for a prefix may start at: 1 if a sequence
+     * is already recorded, otherwise past the highest stored ID.
+     */
+    private long seed(String prefix) {
+        try {
+            // sequences.txt is only ever replaced atomically, so it can be read unlocked
+            if (read().containsKey(prefix)) {
+                return 1;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read ID sequences", e);
+        }
+        return highestExisting.applyAsLong(prefix) + 1;
+    }
+
+    private Map<String, Long> read() throws IOException {
+        Map<String, Long> sequences = new TreeMap<>();
+        if (!Files.exists(file)) {
+            return sequences;
+        }
+        try (RecordScanner r = RecordScanner.open(file)) {
+            while (r.next()) {
+                if (r.fieldCount() < 2) {
+                    continue;
+                }
+                try {
+                    sequences.put(r.field(0), Long.parseLong(r.field(1).trim()));
+                } catch (NumberFormatException e) {
+                    // skip malformed lines
+                }
+            }
+        }
+        return sequences;
+    }
+
+    private void write(Map<String, Long> sequences) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Long> e : sequences.entrySet()) {
+            sb.append(e.getKey()).append(';').append(e.getValue()).append(System.lineSeparator());
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer bytes = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(false);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Parses the number after a prefix.
+     *
+     * @param id     a stored ID
+     * @param prefix the expected prefix
+     * @return the numeric part, or 0 if the ID has another shape
+     */
+    static long numberOf(String id, String prefix) {
+        if (id == null || !id.startsWith(prefix) || id.length() == prefix.length()
+                || id.length() - prefix.length() > 18) {
+            return 0;
+        }
+        long value = 0;
+        for (int i = prefix.length(); i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') {
+                return 0;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * A reserved range of IDs, {@code next} inclusive to {@code end} exclusive.
+     */
+    private static final class Block {
+        long next;
+        final long end;
+
+        Block(long next, long end) {
+            this.next = next;
+            this.end = end;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.library.domain;
+
+/**
+ * Helpers for comparing ISBNs.
+ * <p>
+ * ISBNs are often written with hyphens or spaces, with a lower-case
+ * {@code x} check digit, or in their old 10-digit form. The normalized
+ * key strips the separators, upper-cases the value and converts valid
+ * ISBN-10s to their ISBN-13 form, so all spellings of the same ISBN
+ * share one key.
+ * </p>
+ *
+ * @author Maram
+ * @version 1.0
+ */
+public final class Isbn {
+
+    private Isbn() {
+    }
+
+    /**
+     * Returns the key used to compare ISBNs.
+     * <p>
+     * Values that are not valid ISBN-10s are only stripped and upper-cased,
+     * so arbitrary catalogue codes still compare ignoring case.
+     * </p>
+     *
+     * @param isbn an ISBN as entered by the user
+     * @return the normalized key, or null if isbn is null
+     */
+    public static String normalize(String isbn) {
+        if (isbn == null) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder(isbn.length());
+        for (int i = 0; i < isbn.length(); i++) {
+            char c = isbn.charAt(i);
+            if (c != '-' && !Character.isWhitespace(c)) {
+                sb.append(Character.toUpperCase(c));
+            }
+        }
+        String key = sb.toString();
+        if (isValidIsbn10(key)) {
+            return toIsbn13(key);
+        }
+        return key;
+    }
+
+    /**
+     * @param isbn stripped, upper-case candidate
+     * @return true if it is ten characters with a correct ISBN-10 check digit
+     */
+    static boolean isValidIsbn10(String isbn) {
+        if (isbn.length() != 10) {
+            return false;
+        }
+        int sum = 0;
+        for (int i = 0; i < 10; i++) {
+            char c = isbn.charAt(i);
+            int digit;
+            if (c >= '0' && c <= '9') {
+                digit = c - '0';
+            } else if (c == 'X' && i == 9) {
+                digit = 10;
+            } else {
+                return false;
+            }
+            sum += digit * (10 - i);
+        }
+        return sum % 11 == 0;
+    }
+
+    /**
+     * @param isbn10 a valid ISBN-10
+     * @return the equivalent 978-prefixed ISBN-13
+     */
+    private static String toIsbn13(String isbn10) {
+        String body = "978" + isbn10.substring(0, 9);
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            int digit = body.charAt(i) - '0';
+            sum += (i % 2 == 0) ? digit : digit * 3;
+        }
+        int check = (10 - sum % 10) % 10;
+        return body + check;
+    }
+}
@@ -0,0 +1,252 @@
+package com.library.domain;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * In-memory repository of loans backed by loans.txt and the loan journal.
+ * <p>
+ * New loans and returns are appended to the journal through
+ * {@link FileStorage#appendLoan(Loan)} and
+ * {@link FileStorage#appendLoanReturn(Loan, LocalDate)}, so a change
+ * costs one record on disk and no re-read.
+ * </p>
+ *
+ * @author Maram
+ * @version 1.0
+ */
+public class LoanRepository extends CachedRepository<Loan> {
+
+    /**
+     * Loans by ID. If an ID appears twice the first loan wins.
+     */
+    private final Map<String, Loan> byId = new HashMap<>();
+
+    /**
+     * Loans by user ID.
+     */
+    private final Map<String, UserLoans> byUser = new HashMap<>();
+
+    /**
+     * Active loans by due date. Loans sharing a due date are kept in
+     * storage order.
+     */
+    private final NavigableMap<LocalDate, List<Loan>> activeByDueDate = new TreeMap<>();
+
+    /**
+     * Creates a loan repository.
+     *
+     * @param storage the file storage backend
+     */
+    public LoanRepository(FileStorage storage) {
+        super(storage);
+    }
+
+    @Override
+    protected List<Path> files() {
+        return List.of(storage.loansFile(), storage.loanJournalFile());
+    }
+
+    @Override
+    protected List<Loan> load() {
+        return storage.loadLoans();
+    }
+
+    @Override
+    protected void save(List<Loan> records) {
+        storage.saveLoans(records);
+    }
+
+    @Override
+    protected void rebuildIndexes(List<Loan> records) {
+        byId.clear();
+        byUser.clear();
+        activeByDueDate.clear();
+        for (Loan loan : records) {
+            byId.putIfAbsent(loan.getId(), loan);
+            index(loan);
+        }
+    }
+
+    private void index(Loan loan) {
+        UserLoans userLoans = byUser.computeIfAbsent(loan.getUserId(), id -> new UserLoans());
+        userLoans.all.add(loan);
+        if (!loan.isReturned()) {
+            userLoans.active.add(loan);
+            if (loan.getDueDate() != null) {
+                activeByDueDate.computeIfAbsent(loan.getDueDate(), d -> new ArrayList<>()).add(loan);
+            }
+        }
+    }
+
+    private void unindexActive(Loan loan) {
+        UserLoans userLoans = byUser.get(loan.getUserId());
+        if (userLoans != null) {
+            userLoans.active.removeIf(l -> l == loan);
+        }
+        if (loan.getDueDate() != null) {
+            List<Loan> due = activeByDueDate.get(loan.getDueDate());
+            if (due != null) {
+                due.removeIf(l -> l == loan);
+                if (due.isEmpty()) {
+                    activeByDueDate.remove(loan.getDueDate());
+                }
+            }
+        }
+    }
+
+    private UserLoans userLoans(String userId) {
+        records();
+        UserLoans userLoans = byUser.get(userId);
+        return userLoans == null ? UserLoans.NONE : userLoans;
+    }
+
+    /**
+     * @param id loan ID
+     * @return the loan, or null if not found
+     */
+    public synchronized Loan findById(String id) {
+        records();
+        return byId.get(id);
+    }
+
+    /**
+     * Records a new loan.
+     *
+     * @param loan the new loan
+     */
+    public synchronized void add(Loan loan) {
+        List<Loan> loans = records();
+        storage.appendLoan(loan);
+        loans.add(loan);
+        byId.putIfAbsent(loan.getId(), loan);
+        index(loan);
+        restamp();
+    }
+
+    /**
+     * Assigns the next loan ID from the storage's {@link IdAllocator} and
+     * records the loan built for it.
+     *
+     * @param newLoan builds the loan for the assigned ID
+     * @return the recorded loan
+     */
+    public synchronized Loan addNext(Function<String, Loan> newLoan) {
+        records();
+        Loan loan = newLoan.apply(storage.ids().next("L"));
+        add(loan);
+        return loan;
+    }
+
+    /**
+     * Marks a loan as returned and records the return.
+     *
+     * @param loan       a loan obtained from this repository
+     * @param returnDate the return date
+     */
+    public synchronized void markReturned(Loan loan, LocalDate returnDate) {
+        records();
+        storage.appendLoanReturn(loan, returnDate);
+        loan.markReturned(returnDate);
+        unindexActive(loan);
+        restamp();
+    }
+
+    /**
+     * @param userId user ID
+     * @return all of the user's loans, in storage order
+     */
+    public synchronized List<Loan> findByUser(String userId) {
+        return new ArrayList<>(userLoans(userId).all);
+    }
+
+    /**
+     * @param userId user ID
+     * @return the user's loans that have not been returned
+     */
+    public synchronized List<Loan> findActiveByUser(String userId) {
+        List<Loan> result = new ArrayList<>();
+        for (Loan loan : userLoans(userId).active) {
+            if (!loan.isReturned()) {
+                result.add(loan);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param userId user ID
+     * @param filter condition to look for
+     * @return true if one of the user's active loans matches
+     */
+    public synchronized boolean anyActiveMatch(String userId, Predicate<? super Loan> filter) {
+        for (Loan loan : userLoans(userId).active) {
+            if (!loan.isReturned() && filter.test(loan)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param date exclusive upper bound
+     * @return active loans due strictly before the date, earliest due first
+     */
+    public synchronized List<Loan> findActiveDueBefore(LocalDate date) {
+        records();
+        return collectActive(activeByDueDate.headMap(date, false));
+    }
+
+    /**
+     * @param from first due date, inclusive
+     * @param to   last due date, inclusive
+     * @return active loans due in the range, earliest due first
+     */
+    public synchronized List<Loan> findActiveDueBetween(LocalDate from, LocalDate to) {
+        records();
+        if (to.isBefore(from)) {
+            return new ArrayList<>();
+        }
+        return collectActive(activeByDueDate.subMap(from, true, to, true));
+    }
+
+    private static List<Loan> collectActive(Map<LocalDate, List<Loan>> buckets) {
+        List<Loan> result = new ArrayList<>();
+        for (List<Loan> due : buckets.values()) {
+            for (Loan loan : due) {
+                if (!loan.isReturned()) {
+                    result.add(loan);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * A user's loans, with the active ones kept in a separate list.
+     */
+    private static final class UserLoans {
+        static final UserLoans NONE = new UserLoans(Collections.emptyList(), Collections.emptyList());
+
+        final List<Loan> all;
+        final List<Loan> active;
+
+        UserLoans() {
+            this(new ArrayList<>(), new ArrayList<>());
+        }
+
+        private UserLoans(List<Loan> all, List<Loan> active) {
+            this.all = all;
+            this.active = active;
+        }
+    }
+}
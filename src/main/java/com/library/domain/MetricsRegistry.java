@@ -0,0 +1,240 @@
+package com.library.domain;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * In-process registry of named counters, gauges and timers.
+ * <p>
+ * Services and {@link FileStorage} record into {@link #global()}, usually
+ * through a timer held in a static field, so recording costs no lookup.
+ * Recording never blocks: counters are {@link LongAdder}s and timers are
+ * {@link LatencyHistogram}s. {@link #snapshot()} copies every metric
+ * for display or export.
+ * </p>
+ *
+ * <pre>
+ * private static final MetricsRegistry.Timer RETURN_TIMER =
+ *         MetricsRegistry.global().timer("loan.returnBook");
+ *
+ * RETURN_TIMER.time(() -> ...);
+ * </pre>
+ *
+ * @author Maram
+ * @version 1.0
+ */
+public final class MetricsRegistry {
+
+    private static final MetricsRegistry GLOBAL = new MetricsRegistry();
+
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, DoubleSupplier> gauges = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+    /**
+     * @return the registry the application records into
+     */
+    public static MetricsRegistry global() {
+        return GLOBAL;
+    }
+
+    /**
+     * @param name metric name, e.g. {@code "auth.login.failed"}
+     * @return the counter with this name, created on first use
+     */
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, n -> new Counter());
+    }
+
+    /**
+     * Registers a gauge, replacing any gauge of the same name. The value
+     * is read when a snapshot is taken.
+     *
+     * @param name  metric name, e.g. {@code "outbox.pending"}
+     * @param value reads the current value
+     */
+    public void gauge(String name, DoubleSupplier value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * @param name metric name, e.g. {@code "loan.borrowBook"}
+     * @return the timer with this name, created on first use
+     */
+    public Timer timer(String name) {
+        return timers.computeIfAbsent(name, n -> new Timer());
+    }
+
+    /**
+     * Copies every metric. A gauge that fails to read is reported as NaN.
+     *
+     * @return the metrics, sorted by name
+     */
+    public Snapshot snapshot() {
+        Map<String, Long> counterValues = new TreeMap<>();
+        counters.forEach((name, counter) -> counterValues.put(name, counter.count()));
+        Map<String, Double> gaugeValues = new TreeMap<>();
+        gauges.forEach((name, gauge) -> {
+            double value;
+            try {
+                value = gauge.getAsDouble();
+            } catch (RuntimeException e) {
+                value = Double.NaN;
+            }
+            gaugeValues.put(name, value);
+        });
+        Map<String, LatencyHistogram.Snapshot> timerValues = new TreeMap<>();
+        timers.forEach((name, timer) -> timerValues.put(name, timer.snapshot()));
+        return new Snapshot(counterValues, gaugeValues, timerValues);
+    }
+
+    /**
+     * @return a snapshot formatted as text tables, for the console
+     */
+    public String dump() {
+        return snapshot().format();
+    }
+
+    /**
+     * Monotonic count of events.
+     */
+    public static final class Counter {
+        private final LongAdder count = new LongAdder();
+
+        private Counter() {
+        }
+
+        /**
+         * Counts one event.
+         */
+        public void increment() {
+            count.increment();
+        }
+
+        /**
+         * @param n number of events to add
+         */
+        public void add(long n) {
+            count.add(n);
+        }
+
+        /**
+         * @return events counted so far
+         */
+        public long count() {
+            return count.sum();
+        }
+    }
+
+    /**
+     * Latency distribution of an operation.
+     */
+    public static final class Timer {
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        private Timer() {
+        }
+
+        /**
+         * @param nanos duration of one operation
+         */
+        public void record(long nanos) {
+            histogram.record(nanos);
+        }
+
+        /**
+         * Records the time since a start read from {@link System#nanoTime()}.
+         *
+         * @param startNanos the start of the operation
+         */
+        public void recordSince(long startNanos) {
+            histogram.record(System.nanoTime() - startNanos);
+        }
+
+        /**
+         * Runs an operation and records how long it took, also when it throws.
+         *
+         * @param operation the operation
+         * @param <T>       result type
+         * @return the operation's result
+         */
+        public <T> T time(Supplier<T> operation) {
+            long start = System.nanoTime();
+            try {
+                return operation.get();
+            } finally {
+                recordSince(start);
+            }
+        }
+
+        /**
+         * @return the recorded latencies
+         */
+        public LatencyHistogram.Snapshot snapshot() {
+            return histogram.snapshot();
+        }
+    }
+
+    /**
+     * Point-in-time copy of a registry.
+     */
+    public static final class Snapshot {
+        private final Map<String, Long> counters;
+        private final Map<String, Double> gauges;
+        private final Map<String, LatencyHistogram.Snapshot> timers;
+
+        private Snapshot(Map<String, Long> counters, Map<String, Double> gauges,
+                         Map<String, LatencyHistogram.Snapshot> timers) {
+            this.counters = Collections.unmodifiableMap(counters);
+            this.gauges = Collections.unmodifiableMap(gauges);
+            this.timers = Collections.unmodifiableMap(timers);
+        }
+
+        public Map<String, Long> getCounters() {
+            return counters;
+        }
+
+        public Map<String, Double> getGauges() {
+            return gauges;
+        }
+
+        public Map<String, LatencyHistogram.Snapshot> getTimers() {
+            return timers;
+        }
+
+        /**
+         * Formats the timers, in milliseconds, then the counters and gauges.
+         * Timers that never ran are left out.
+         *
+         * @return the formatted text
+         */
+        public String format() {
+            StringBuilder out = new StringBuilder();
+            out.append(String.format("%-28s %9s %9s %9s %9s %9s %9s%n",
+                    "Timer (ms)", "count", "mean", "p50", "p99", "p99.9", "max"));
+            timers.forEach((name, t) -> {
+                if (t.getCount() > 0) {
+                    out.append(String.format("%-28s %9d %9.3f %9.3f %9.3f %9.3f %9.3f%n",
+                            name, t.getCount(), t.getMean() / 1e6,
+                            t.percentile(0.50) / 1e6, t.percentile(0.99) / 1e6,
+                            t.percentile(0.999) / 1e6, t.getMax() / 1e6));
+                }
+            });
+            if (!counters.isEmpty()) {
+                out.append(String.format("%n%-28s %9s%n", "Counter", "value"));
+                counters.forEach((name, value) -> out.append(String.format("%-28s %9d%n", name, value)));
+            }
+            if (!gauges.isEmpty()) {
+                out.append(String.format("%n%-28s %9s%n", "Gauge", "value"));
+                gauges.forEach((name, value) -> out.append(String.format("%-28s %9.1f%n", name, value)));
+            }
+            return out.toString();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.library.domain;
+
+/**
+ * An email queued in the {@link EmailOutbox}, with its delivery state.
+ * <p>
+ * Entries are immutable snapshots; the outbox replaces an entry whenever
+ * its state changes, and drops it once it is delivered.
+ * </p>
+ *
+ * @author Maram
+ * @version 1.0
+ */
+public final class OutboxEntry {
+
+    /**
+     * Delivery state of an entry.
+     */
+    public enum Status {
+        /** Waiting to be sent (possibly after failed attempts). */
+        PENDING,
+        /** Given up on after too many failed attempts. */
+        DEAD
+    }
+
+    private final String id;
+    private final String key;
+    private final EmailMessage message;
+    private final long createdAt;
+    private final int attempts;
+    private final long nextAttemptAt;
+    private final String lastError;
+    private final Status status;
+
+    OutboxEntry(String id, String key, EmailMessage message, long createdAt,
+                int attempts, long nextAttemptAt, String lastError, Status status) {
+        this.id = id;
+        this.key = key;
+        this.message = message;
+        this.createdAt = createdAt;
+        this.attempts = attempts;
+        this.nextAttemptAt = nextAttemptAt;
+        this.lastError = lastError;
+        this.status = status;
+    }
+
+    OutboxEntry withFailure(long nextAttemptAt, String error) {
+        return new OutboxEntry(id, key, message, createdAt, attempts + 1, nextAttemptAt, error, Status.PENDING);
+    }
+
+    OutboxEntry withStatus(Status status, String error) {
+        return new OutboxEntry(id, key, message, createdAt, attempts, nextAttemptAt,
+                error == null ? lastError : error, status);
+    }
+
+    /**
+     * @return outbox ID of the entry
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return idempotency key the message was queued with, or null
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return the queued message
+     */
+    public EmailMessage getMessage() {
+        return message;
+    }
+
+    /**
+     * @return time the message was queued, in epoch milliseconds
+     */
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * @return number of failed delivery attempts
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * @return earliest time of the next attempt, in epoch milliseconds
+     */
+    public long getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    /**
+     * @return reason the last attempt failed, or null
+     */
+    public String getLastError() {
+        return lastError;
+    }
+
+    /**
+     * @return delivery state
+     */
+    public Status getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,373 @@
+package com.library.domain;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Allocation-light reader for the semicolon-separated record files.
+ * <p>
+ * The file is read through its channel into one buffer that is reused
+ * for the whole scan (a direct buffer for large files, so the bytes are
+ * not copied through the heap) and scanned line by line directly in that
+ * buffer. For each line only the field boundaries are recorded; a field
+ * is decoded into a {@code String}, date or number only when the caller
+ * asks for it. Large files are read in windows that always end on a line
+ * break, so files of any size are supported as long as no single line
+ * is longer than a window. The file is never memory-mapped, so nothing
+ * keeps it open after {@link #close()} and it can be replaced or deleted
+ * straight away, also on Windows.
+ * </p>
+ *
+ * <pre>
+ * try (RecordScanner r = RecordScanner.open(path)) {
+ *     while (r.next()) {
+ *         if (r.fieldCount() &lt; 4) continue;
+ *         String id = r.field(0);
+ *         ...
+ *     }
+ * }
+ * </pre>
+ *
+ * @author Maram
+ * @version 1.0
+ */
+final class RecordScanner implements Closeable {
+
+    /**
+     * Files smaller than this are read into a heap buffer instead of a
+     * direct one.
+     */
+    static final long DIRECT_THRESHOLD = 1L << 20;
+
+    /**
+     * Largest region read at once.
+     */
+    static final long MAX_WINDOW = 1L << 20;
+
+    /**
+     * Field separator.
+     */
+    private static final byte SEPARATOR = ';';
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private final long maxWindow;
+
+    /** File offset of the current window. */
+    private long windowStart;
+
+    /** Current window, or null before the first read; reused for every window. */
+    private ByteBuffer buffer;
+
+    /** Position of the next unread byte in the current window. */
+    private int cursor;
+
+    /** Offsets of field starts in the current line, plus the line end at index count. */
+    private int[] bounds = new int[16];
+
+    /** Number of fields in the current line. */
+    private int count;
+
+    /** Whether the current line ended with a line break. */
+    private boolean terminated;
+
+    /** Scratch array used to decode fields from a direct buffer. */
+    private byte[] scratch = new byte[128];
+
+    private RecordScanner(FileChannel channel, long maxWindow) throws IOException {
+        this.channel = channel;
+        this.fileSize = channel.size();
+        this.maxWindow = maxWindow;
+    }
+
+    /**
+     * Opens a scanner over the given file.
+     *
+     * @param file the record file
+     * @return a scanner positioned before the first line
+     * @throws IOException if the file cannot be opened
+     */
+    static RecordScanner open(Path file) throws IOException {
+        return open(file, MAX_WINDOW);
+    }
+
+    /**
+     * Opens a scanner that reads at most {@code maxWindow} bytes at a time.
+     *
+     * @param file      the record file
+     * @param maxWindow window size in bytes
+     * @return a scanner positioned before the first line
+     * @throws IOException if the file cannot be opened
+     */
+    static RecordScanner open(Path file, long maxWindow) throws IOException {
+        return new RecordScanner(FileChannel.open(file, StandardOpenOption.READ), maxWindow);
+    }
+
+    /**
+     * Advances to the next non-blank line.
+     *
+     * @return true if a line is available, false at end of file
+     * @throws IOException if the file cannot be read
+     */
+    boolean next() throws IOException {
+        while (true) {
+            if (buffer == null || cursor >= buffer.limit()) {
+                if (!nextWindow()) {
+                    return false;
+                }
+            }
+            int start = cursor;
+            int limit = buffer.limit();
+            int end = start;
+            boolean blank = true;
+            count = 0;
+            bounds[0] = start;
+            while (end < limit) {
+                byte b = buffer.get(end);
+                if (b == '\n') {
+                    break;
+                }
+                if (b == SEPARATOR) {
+                    addBound(end + 1);
+                }
+                if (blank && !isWhitespace(b)) {
+                    blank = false;
+                }
+                end++;
+            }
+            cursor = end + 1;
+            terminated = end < limit;
+            int lineEnd = (end > start && buffer.get(end - 1) == '\r') ? end - 1 : end;
+            if (blank) {
+                continue;
+            }
+            addBound(lineEnd + 1);
+            return true;
+        }
+    }
+
+    /**
+     * @return true if the current line ended with a line break, false if
+     *         it is an unterminated last line (e.g. torn by a crash mid-write)
+     */
+    boolean terminated() {
+        return terminated;
+    }
+
+    /**
+     * @return number of fields in the current line, counting trailing
+     *         empty fields (like {@code split(";", -1)})
+     */
+    int fieldCount() {
+        return count;
+    }
+
+    /**
+     * @return number of fields in the current line ignoring trailing empty
+     *         fields (like {@code split(";")})
+     */
+    int nonEmptyFieldCount() {
+        int n = count;
+        while (n > 0 && length(n - 1) == 0) {
+            n--;
+        }
+        return n;
+    }
+
+    /**
+     * @param i field index
+     * @return true if the field has no characters
+     */
+    boolean isEmpty(int i) {
+        return length(i) == 0;
+    }
+
+    /**
+     * @param i field index
+     * @return true if the field contains only whitespace
+     */
+    boolean isBlank(int i) {
+        int start = bounds[i];
+        int end = start + length(i);
+        for (int p = start; p < end; p++) {
+            if (!isWhitespace(buffer.get(p))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes a field as UTF-8 text.
+     *
+     * @param i field index
+     * @return the field value
+     */
+    String field(int i) {
+        int len = length(i);
+        int start = bounds[i];
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + start, len, StandardCharsets.UTF_8);
+        }
+        if (scratch.length < len) {
+            scratch = new byte[Math.max(len, scratch.length * 2)];
+        }
+        for (int k = 0; k < len; k++) {
+            scratch[k] = buffer.get(start + k);
+        }
+        return new String(scratch, 0, len, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compares a field with an ASCII string without decoding it.
+     *
+     * @param i     field index
+     * @param ascii the expected value
+     * @return true if the field equals the value
+     */
+    boolean fieldEquals(int i, String ascii) {
+        int len = length(i);
+        if (len != ascii.length()) {
+            return false;
+        }
+        int start = bounds[i];
+        for (int k = 0; k < len; k++) {
+            if (buffer.get(start + k) != (byte) ascii.charAt(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses a field with the semantics of {@link Boolean#parseBoolean(String)}.
+     *
+     * @param i field index
+     * @return true if the field is "true", ignoring case
+     */
+    boolean booleanField(int i) {
+        if (length(i) != 4) {
+            return false;
+        }
+        int p = bounds[i];
+        return (buffer.get(p) | 0x20) == 't'
+                && (buffer.get(p + 1) | 0x20) == 'r'
+                && (buffer.get(p + 2) | 0x20) == 'u'
+                && (buffer.get(p + 3) | 0x20) == 'e';
+    }
+
+    /**
+     * Parses a field as a decimal number.
+     *
+     * @param i field index
+     * @return the number
+     * @throws NumberFormatException if the field is not a number
+     */
+    double doubleField(int i) {
+        return Double.parseDouble(field(i));
+    }
+
+    /**
+     * Parses an ISO date ({@code yyyy-MM-dd}) straight from the bytes.
+     * Anything not in that exact shape is handed to {@link LocalDate#parse}.
+     *
+     * @param i field index
+     * @return the date
+     * @throws java.time.DateTimeException if the field is not a valid date
+     */
+    LocalDate dateField(int i) {
+        int p = bounds[i];
+        if (length(i) == 10 && buffer.get(p + 4) == '-' && buffer.get(p + 7) == '-') {
+            int year = digits(p, 4);
+            int month = digits(p + 5, 2);
+            int day = digits(p + 8, 2);
+            if (year >= 0 && month >= 0 && day >= 0) {
+                return LocalDate.of(year, month, day);
+            }
+        }
+        return LocalDate.parse(field(i));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Loads the next window of the file, ending on a line break.
+     *
+     * @return false if the whole file has been consumed
+     * @throws IOException if the file cannot be read
+     */
+    private boolean nextWindow() throws IOException {
+        long position = (buffer == null) ? 0 : windowStart + cursor;
+        if (position >= fileSize) {
+            return false;
+        }
+        long length = Math.min(fileSize - position, maxWindow);
+        ByteBuffer window = buffer;
+        if (window == null) {
+            // the first window is the largest, so one buffer fits them all
+            window = (fileSize < DIRECT_THRESHOLD)
+                    ? ByteBuffer.allocate((int) length)
+                    : ByteBuffer.allocateDirect((int) length);
+        }
+        window.clear();
+        window.limit((int) length);
+        while (window.hasRemaining() && channel.read(window, position + window.position()) >= 0) {
+            // keep reading until the window is full
+        }
+        window.flip();
+        if (position + length < fileSize) {
+            int last = window.limit() - 1;
+            while (last >= 0 && window.get(last) != '\n') {
+                last--;
+            }
+            if (last < 0) {
+                throw new IOException("Record longer than " + maxWindow + " bytes at offset " + position);
+            }
+            window.limit(last + 1);
+        }
+        windowStart = position;
+        buffer = window;
+        cursor = 0;
+        return true;
+    }
+
+    private void addBound(int offset) {
+        if (count + 1 >= bounds.length) {
+            bounds = Arrays.copyOf(bounds, bounds.length * 2);
+        }
+        bounds[++count] = offset;
+    }
+
+    private int length(int i) {
+        if (i < 0 || i >= count) {
+            throw new IndexOutOfBoundsException("Field " + i + " of " + count);
+        }
+        return bounds[i + 1] - 1 - bounds[i];
+    }
+
+    private int digits(int p, int n) {
+        int value = 0;
+        for (int k = 0; k < n; k++) {
+            int d = buffer.get(p + k) - '0';
+            if (d < 0 || d > 9) {
+                return -1;
+            }
+            value = value * 10 + d;
+        }
+        return value;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\f' || b == 0x0B;
+    }
+}
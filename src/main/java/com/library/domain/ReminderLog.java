@@ -0,0 +1,176 @@
+package com.library.domain;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Log of the overdue reminders already sent, kept in reminders.txt.
+ * <p>
+ * Each line records that a loan was reminded on a date
+ * ({@code loanId;date}); the latest date of a loan wins. Finding when a
+ * loan was last reminded is a single hash lookup, so the caller can
+ * remind it again only once its reminder interval has passed since then.
+ * The file is append-only and read once; entries of loans that are no
+ * longer overdue, and lines superseded by a later reminder, are dropped
+ * by {@link #retainLoans(Set)}. Lines in the older
+ * {@code loanId;tier;date} form are read by their date.
+ * </p>
+ *
+ * @author Maram
+ * @version 1.0
+ */
+public final class ReminderLog {
+
+    private final Path file;
+
+    /**
+     * Date of the latest logged reminder per loan ID, or null until the
+     * file has been read.
+     */
+    private Map<String, LocalDate> lastReminded;
+
+    /**
+     * Lines in the file, including superseded ones.
+     */
+    private int records;
+
+    /**
+     * Creates a log over a file.
+     *
+     * @param file the log file
+     */
+    ReminderLog(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * @param loanId loan ID
+     * @return date the loan was last reminded, or null if it never was
+     */
+    public synchronized LocalDate lastReminded(String loanId) {
+        return load().get(loanId);
+    }
+
+    /**
+     * Records that loans were reminded, with a single write.
+     *
+     * @param loanIds IDs of the reminded loans
+     * @param date    date of the reminder
+     */
+    public synchronized void record(Collection<String> loanIds, LocalDate date) {
+        load();
+        StringBuilder sb = new StringBuilder();
+        for (String loanId : loanIds) {
+            sb.append(loanId).append(';').append(date).append(System.lineSeparator());
+        }
+        if (sb.length() == 0) {
+            return;
+        }
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            try (FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                long end = FileStorage.committedLength(channel);
+                if (end < channel.size()) {
+                    // drop a record torn by a crash mid-write
+                    channel.truncate(end);
+                }
+                ByteBuffer bytes = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes, end + bytes.position());
+                }
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to append to reminder log", e);
+        }
+        for (String loanId : loanIds) {
+            lastReminded.put(loanId, date);
+            records++;
+        }
+    }
+
+    /**
+     * Drops the entries of every loan not in the given set, rewriting the
+     * file if that removes anything.
+     *
+     * @param loanIds IDs of the loans whose entries are kept
+     */
+    public synchronized void retainLoans(Set<String> loanIds) {
+        boolean removed = load().keySet().retainAll(loanIds);
+        if (!removed && records == lastReminded.size()) {
+            return;
+        }
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (BufferedWriter out = Files.newBufferedWriter(tmp,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (Map.Entry<String, LocalDate> e : lastReminded.entrySet()) {
+                    out.write(e.getKey() + ";" + e.getValue());
+                    out.newLine();
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            records = lastReminded.size();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to compact reminder log", e);
+        }
+    }
+
+    /**
+     * @return number of loans with a logged reminder
+     */
+    public synchronized int size() {
+        return load().size();
+    }
+
+    /**
+     * Reads the file on first use. Malformed lines and an unterminated
+     * last line (torn by a crash mid-write) are skipped.
+     */
+    private Map<String, LocalDate> load() {
+        if (lastReminded != null) {
+            return lastReminded;
+        }
+        Map<String, LocalDate> loaded = new HashMap<>();
+        int lines = 0;
+        if (Files.exists(file)) {
+            try (RecordScanner r = RecordScanner.open(file)) {
+                while (r.next()) {
+                    if (!r.terminated()) {
+                        break; // torn by a crash mid-write; never committed
+                    }
+                    if (r.fieldCount() < 2) {
+                        continue;
+                    }
+                    lines++;
+                    try {
+                        LocalDate date = r.dateField(r.fieldCount() - 1);
+                        loaded.merge(r.field(0), date, (a, b) -> a.isAfter(b) ? a : b);
+                    } catch (RuntimeException e) {
+                        // skip malformed lines
+                    }
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to load reminder log", e);
+            }
+        }
+        lastReminded = loaded;
+        records = lines;
+        return lastReminded;
+    }
+}
@@ -0,0 +1,199 @@
+package com.library.domain;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Inverted index over one text field of a set of records.
+ * <p>
+ * The field is split into lower-case terms of letters and digits, and
+ * each term keeps a posting list of the records that contain it. A
+ * query is tokenized the same way. Each query word matches any term it
+ * is a prefix of, and a record must match every query word. Results are
+ * ordered by relevance: exact word matches rank above prefix matches,
+ * then records with shorter fields rank first, then storage order.
+ * </p>
+ *
+ * <p>Records are only ever appended; call {@link #clear()} and re-add
+ * them after a reload.</p>
+ *
+ * @param <T> record type
+ * @author Maram
+ * @version 1.0
+ */
+final class TextIndex<T> {
+
+    /**
+     * Extracts the indexed field from a record.
+     */
+    private final Function<? super T, String> field;
+
+    /**
+     * Indexed records; a record's position is its document number.
+     */
+    private final List<T> docs = new ArrayList<>();
+
+    /**
+     * Posting lists by term, sorted so prefixes can be looked up as a range.
+     */
+    private final NavigableMap<String, Postings> terms = new TreeMap<>();
+
+    /**
+     * @param field extracts the text to index from a record
+     */
+    TextIndex(Function<? super T, String> field) {
+        this.field = field;
+    }
+
+    /**
+     * Removes every record from the index.
+     */
+    void clear() {
+        docs.clear();
+        terms.clear();
+    }
+
+    /**
+     * Indexes a record.
+     *
+     * @param record the record to add
+     */
+    void add(T record) {
+        int doc = docs.size();
+        docs.add(record);
+        for (String term : tokens(field.apply(record))) {
+            terms.computeIfAbsent(term, t -> new Postings()).add(doc);
+        }
+    }
+
+    /**
+     * Finds the records whose field contains every word of the query,
+     * each word matching a whole term or the start of one.
+     * A query without any words matches every record.
+     *
+     * @param query the search text
+     * @return matching records, most relevant first
+     */
+    List<T> search(String query) {
+        List<String> words = tokens(query);
+        if (words.isEmpty()) {
+            return new ArrayList<>(docs);
+        }
+
+        BitSet matches = null;
+        for (String word : words) {
+            BitSet hits = new BitSet(docs.size());
+            for (Postings postings : withPrefix(word).values()) {
+                postings.addTo(hits);
+            }
+            if (matches == null) {
+                matches = hits;
+            } else {
+                matches.and(hits);
+            }
+            if (matches.isEmpty()) {
+                return new ArrayList<>();
+            }
+        }
+
+        List<Hit<T>> hits = new ArrayList<>(matches.cardinality());
+        for (int doc = matches.nextSetBit(0); doc >= 0; doc = matches.nextSetBit(doc + 1)) {
+            T record = docs.get(doc);
+            List<String> docTerms = tokens(field.apply(record));
+            int exact = 0;
+            for (String word : words) {
+                if (docTerms.contains(word)) {
+                    exact++;
+                }
+            }
+            hits.add(new Hit<>(record, doc, exact, docTerms.size()));
+        }
+        hits.sort(Comparator.<Hit<T>>comparingInt(h -> -h.exact)
+                .thenComparingInt(h -> h.length)
+                .thenComparingInt(h -> h.doc));
+
+        List<T> result = new ArrayList<>(hits.size());
+        for (Hit<T> hit : hits) {
+            result.add(hit.record);
+        }
+        return result;
+    }
+
+    /**
+     * Splits text into lower-case terms made of letters and digits.
+     *
+     * @param text the text to split; null has no terms
+     * @return the terms in order of appearance
+     */
+    static List<String> tokens(String text) {
+        List<String> result = new ArrayList<>();
+        if (text == null) {
+            return result;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                result.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return result;
+    }
+
+    private Map<String, Postings> withPrefix(String prefix) {
+        return terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    /**
+     * Growable, ascending list of document numbers.
+     */
+    private static final class Postings {
+        private int[] docs = new int[2];
+        private int size;
+
+        void add(int doc) {
+            if (size > 0 && docs[size - 1] == doc) {
+                return; // term repeated within the same record
+            }
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            docs[size++] = doc;
+        }
+
+        void addTo(BitSet set) {
+            for (int i = 0; i < size; i++) {
+                set.set(docs[i]);
+            }
+        }
+    }
+
+    /**
+     * A matching record with its ranking data.
+     */
+    private static final class Hit<T> {
+        final T record;
+        final int doc;
+        final int exact;
+        final int length;
+
+        Hit(T record, int doc, int exact, int length) {
+            this.record = record;
+            this.doc = doc;
+            this.exact = exact;
+            this.length = length;
+        }
+    }
+}
@@ -18,7 +18,8 @@ import java.util.Scanner;
  * All operations rely on the underlying service layer:
  * {@link AuthService}, {@link UserService}, {@link BookService},
  * {@link LoanService}, {@link FineService}, {@link BorrowingService},
- * and {@link ReminderService}.
+ * and {@link ReminderService}. Admins can print the timings and counters
+ * those services record in {@link MetricsRegistry#global()}.
  * </p>
  *
  * <p><strong>Note:</strong> This class does not enforce business rules;
@@ -121,6 +122,9 @@ public class ConsoleMenu {
                     handleViewMyLoans();
                     break;
                 case "14":
+                    handleViewMetrics();
+                    break;
+                case "15":
                     System.out.println("Exiting... Goodbye!");
                     running = false;
                     break;
@@ -154,7 +158,8 @@ public class ConsoleMenu {
         System.out.println("11. Send overdue reminders");
         System.out.println("12. Unregister user (admin only)");
         System.out.println("13. View my loans (user only)");
-        System.out.println("14. Exit");
+        System.out.println("14. View metrics (admin only)");
+        System.out.println("15. Exit");
         System.out.print("Choose option: ");
     }
 
@@ -360,11 +365,11 @@ public class ConsoleMenu {
 
         switch (choice) {
             case "1":
-                System.out.print("Enter part of title: ");
+                System.out.print("Enter title words: ");
                 searchAndPrintBooks(bookService.searchByTitle(scanner.nextLine().trim()));
                 break;
             case "2":
-                System.out.print("Enter part of author name: ");
+                System.out.print("Enter author name words: ");
                 searchAndPrintBooks(bookService.searchByAuthor(scanner.nextLine().trim()));
                 break;
             case "3":
@@ -560,13 +565,15 @@ public class ConsoleMenu {
     /**
      * Sends email reminders for all overdue loans.
      * <p>
-     * This operation is restricted to admins only. It triggers the
-     * {@link ReminderService#sendOverdueReminders()} method, which identifies
-     * overdue loans and dispatches reminder emails.
+     * This operation is restricted to admins only. When an outbox is
+     * configured, reminders are queued with
+     * {@link ReminderService#queueOverdueReminders()} and delivered in the
+     * background; otherwise
+     * {@link ReminderService#dispatchOverdueReminders()} sends them concurrently.
      * </p>
      * <p>
-     * Displays the number of reminders sent or appropriate error messages
-     * if something fails.
+     * Displays the number of reminders sent, followed by any that failed,
+     * or appropriate error messages if something fails.
      * </p>
      */
 
@@ -577,18 +584,61 @@ public class ConsoleMenu {
         }
 
         System.out.println("\n=== Send Overdue Reminders ===");
+        if (reminderService.hasOutbox()) {
+            try {
+                int count = reminderService.queueOverdueReminders();
+                if (count == 0) {
+                    System.out.println("No overdue loans need a reminder. No emails were queued.");
+                } else {
+                    System.out.println("Queued " + count + " reminder email(s) for delivery.");
+                }
+            } catch (Exception e) {
+                System.out.println("Failed to queue reminders: " + e.getMessage());
+            }
+            return;
+        }
         try {
-            int count = reminderService.sendOverdueReminders();
-            if (count == 0) {
-                System.out.println("No overdue loans found. No emails were sent.");
+            List<ReminderResult> results = reminderService.dispatchOverdueReminders();
+            int count = 0;
+            for (ReminderResult result : results) {
+                if (result.isSent()) {
+                    count++;
+                }
+            }
+            if (results.isEmpty()) {
+                System.out.println("No overdue loans need a reminder. No emails were sent.");
             } else {
                 System.out.println("Successfully sent " + count + " reminder email(s).");
             }
+            for (ReminderResult result : results) {
+                if (result.getStatus() == ReminderResult.Status.FAILED) {
+                    System.out.println("Failed: " + result);
+                }
+            }
         } catch (Exception e) {
             System.out.println("Failed to send reminders: " + e.getMessage());
         }
     }
 
+    /**
+     * Prints the service and storage metrics recorded since startup.
+     * <p>
+     * This operation is restricted to admins only. Shows the latency of
+     * every timed operation (count, mean, p50, p99, p99.9 and max), then
+     * the counters and gauges, as collected by {@link MetricsRegistry}.
+     * </p>
+     */
+
+    private void handleViewMetrics() {
+        if (!authService.isAdminLoggedIn()) {
+            System.out.println("You must login as admin to view metrics.");
+            return;
+        }
+
+        System.out.println("\n=== Metrics ===");
+        System.out.print(MetricsRegistry.global().dump());
+    }
+
     /**
      * Displays all loans associated with the currently logged-in user.
      * <p>
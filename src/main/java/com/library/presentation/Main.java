@@ -2,10 +2,13 @@
 
 package com.library.presentation;
 
-import com.library.domain.FileStorage;
+import com.library.domain.*;
 import com.library.service.*;
 import io.github.cdimascio.dotenv.Dotenv;
 
+import java.nio.file.Paths;
+import java.time.Duration;
+
 /**
  * Entry point of the Library Management System application.
  * <p>
@@ -16,10 +19,11 @@ import io.github.cdimascio.dotenv.Dotenv;
  * <p>
  * The main responsibilities of this class:
  * <ul>
- *     <li>Create the FileStorage instance</li>
+ *     <li>Create the FileStorage instance and the shared repositories</li>
  *     <li>Initialize all service classes</li>
  *     <li>Load email credentials from environment variables</li>
  *     <li>Set up the reminder system</li>
+ *     <li>Register the gauges shown by the metrics view</li>
  *     <li>Launch the console-based menu interface</li>
  * </ul>
 
@@ -44,24 +48,56 @@ public class Main {
 
         FileStorage storage = new FileStorage("src/main/resources/DB");
 
-        AuthService authService     = new AuthService(storage);
-        BookService bookService     = new BookService(storage);
-        LoanService loanService     = new LoanService(storage);
-        FineService fineService     = new FineService(storage);
-        UserService userService     = new UserService(storage);
+        // Repositories are shared so every service sees the same cached records
+        BookRepository books                = new BookRepository(storage);
+        LoanRepository loans                = new LoanRepository(storage);
+        FineRepository fines                = new FineRepository(storage);
+        AccountRepository<User> users       = AccountRepository.users(storage);
+
+        AuthService authService     = new AuthService(AccountRepository.admins(storage),
+                                                      AccountRepository.librarians(storage),
+                                                      users);
+        BookService bookService     = new BookService(books);
+        LoanService loanService     = new LoanService(loans, books);
+        FineService fineService     = new FineService(fines, new FineCalculator());
 
         // Load email credentials from .env
         Dotenv dotenv = Dotenv.load();
         String email = dotenv.get("EMAIL_USERNAME");
         String appPassword = dotenv.get("EMAIL_PASSWORD");
 
-        EmailService emailService = new EmailService(email, appPassword);
+        // EMAIL_TRANSPORT=file writes mail to EMAIL_SINK instead of sending it
+        EmailService emailService;
+        if ("file".equalsIgnoreCase(dotenv.get("EMAIL_TRANSPORT", "smtp"))) {
+            emailService = new EmailService(new FileMailTransport(
+                    Paths.get(dotenv.get("EMAIL_SINK", "sent-mail.txt"))));
+        } else {
+            emailService = new EmailService(email, appPassword);
+        }
+        UserService userService   = new UserService(users, emailService);
+
+        // Reminders are queued in the outbox and delivered in the background
+        EmailOutbox outbox = storage.outbox();
+        OutboxSender outboxSender = new OutboxSender(outbox, emailService);
+        outboxSender.start(Duration.ofSeconds(30));
+
+        // Gauges are read when an admin views the metrics
+        MetricsRegistry metrics = MetricsRegistry.global();
+        metrics.gauge("outbox.pending", () -> outbox.pending().size());
+        metrics.gauge("outbox.deadLetters", () -> outbox.deadLetters().size());
+        metrics.gauge("jvm.heap.usedMb", () -> {
+            Runtime runtime = Runtime.getRuntime();
+            return (runtime.totalMemory() - runtime.freeMemory()) / (1024.0 * 1024.0);
+        });
 
         // Create reminder service
         ReminderService reminderService = new ReminderService(
                 loanService,
                 userService,
-                emailService
+                emailService,
+                outbox,
+                storage.reminderLog(),
+                ReminderService.DEFAULT_REMINDER_INTERVAL_DAYS
         );
 
         // Initialize console menu and start application
@@ -75,6 +111,9 @@ public class Main {
         );
 
         menu.run();
+
+        outboxSender.close();
+        emailService.close();
     }
 }
 
@@ -1,23 +1,35 @@
 package com.library.service;
 
+import com.library.domain.AccountRepository;
 import com.library.domain.Admin;
 import com.library.domain.FileStorage;
 import com.library.domain.Librarian;
+import com.library.domain.MetricsRegistry;
 import com.library.domain.User;
 
-import java.util.List;
-
 /**
  * Handles authentication and session management for admins, librarians, and users.
  * <p>
- * The {@code AuthService} verifies login credentials against data stored in
- * {@link FileStorage}, tracks the currently logged-in account, and provides
- * helper methods to check login state.
+ * The {@code AuthService} verifies login credentials against the cached
+ * {@link AccountRepository} for each role and issues a {@link AuthSession}
+ * from a {@link SessionStore} per login, so any number of terminals and
+ * patrons can be logged in at once, each identified by its own token
+ * ({@link #openSession}, {@link #getSession}, {@link #logout(String)}).
+ * </p>
+ *
+ * <p>
+ * The console API ({@link #login}, {@link #getCurrentUser()}, ...) works on
+ * one console session: only one account type (Admin, Librarian, or User)
+ * can be logged in on the console at a time, and logging in with one role
+ * automatically logs out any other role. The console login is not kept in
+ * the {@link SessionStore} and does not expire; it lasts until
+ * {@link #logout()} or the next console login.
  * </p>
  *
  * <p>
- * Only one account type (Admin, Librarian, or User) can be logged in at a time.
- * Logging in with one role automatically logs out any other role.
+ * Every credential check is timed as {@code auth.login} and every
+ * rejected one counted as {@code auth.login.failed} in
+ * {@link MetricsRegistry#global()}.
  * </p>
  *
  * @author Maram
@@ -25,25 +37,35 @@ import java.util.List;
  */
 public class AuthService {
 
+    private static final MetricsRegistry.Timer LOGIN_TIMER =
+            MetricsRegistry.global().timer("auth.login");
+    private static final MetricsRegistry.Counter LOGIN_FAILURES =
+            MetricsRegistry.global().counter("auth.login.failed");
+
+    /**
+     * Cached admin accounts.
+     */
+    private final AccountRepository<Admin> admins;
+
     /**
-     * Storage handler used to load account data.
+     * Cached librarian accounts.
      */
-    private final FileStorage storage;
+    private final AccountRepository<Librarian> librarians;
 
     /**
-     * Currently logged-in admin, or null if none.
+     * Cached user accounts.
      */
-    private Admin currentAdmin;
+    private final AccountRepository<User> users;
 
     /**
-     * Currently logged-in librarian, or null if none.
+     * Open sessions of all logged-in accounts.
      */
-    private Librarian currentLibrarian;
+    private final SessionStore sessions;
 
     /**
-     * Currently logged-in user, or null if none.
+     * Account logged in on the console, or null if nobody is logged in there.
      */
-    private User currentUser;
+    private volatile ConsoleLogin console;
 
     /**
      * Creates a new authentication service.
@@ -51,7 +73,120 @@ public class AuthService {
      * @param storage the storage backend containing account records
      */
     public AuthService(FileStorage storage) {
-        this.storage = storage;
+        this(AccountRepository.admins(storage),
+                AccountRepository.librarians(storage),
+                AccountRepository.users(storage));
+    }
+
+    /**
+     * Creates a new authentication service over shared account repositories.
+     *
+     * @param admins     admin accounts
+     * @param librarians librarian accounts
+     * @param users      user accounts
+     */
+    public AuthService(AccountRepository<Admin> admins,
+                       AccountRepository<Librarian> librarians,
+                       AccountRepository<User> users) {
+        this(admins, librarians, users, new SessionStore());
+    }
+
+    /**
+     * Creates a new authentication service over shared account repositories
+     * and a shared session store.
+     *
+     * @param admins     admin accounts
+     * @param librarians librarian accounts
+     * @param users      user accounts
+     * @param sessions   session store
+     */
+    public AuthService(AccountRepository<Admin> admins,
+                       AccountRepository<Librarian> librarians,
+                       AccountRepository<User> users,
+                       SessionStore sessions) {
+        this.admins = admins;
+        this.librarians = librarians;
+        this.users = users;
+        this.sessions = sessions;
+    }
+
+    // ===================== SESSIONS =====================
+
+    /**
+     * Verifies credentials for a role and opens a new session.
+     * Other sessions, including the console's, are not affected.
+     *
+     * @param role     the role to log in as
+     * @param email    account email
+     * @param password account password
+     * @return the new session, or null if the credentials are invalid
+     */
+    public AuthSession openSession(AuthSession.Role role, String email, String password) {
+        User account = authenticate(role, email, password);
+        if (account == null) {
+            return null;
+        }
+        return sessions.open(account, role);
+    }
+
+    /**
+     * @param token session token
+     * @return the session, or null if it does not exist or has expired
+     */
+    public AuthSession getSession(String token) {
+        return sessions.get(token);
+    }
+
+    /**
+     * Ends a session.
+     *
+     * @param token session token
+     */
+    public void logout(String token) {
+        sessions.close(token);
+    }
+
+    /**
+     * Checks credentials for a role, timing the check and counting failures.
+     *
+     * @return the account, or null if the credentials are invalid
+     */
+    private User authenticate(AuthSession.Role role, String email, String password) {
+        User account = LOGIN_TIMER.time(() -> findAccount(role, email, password));
+        if (account == null) {
+            LOGIN_FAILURES.increment();
+        }
+        return account;
+    }
+
+    private User findAccount(AuthSession.Role role, String email, String password) {
+        switch (role) {
+            case ADMIN:
+                return admins.authenticate(email, password);
+            case LIBRARIAN:
+                return librarians.authenticate(email, password);
+            default:
+                return users.authenticate(email, password);
+        }
+    }
+
+    /**
+     * Replaces the console login.
+     *
+     * @param account the account logging in on the console
+     * @param role    its role
+     */
+    private void openConsoleSession(User account, AuthSession.Role role) {
+        console = new ConsoleLogin(account, role);
+    }
+
+    /**
+     * @param role expected role
+     * @return the console account if it is logged in with that role, else null
+     */
+    private User consoleAccount(AuthSession.Role role) {
+        ConsoleLogin login = console;
+        return (login != null && login.role == role) ? login.account : null;
     }
 
     // ===================== ADMIN LOGIN =====================
@@ -64,32 +199,27 @@ public class AuthService {
      * @return the authenticated {@link Admin}, or null if credentials are invalid
      */
     public Admin login(String email, String password) {
-        List<Admin> admins = storage.loadAdmins();
-        for (Admin a : admins) {
-            if (a.getEmail().equalsIgnoreCase(email) &&
-                    a.getPassword().equals(password)) {
-
-                currentAdmin = a;
-                currentLibrarian = null;
-                currentUser = null;
-                return a;
-            }
+        Admin a = (Admin) authenticate(AuthSession.Role.ADMIN, email, password);
+        if (a == null) {
+            return null;
         }
-        return null;
+
+        openConsoleSession(a, AuthSession.Role.ADMIN);
+        return a;
     }
 
     /**
      * @return true if an admin is currently logged in
      */
     public boolean isAdminLoggedIn() {
-        return currentAdmin != null;
+        return consoleAccount(AuthSession.Role.ADMIN) != null;
     }
 
     /**
      * @return the currently logged-in admin, or null if none
      */
     public Admin getCurrentAdmin() {
-        return currentAdmin;
+        return (Admin) consoleAccount(AuthSession.Role.ADMIN);
     }
 
     // ===================== LIBRARIAN LOGIN =====================
@@ -102,32 +232,27 @@ public class AuthService {
      * @return the authenticated {@link Librarian}, or null if invalid credentials
      */
     public Librarian loginLibrarian(String email, String password) {
-        List<Librarian> librarians = storage.loadLibrarians();
-        for (Librarian l : librarians) {
-            if (l.getEmail().equalsIgnoreCase(email) &&
-                    l.getPassword().equals(password)) {
-
-                currentLibrarian = l;
-                currentAdmin = null;
-                currentUser = null;
-                return l;
-            }
+        Librarian l = (Librarian) authenticate(AuthSession.Role.LIBRARIAN, email, password);
+        if (l == null) {
+            return null;
         }
-        return null;
+
+        openConsoleSession(l, AuthSession.Role.LIBRARIAN);
+        return l;
     }
 
     /**
      * @return true if a librarian is logged in
      */
     public boolean isLibrarianLoggedIn() {
-        return currentLibrarian != null;
+        return consoleAccount(AuthSession.Role.LIBRARIAN) != null;
     }
 
     /**
      * @return the currently logged-in librarian, or null if none
      */
     public Librarian getCurrentLibrarian() {
-        return currentLibrarian;
+        return (Librarian) consoleAccount(AuthSession.Role.LIBRARIAN);
     }
 
     // ===================== USER LOGIN =====================
@@ -140,43 +265,49 @@ public class AuthService {
      * @return the authenticated {@link User}, or null if invalid credentials
      */
     public User loginUser(String email, String password) {
-        List<User> users = storage.loadUsers();
-        for (User u : users) {
-            if (u.getEmail().equalsIgnoreCase(email) &&
-                    u.getPassword().equals(password)) {
-
-                currentUser = u;
-                currentAdmin = null;
-                currentLibrarian = null;
-                return u;
-            }
+        User u = authenticate(AuthSession.Role.USER, email, password);
+        if (u == null) {
+            return null;
         }
-        return null;
+
+        openConsoleSession(u, AuthSession.Role.USER);
+        return u;
     }
 
     /**
      * @return true if a regular user is logged in
      */
     public boolean isUserLoggedIn() {
-        return currentUser != null;
+        return consoleAccount(AuthSession.Role.USER) != null;
     }
 
     /**
      * @return the currently logged-in user, or null if none
      */
     public User getCurrentUser() {
-        return currentUser;
+        return consoleAccount(AuthSession.Role.USER);
     }
 
     // ===================== LOGOUT =====================
 
     /**
-     * Logs out any currently logged-in admin, librarian, or user.
-     * Clears the authentication state for all roles.
+     * Logs out whoever is logged in on the console, whatever their role.
+     * Sessions opened with {@link #openSession} are not affected.
      */
     public void logout() {
-        currentAdmin = null;
-        currentLibrarian = null;
-        currentUser = null;
+        console = null;
+    }
+
+    /**
+     * The console's account and the role it logged in with, swapped as one.
+     */
+    private static final class ConsoleLogin {
+        private final User account;
+        private final AuthSession.Role role;
+
+        private ConsoleLogin(User account, AuthSession.Role role) {
+            this.account = account;
+            this.role = role;
+        }
     }
 }
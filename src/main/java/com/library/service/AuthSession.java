@@ -0,0 +1,102 @@
+package com.library.service;
+
+import com.library.domain.User;
+
+import java.time.Instant;
+
+/**
+ * An authenticated session issued by a {@link SessionStore}.
+ * <p>
+ * A session is identified by an opaque token and expires after a period
+ * of inactivity or, at the latest, a fixed time after login.
+ * </p>
+ *
+ * @author Maram
+ * @version 1.0
+ */
+public final class AuthSession {
+
+    /**
+     * The role the account logged in with.
+     */
+    public enum Role {
+        ADMIN,
+        LIBRARIAN,
+        USER
+    }
+
+    private final String token;
+    private final User account;
+    private final Role role;
+    private final long createdAt;
+    private final long absoluteExpiry;
+    private final long idleTimeout;
+
+    /**
+     * Time of the last use, in epoch milliseconds.
+     */
+    private volatile long lastAccess;
+
+    AuthSession(String token, User account, Role role, long now, long idleTimeout, long absoluteTimeout) {
+        this.token = token;
+        this.account = account;
+        this.role = role;
+        this.createdAt = now;
+        this.lastAccess = now;
+        this.idleTimeout = idleTimeout;
+        this.absoluteExpiry = now + absoluteTimeout;
+    }
+
+    /**
+     * @return the opaque session token
+     */
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * @return the logged-in account
+     */
+    public User getAccount() {
+        return account;
+    }
+
+    /**
+     * @return the role the account logged in with
+     */
+    public Role getRole() {
+        return role;
+    }
+
+    /**
+     * @return when the session was opened
+     */
+    public Instant getCreatedAt() {
+        return Instant.ofEpochMilli(createdAt);
+    }
+
+    /**
+     * @return when the session was last used
+     */
+    public Instant getLastAccess() {
+        return Instant.ofEpochMilli(lastAccess);
+    }
+
+    /**
+     * @return epoch milliseconds at which the session expires unless used again
+     */
+    long expiresAt() {
+        return Math.min(lastAccess + idleTimeout, absoluteExpiry);
+    }
+
+    /**
+     * Records a use of the session.
+     *
+     * @param now current time in epoch milliseconds
+     */
+    void touch(long now) {
+        if (now > lastAccess) {
+            lastAccess = now;
+        }
+    }
+}
@@ -1,21 +1,23 @@
 package com.library.service;
 
 import com.library.domain.Book;
+import com.library.domain.BookRepository;
 import com.library.domain.FileStorage;
+import com.library.domain.MetricsRegistry;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Provides operations for managing books in the library system.
  * <p>
- * This service interacts with {@link FileStorage} to load, save, search,
- * and add books. It ensures that ISBNs remain unique and supports
+ * This service works on the in-memory {@link BookRepository}, which
+ * writes through to {@link FileStorage}, to search and add books. It ensures that ISBNs remain unique and supports
  * multiple search mechanisms (title, author, ISBN).
  * </p>
  *
  * <p>
- * All book data is persisted in a text-based storage format.
+ * All book data is persisted in a text-based storage format. Additions
+ * and searches are timed as {@code book.*} in {@link MetricsRegistry#global()}.
  * </p>
  *
  * @author Maram
@@ -23,25 +25,44 @@ import java.util.List;
  */
 public class BookService {
 
+    private static final MetricsRegistry.Timer ADD_TIMER =
+            MetricsRegistry.global().timer("book.addBook");
+    private static final MetricsRegistry.Timer TITLE_SEARCH_TIMER =
+            MetricsRegistry.global().timer("book.searchByTitle");
+    private static final MetricsRegistry.Timer AUTHOR_SEARCH_TIMER =
+            MetricsRegistry.global().timer("book.searchByAuthor");
+    private static final MetricsRegistry.Timer ISBN_SEARCH_TIMER =
+            MetricsRegistry.global().timer("book.searchByIsbn");
+
     /**
-     * Storage handler used to load and save book data.
+     * Cached book records.
      */
-    private final FileStorage storage;
+    private final BookRepository books;
 
     /**
-     * Creates a new BookService instance.
+     * Creates a new BookService instance with its own repository.
      *
      * @param storage the storage backend used for book persistence
      */
     public BookService(FileStorage storage) {
-        this.storage = storage;
+        this(new BookRepository(storage));
+    }
+
+    /**
+     * Creates a new BookService over a shared repository.
+     *
+     * @param books the book repository
+     */
+    public BookService(BookRepository books) {
+        this.books = books;
     }
 
     /**
      * Adds a new book to the library.
      * <p>
      * ISBNs must be unique. If a book already exists with the same ISBN,
-     * the method returns {@code null}.
+     * the method returns {@code null}. ISBNs are compared ignoring hyphens,
+     * spaces and case, and an ISBN-10 matches its ISBN-13 form.
      * </p>
      *
      * @param title  the book's title
@@ -50,73 +71,57 @@ public class BookService {
      * @return the newly added {@link Book}, or {@code null} if a duplicate ISBN exists
      */
     public Book addBook(String title, String author, String isbn) {
-        List<Book> books = storage.loadBooks();
-
-        for (Book b : books) {
-            if (b.getIsbn().equalsIgnoreCase(isbn)) {
+        return ADD_TIMER.time(() -> {
+            if (books.findByIsbn(isbn) != null) {
                 return null; // Duplicate ISBN, do not add
             }
-        }
 
-        String id = "B" + (books.size() + 1);
+            String id = books.nextId();
 
-        Book newBook = new Book(id, title, author, isbn, false);
-        books.add(newBook);
+            Book newBook = new Book(id, title, author, isbn, false);
+            books.add(newBook);
 
-        storage.saveBooks(books);
-
-        return newBook;
+            return newBook;
+        });
     }
 
     /**
-     * Searches for books whose titles contain the given keyword.
+     * Searches for books by title.
+     * <p>
+     * Every word of the search text must match a word of the title, or
+     * the beginning of one, ignoring case ("jav prog" finds "Java
+     * Programming"). Titles matching whole words are listed first.
+     * </p>
      *
-     * @param titlePart a partial or full title keyword
-     * @return list of books matching the search term
+     * @param titlePart one or more title words or word prefixes
+     * @return list of books matching the search term, most relevant first
      */
     public List<Book> searchByTitle(String titlePart) {
-        List<Book> result = new ArrayList<>();
-        String keyword = titlePart.toLowerCase();
-
-        for (Book b : storage.loadBooks()) {
-            if (b.getTitle().toLowerCase().contains(keyword)) {
-                result.add(b);
-            }
-        }
-        return result;
+        return TITLE_SEARCH_TIMER.time(() -> books.searchTitles(titlePart));
     }
 
     /**
      * Searches for books based on the author's name.
+     * <p>
+     * Matching works like {@link #searchByTitle(String)}.
+     * </p>
      *
-     * @param authorPart a partial or full author name keyword
-     * @return list of books whose author names contain the keyword
+     * @param authorPart one or more name words or word prefixes
+     * @return list of books whose author names match, most relevant first
      */
     public List<Book> searchByAuthor(String authorPart) {
-        List<Book> result = new ArrayList<>();
-        String keyword = authorPart.toLowerCase();
-
-        for (Book b : storage.loadBooks()) {
-            if (b.getAuthor().toLowerCase().contains(keyword)) {
-                result.add(b);
-            }
-        }
-        return result;
+        return AUTHOR_SEARCH_TIMER.time(() -> books.searchAuthors(authorPart));
     }
 
     /**
      * Searches for a single book using its ISBN.
+     * Hyphens, spaces, case and ISBN-10/13 form are ignored.
      *
      * @param isbn the ISBN to search for
      * @return the matching {@link Book}, or {@code null} if not found
      */
     public Book searchByIsbn(String isbn) {
-        for (Book b : storage.loadBooks()) {
-            if (b.getIsbn().equalsIgnoreCase(isbn)) {
-                return b;
-            }
-        }
-        return null;
+        return ISBN_SEARCH_TIMER.time(() -> books.findByIsbn(isbn));
     }
 
     /**
@@ -125,6 +130,6 @@ public class BookService {
      * @return list of all books
      */
     public List<Book> getAllBooks() {
-        return storage.loadBooks();
+        return books.findAll();
     }
 }
@@ -1,6 +1,7 @@
 package com.library.service;
 
 import com.library.domain.Loan;
+import com.library.domain.MetricsRegistry;
 
 /**
  * Handles borrowing operations for users.
@@ -14,7 +15,14 @@ import com.library.domain.Loan;
 
  *
  * <p>
- * Supports borrowing both books and CDs.
+ * Supports borrowing both books and CDs. Checks and checkout for a user
+ * run under that user's {@link StripedLock} stripe, so concurrent
+ * requests by one user cannot both pass the eligibility checks.
+ * </p>
+ *
+ * <p>
+ * Checkouts are timed, and refusals for fines or overdue loans counted,
+ * as {@code borrowing.*} in {@link MetricsRegistry#global()}.
  * </p>
  *
  * @author Maram
@@ -22,6 +30,13 @@ import com.library.domain.Loan;
  */
 public class BorrowingService {
 
+    private static final MetricsRegistry.Timer BORROW_BOOK_TIMER =
+            MetricsRegistry.global().timer("borrowing.borrowBook");
+    private static final MetricsRegistry.Timer BORROW_CD_TIMER =
+            MetricsRegistry.global().timer("borrowing.borrowCd");
+    private static final MetricsRegistry.Counter REFUSED =
+            MetricsRegistry.global().counter("borrowing.refused");
+
     /**
      * Service responsible for handling loan creation and retrieval.
      */
@@ -32,6 +47,12 @@ public class BorrowingService {
      */
     private final FineService fineService;
 
+    /**
+     * Locks keyed by user ID, so a user's eligibility check and checkout
+     * happen as one step.
+     */
+    private final StripedLock userLocks;
+
     /**
      * Creates a new BorrowingService instance.
      *
@@ -39,8 +60,20 @@ public class BorrowingService {
      * @param fineService service for calculating fines and balances
      */
     public BorrowingService(LoanService loanService, FineService fineService) {
+        this(loanService, fineService, new StripedLock());
+    }
+
+    /**
+     * Creates a new BorrowingService with shared user locks.
+     *
+     * @param loanService service managing book/CD loans
+     * @param fineService service for calculating fines and balances
+     * @param userLocks   locks keyed by user ID
+     */
+    public BorrowingService(LoanService loanService, FineService fineService, StripedLock userLocks) {
         this.loanService = loanService;
         this.fineService = fineService;
+        this.userLocks = userLocks;
     }
 
     /**
@@ -61,21 +94,10 @@ public class BorrowingService {
      * @throws IllegalStateException if the user is not allowed to borrow
      */
     public Loan borrowBook(String userId, String bookId) {
-
-        double outstanding = fineService.getUserOutstandingBalance(userId);
-        if (outstanding > 0) {
-            throw new IllegalStateException(
-                    "User has unpaid fines (" + outstanding + "). Borrowing not allowed."
-            );
-        }
-
-        if (loanService.hasOverdueLoans(userId)) {
-            throw new IllegalStateException(
-                    "User has overdue loans. Borrowing not allowed until overdue items are returned."
-            );
-        }
-
-        return loanService.borrowBook(userId, bookId);
+        return BORROW_BOOK_TIMER.time(() -> userLocks.withLock(userId, () -> {
+            checkEligible(userId);
+            return loanService.borrowBook(userId, bookId);
+        }));
     }
 
     /**
@@ -95,21 +117,33 @@ public class BorrowingService {
      * @throws IllegalStateException if the user cannot borrow due to fines or overdue loans
      */
     public Loan borrowCd(String userId, String cdId) {
+        return BORROW_CD_TIMER.time(() -> userLocks.withLock(userId, () -> {
+            checkEligible(userId);
+            return loanService.borrowCd(userId, cdId);
+        }));
+    }
 
+    /**
+     * Checks the borrowing rules for a user. Called with the user's lock held.
+     *
+     * @param userId the ID of the borrowing user
+     * @throws IllegalStateException if the user has unpaid fines or overdue loans
+     */
+    private void checkEligible(String userId) {
         double outstanding = fineService.getUserOutstandingBalance(userId);
         if (outstanding > 0) {
+            REFUSED.increment();
             throw new IllegalStateException(
                     "User has unpaid fines (" + outstanding + "). Borrowing not allowed."
             );
         }
 
         if (loanService.hasOverdueLoans(userId)) {
+            REFUSED.increment();
             throw new IllegalStateException(
                     "User has overdue loans. Borrowing not allowed until overdue items are returned."
             );
         }
-
-        return loanService.borrowCd(userId, cdId);
     }
 
 }
@@ -1,16 +1,19 @@
 package com.library.service;
 
-import javax.mail.*;
-import javax.mail.internet.InternetAddress;
-import javax.mail.internet.MimeMessage;
-import java.util.Properties;
+import com.library.domain.EmailMessage;
+
+import javax.mail.MessagingException;
+import java.util.List;
 
 /**
- * Service responsible for sending email notifications using SMTP.
+ * Service responsible for sending email notifications.
  * <p>
- * This class uses Gmail's SMTP server with TLS encryption to send emails.
- * The username and password provided must correspond to an application
- * password (App Password), not the user's regular Gmail password.
+ * Messages are handed to a {@link MailTransport}. By default that is a
+ * {@link SmtpMailTransport}, which sends through Gmail's SMTP server with
+ * TLS encryption and reuses its connections; the username and password
+ * must correspond to an application password (App Password), not the
+ * user's regular Gmail password. Other transports let the notification
+ * code run without a mail server, e.g. for load tests.
  * </p>
  *
  * <p>
@@ -21,17 +24,12 @@ import java.util.Properties;
  * @author Maram
  * @version 1.0
  */
-public class EmailService {
-
-    /**
-     * The email address used as the sender.
-     */
-    private final String username;
+public class EmailService implements AutoCloseable {
 
     /**
-     * The app-specific password used for SMTP authentication.
+     * Transport the messages are delivered through.
      */
-    private final String password;
+    private final MailTransport transport;
 
     /**
      * Creates a new EmailService using the provided SMTP credentials.
@@ -40,12 +38,32 @@ public class EmailService {
      * @param password the app password for SMTP authentication
      */
     public EmailService(String username, String password) {
-        this.username = username;
-        this.password = password;
+        this(new SmtpMailTransport(username, password));
+    }
+
+    /**
+     * Creates a new EmailService with explicit SMTP connection pool settings.
+     *
+     * @param username        the sender email address
+     * @param password        the app password for SMTP authentication
+     * @param poolSize        maximum number of idle connections kept
+     * @param keepAliveMillis how long an idle connection may be reused
+     */
+    public EmailService(String username, String password, int poolSize, long keepAliveMillis) {
+        this(new SmtpMailTransport(username, password, poolSize, keepAliveMillis));
+    }
+
+    /**
+     * Creates a new EmailService over any transport.
+     *
+     * @param transport transport the messages are delivered through
+     */
+    public EmailService(MailTransport transport) {
+        this.transport = transport;
     }
 
     /**
-     * Sends an email message using Gmail SMTP.
+     * Sends an email message.
      *
      * @param to      recipient email address
      * @param subject email subject
@@ -54,33 +72,36 @@ public class EmailService {
      * @throws RuntimeException if the email fails to send
      */
     public void sendEmail(String to, String subject, String body) {
-
-        Properties props = new Properties();
-        props.put("mail.smtp.auth", "true");
-        props.put("mail.smtp.starttls.enable", "true");
-        props.put("mail.smtp.host", "smtp.gmail.com");
-        props.put("mail.smtp.port", "587");
-        props.put("mail.smtp.ssl.trust", "smtp.gmail.com");
-        props.put("mail.smtp.ssl.protocols", "TLSv1.2");
-
-        Session session = Session.getInstance(props, new Authenticator() {
-            @Override
-            protected PasswordAuthentication getPasswordAuthentication() {
-                return new PasswordAuthentication(username, password);
-            }
-        });
-
         try {
-            Message message = new MimeMessage(session);
-            message.setFrom(new InternetAddress(username));
-            message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(to));
-            message.setSubject(subject);
-            message.setText(body);
-
-            Transport.send(message);
+            transport.send(new EmailMessage(to, subject, body));
+        } catch (MessagingException e) {
+            throw new RuntimeException("Failed to send email", e);
+        }
+    }
 
+    /**
+     * Sends many messages, over a single connection where the transport
+     * supports it. A message that cannot be sent is skipped; the remaining
+     * messages are still sent.
+     *
+     * @param messages the messages to send
+     * @return number of messages sent
+     *
+     * @throws RuntimeException if the transport cannot send at all
+     */
+    public int sendBatch(List<EmailMessage> messages) {
+        try {
+            return transport.sendBatch(messages);
         } catch (MessagingException e) {
             throw new RuntimeException("Failed to send email", e);
         }
     }
+
+    /**
+     * Releases the transport's connections.
+     */
+    @Override
+    public void close() {
+        transport.close();
+    }
 }
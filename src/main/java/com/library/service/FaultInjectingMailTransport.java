@@ -0,0 +1,73 @@
+package com.library.service;
+
+import com.library.domain.EmailMessage;
+
+import javax.mail.MessagingException;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mail transport that makes another transport slow and unreliable, to
+ * measure and test the reminder pipeline under realistic conditions.
+ * <p>
+ * Every send first waits for the configured latency, then fails with the
+ * configured probability; otherwise the message is passed on. Failures
+ * are drawn from a seeded generator, so a run can be repeated exactly.
+ * </p>
+ *
+ * <pre>
+ * MailTransport slowSmtp = new FaultInjectingMailTransport(
+ *         new InMemoryMailTransport(), Duration.ofMillis(200), 0.02, 42);
+ * </pre>
+ *
+ * @author Maram
+ * @version 1.0
+ */
+public class FaultInjectingMailTransport implements MailTransport {
+
+    private final MailTransport delegate;
+    private final long latencyNanos;
+    private final double failureRate;
+    private final Random random;
+
+    /**
+     * Creates a transport.
+     *
+     * @param delegate    transport that receives the messages that are not failed
+     * @param latency     delay added to every send
+     * @param failureRate probability, from 0 to 1, that a send fails
+     * @param seed        seed for the failure generator
+     * @throws IllegalArgumentException if latency is negative or the rate is outside 0..1
+     */
+    public FaultInjectingMailTransport(MailTransport delegate, Duration latency, double failureRate, long seed) {
+        if (latency.isNegative() || !(failureRate >= 0 && failureRate <= 1)) {
+            throw new IllegalArgumentException("Latency must not be negative and failure rate must be in 0..1");
+        }
+        this.delegate = delegate;
+        this.latencyNanos = latency.toNanos();
+        this.failureRate = failureRate;
+        this.random = new Random(seed);
+    }
+
+    @Override
+    public void send(EmailMessage message) throws MessagingException {
+        if (latencyNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(latencyNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MessagingException("Interrupted while sending", e);
+            }
+        }
+        if (failureRate > 0 && random.nextDouble() < failureRate) {
+            throw new MessagingException("Injected failure");
+        }
+        delegate.send(message);
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
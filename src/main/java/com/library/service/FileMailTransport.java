@@ -0,0 +1,83 @@
+package com.library.service;
+
+import com.library.domain.EmailMessage;
+
+import javax.mail.MessagingException;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+
+/**
+ * Mail transport that appends every message to a text file instead of
+ * sending it, so the mail a run would have sent can be inspected.
+ * <p>
+ * Each message is written as {@code To:}, {@code Subject:} and
+ * {@code Date:} header lines, a blank line, the body and a line holding
+ * a single dot.
+ * </p>
+ *
+ * @author Maram
+ * @version 1.0
+ */
+public class FileMailTransport implements MailTransport {
+
+    private final Path file;
+
+    /**
+     * Open writer, created on the first message.
+     */
+    private BufferedWriter out;
+
+    /**
+     * Creates a transport writing to a file. Existing content is kept.
+     *
+     * @param file the file messages are appended to
+     */
+    public FileMailTransport(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public synchronized void send(EmailMessage message) throws MessagingException {
+        try {
+            if (out == null) {
+                Path parent = file.toAbsolutePath().getParent();
+                Files.createDirectories(parent);
+                out = Files.newBufferedWriter(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            out.write("To: " + message.getTo());
+            out.newLine();
+            out.write("Subject: " + message.getSubject());
+            out.newLine();
+            out.write("Date: " + Instant.now());
+            out.newLine();
+            out.newLine();
+            out.write(message.getBody());
+            out.newLine();
+            out.write(".");
+            out.newLine();
+            out.flush();
+        } catch (IOException e) {
+            throw new MessagingException("Failed to write message to " + file, e);
+        }
+    }
+
+    /**
+     * Closes the file.
+     */
+    @Override
+    public synchronized void close() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            // nothing left to flush that could be saved
+        }
+        out = null;
+    }
+}
@@ -3,9 +3,10 @@ package com.library.service;
 import com.library.domain.FileStorage;
 import com.library.domain.Fine;
 import com.library.domain.FineCalculator;
+import com.library.domain.FineRepository;
 import com.library.domain.MediaType;
+import com.library.domain.MetricsRegistry;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -22,7 +23,9 @@ import java.util.List;
 
  *
  * <p>
- * All fine data is persisted through {@link FileStorage}.
+ * Fines are served from the in-memory {@link FineRepository}, which
+ * writes through to {@link FileStorage}. Fine creation and payments are
+ * timed as {@code fine.*} in {@link MetricsRegistry#global()}.
  * </p>
  *
  * @author Maram
@@ -30,10 +33,15 @@ import java.util.List;
  */
 public class FineService {
 
+    private static final MetricsRegistry.Timer CREATE_TIMER =
+            MetricsRegistry.global().timer("fine.createFine");
+    private static final MetricsRegistry.Timer PAY_TIMER =
+            MetricsRegistry.global().timer("fine.payFine");
+
     /**
-     * Storage handler for loading and saving fine records.
+     * Cached fine records.
      */
-    private final FileStorage storage;
+    private final FineRepository fines;
 
     /**
      * Strategy-based fine calculator used for computing overdue amounts.
@@ -56,7 +64,17 @@ public class FineService {
      * @param fineCalculator strategy calculator for fines
      */
     public FineService(FileStorage storage, FineCalculator fineCalculator) {
-        this.storage = storage;
+        this(new FineRepository(storage), fineCalculator);
+    }
+
+    /**
+     * Creates a FineService over a shared repository.
+     *
+     * @param fines          fine repository
+     * @param fineCalculator strategy calculator for fines
+     */
+    public FineService(FineRepository fines, FineCalculator fineCalculator) {
+        this.fines = fines;
         this.fineCalculator = fineCalculator;
     }
 
@@ -67,32 +85,31 @@ public class FineService {
      * @return list of all fines belonging to the user
      */
     public List<Fine> getUserFines(String userId) {
-        List<Fine> all = storage.loadFines();
-        List<Fine> result = new ArrayList<>();
-        for (Fine f : all) {
-            if (f.getUserId().equals(userId)) {
-                result.add(f);
-            }
-        }
+        List<Fine> result = fines.findByUser(userId);
+        result.removeIf(f -> !f.getUserId().equals(userId));
         return result;
     }
 
     /**
-     * Calculates the total outstanding (unpaid) fine balance for a user.
+     * Returns the total outstanding (unpaid) fine balance for a user.
+     * The balance is kept up to date as fines are created and paid, so
+     * this does not scan the fines.
      *
      * @param userId user ID
      * @return total unpaid amount
      */
     public double getUserOutstandingBalance(String userId) {
-        double total = 0.0;
-
-        for (Fine f : storage.loadFines()) {
-            if (f.getUserId().trim().equals(userId.trim()) && !f.isPaid()) {
-                total += f.getAmount();
-            }
-        }
+        return fines.outstandingBalance(userId);
+    }
 
-        return total;
+    /**
+     * Recomputes every user's balance from the stored fines, correcting
+     * the running ledger if it has drifted.
+     *
+     * @return number of users whose balance had to be corrected
+     */
+    public int reconcileBalances() {
+        return fines.reconcile();
     }
 
     /**
@@ -103,13 +120,13 @@ public class FineService {
      * @return the created {@link Fine}
      */
     public Fine createFine(String userId, double amount) {
-        List<Fine> fines = storage.loadFines();
-        String id = "F" + (fines.size() + 1);
+        return CREATE_TIMER.time(() -> {
+            String id = fines.nextId();
 
-        Fine fine = new Fine(id, userId, amount, false);
-        fines.add(fine);
-        storage.saveFines(fines);
-        return fine;
+            Fine fine = new Fine(id, userId, amount, false);
+            fines.add(fine);
+            return fine;
+        });
     }
 
     /**
@@ -141,35 +158,7 @@ public class FineService {
      * @return new outstanding balance after the payment
      */
     public double payFine(String userId, double amountToPay) {
-        if (amountToPay <= 0) {
-            return getUserOutstandingBalance(userId);
-        }
-
-        List<Fine> fines = storage.loadFines();
-        double remainingToPay = amountToPay;
-
-        for (Fine fine : fines) {
-            if (!fine.getUserId().equals(userId) || fine.isPaid()) {
-                continue;
-            }
-
-            if (remainingToPay <= 0) break;
-
-            double fineAmount = fine.getAmount();
-
-            if (remainingToPay >= fineAmount) {
-                remainingToPay -= fineAmount;
-                fine.setAmount(0);
-                fine.setPaid(true);
-            } else {
-                fine.setAmount(fineAmount - remainingToPay);
-                remainingToPay = 0;
-            }
-        }
-
-        storage.saveFines(fines);
-
-        return getUserOutstandingBalance(userId);
+        return PAY_TIMER.time(() -> fines.pay(userId, amountToPay));
     }
 
     /**
@@ -0,0 +1,52 @@
+package com.library.service;
+
+import com.library.domain.EmailMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Mail transport that keeps every message in memory instead of sending it.
+ * <p>
+ * Safe for concurrent senders. Intended for tests and offline load runs.
+ * </p>
+ *
+ * @author Maram
+ * @version 1.0
+ */
+public class InMemoryMailTransport implements MailTransport {
+
+    private final Queue<EmailMessage> messages = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public void send(EmailMessage message) {
+        messages.add(message);
+        count.incrementAndGet();
+    }
+
+    /**
+     * @return the messages sent so far, in the order they arrived
+     */
+    public List<EmailMessage> messages() {
+        return new ArrayList<>(messages);
+    }
+
+    /**
+     * @return number of messages sent so far
+     */
+    public int count() {
+        return count.get();
+    }
+
+    /**
+     * Forgets every recorded message.
+     */
+    public void clear() {
+        messages.clear();
+        count.set(0);
+    }
+}
@@ -1,20 +1,26 @@
 package com.library.service;
 
 import com.library.domain.Book;
+import com.library.domain.BookRepository;
 import com.library.domain.FileStorage;
 import com.library.domain.Loan;
+import com.library.domain.LoanRepository;
 import com.library.domain.MediaType;
+import com.library.domain.MetricsRegistry;
 
 import java.time.LocalDate;
-import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Service responsible for managing the borrowing, returning, and
  * tracking of book and CD loans in the library system.
  * <p>
- * This service interacts with {@link FileStorage} to persist loan data
- * and ensures borrowing rules such as:
+ * This service works on the in-memory {@link LoanRepository} and
+ * {@link BookRepository}, which write through to {@link FileStorage}.
+ * Each borrow or return is committed by a single durable record in the
+ * loan journal, which also carries the book's new availability, so a
+ * checkout can never be half-applied. The service enforces borrowing
+ * rules such as:
  * <ul>
  *     <li>Items cannot be borrowed if already checked out</li>
  *     <li>Due dates depend on media type (Books = 28 days, CDs = 7 days)</li>
@@ -27,23 +33,82 @@ import java.util.List;
  * Supports both BOOK and CD loans using {@link MediaType}.
  * </p>
  *
+ * <p>
+ * The service is thread-safe: checkouts and returns lock the item ID on
+ * a {@link StripedLock}, so the availability check and the loan it
+ * records are one step and two users can never both borrow the same
+ * book. The repositories still write one change at a time, so
+ * checkouts of different items serialize on the loan journal.
+ * </p>
+ *
+ * <p>
+ * Checkouts, returns and loan queries are timed as {@code loan.*} in
+ * {@link MetricsRegistry#global()}.
+ * </p>
+ *
  * @author Maram
  * @version 1.0
  */
 public class LoanService {
 
+    private static final MetricsRegistry.Timer BORROW_BOOK_TIMER =
+            MetricsRegistry.global().timer("loan.borrowBook");
+    private static final MetricsRegistry.Timer BORROW_CD_TIMER =
+            MetricsRegistry.global().timer("loan.borrowCd");
+    private static final MetricsRegistry.Timer RETURN_TIMER =
+            MetricsRegistry.global().timer("loan.returnBook");
+    private static final MetricsRegistry.Timer USER_LOANS_TIMER =
+            MetricsRegistry.global().timer("loan.getLoansForUser");
+    private static final MetricsRegistry.Timer OVERDUE_TIMER =
+            MetricsRegistry.global().timer("loan.getOverdueLoans");
+
     /**
-     * Storage backend used to load and save books and loans.
+     * Cached loan records.
      */
-    private final FileStorage storage;
+    private final LoanRepository loans;
 
     /**
-     * Creates a LoanService instance.
+     * Cached book records, used to track availability.
+     */
+    private final BookRepository books;
+
+    /**
+     * Locks keyed by item ID; make the check and the update of one item
+     * atomic across checkouts and returns.
+     */
+    private final StripedLock itemLocks;
+
+    /**
+     * Creates a LoanService instance with its own repositories.
      *
      * @param storage the persistent file-based storage system
      */
     public LoanService(FileStorage storage) {
-        this.storage = storage;
+        this(new LoanRepository(storage), new BookRepository(storage));
+    }
+
+    /**
+     * Creates a LoanService over shared repositories.
+     *
+     * @param loans loan repository
+     * @param books book repository
+     */
+    public LoanService(LoanRepository loans, BookRepository books) {
+        this(loans, books, new StripedLock());
+    }
+
+    /**
+     * Creates a LoanService over shared repositories and item locks.
+     * Services sharing repositories must share the locks as well.
+     *
+     * @param loans     loan repository
+     * @param books     book repository
+     * @param itemLocks locks keyed by book or CD ID
+     */
+    public LoanService(LoanRepository loans, BookRepository books, StripedLock itemLocks) {
+        this.loans = loans;
+        this.books = books;
+        this.itemLocks = itemLocks;
     }
 
     /**
@@ -53,9 +118,7 @@ public class LoanService {
      * @return list of the user's loans
      */
     public List<Loan> getLoansForUser(String userId) {
-        return storage.loadLoans().stream()
-                .filter(l -> l.getUserId().equals(userId))
-                .collect(java.util.stream.Collectors.toList());
+        return USER_LOANS_TIMER.time(() -> loans.findByUser(userId));
     }
 
     /**
@@ -80,49 +143,35 @@ public class LoanService {
      * @throws IllegalStateException    if the book is already borrowed
      */
     public Loan borrowBook(String userId, String bookId) {
+        return BORROW_BOOK_TIMER.time(() -> itemLocks.withLock(bookId, () -> {
 
-        List<Book> books = storage.loadBooks();
+            Book target = books.findById(bookId);
 
-        Book target = null;
-        for (Book b : books) {
-            if (b.getId().equals(bookId)) {
-                target = b;
-                break;
+            if (target == null) {
+                throw new IllegalArgumentException("Book with id " + bookId + " not found");
             }
-        }
-
-        if (target == null) {
-            throw new IllegalArgumentException("Book with id " + bookId + " not found");
-        }
 
-        if (target.isBorrowed()) {
-            throw new IllegalStateException("Book is already borrowed");
-        }
-
-        target.setBorrowed(true);
-        storage.saveBooks(books);
-
-        List<Loan> loans = storage.loadLoans();
-        String loanId = "L" + (loans.size() + 1);
-
-        LocalDate borrowDate = LocalDate.now();
-        LocalDate dueDate = borrowDate.plusDays(28);
-
-        Loan loan = new Loan(
-                loanId,
-                userId,
-                bookId,
-                borrowDate,
-                dueDate,
-                null,
-                MediaType.BOOK
-
-        );
-
-        loans.add(loan);
-        storage.saveLoans(loans);
+            if (target.isBorrowed()) {
+                throw new IllegalStateException("Book is already borrowed");
+            }
 
-        return loan;
+            LocalDate borrowDate = LocalDate.now();
+            LocalDate dueDate = borrowDate.plusDays(28);
+
+            // One journal record commits both the loan and the book's state
+            Loan loan = loans.addNext(loanId -> new Loan(
+                    loanId,
+                    userId,
+                    bookId,
+                    borrowDate,
+                    dueDate,
+                    null,
+                    MediaType.BOOK
+            ));
+            books.recordLoanChange(bookId, true);
+
+            return loan;
+        }));
     }
 
     /**
@@ -139,53 +188,53 @@ public class LoanService {
      * @throws IllegalArgumentException if the loan does not exist
      */
     public void returnBook(String loanId) {
-        List<Loan> loans = storage.loadLoans();
-        Loan targetLoan = null;
+        RETURN_TIMER.time(() -> {
+            Loan found = loans.findById(loanId);
 
-        for (Loan loan : loans) {
-            if (loan.getId().equals(loanId)) {
-                targetLoan = loan;
-                break;
+            if (found == null) {
+                throw new IllegalArgumentException("Loan with id " + loanId + " not found");
             }
-        }
 
-        if (targetLoan == null) {
-            throw new IllegalArgumentException("Loan with id " + loanId + " not found");
-        }
+            return itemLocks.withLock(found.getBookId(), () -> {
+                // Re-read under the lock: a concurrent return may have won
+                Loan targetLoan = loans.findById(loanId);
+                if (targetLoan == null || targetLoan.isReturned()) {
+                    return null; // Already returned
+                }
 
-        if (targetLoan.isReturned()) {
-            return; // Already returned
-        }
+                loans.markReturned(targetLoan, LocalDate.now());
 
-        targetLoan.markReturned(LocalDate.now());
-        storage.saveLoans(loans);
-
-        List<Book> books = storage.loadBooks();
-        for (Book book : books) {
-            if (book.getId().equals(targetLoan.getBookId())) {
-                book.setBorrowed(false);
-                break;
-            }
-        }
-        storage.saveBooks(books);
+                books.recordLoanChange(targetLoan.getMediaType() == MediaType.BOOK
+                        ? targetLoan.getBookId() : null, false);
+                return null;
+            });
+        });
     }
 
     /**
-     * Returns a list of all overdue loans.
+     * Returns a list of all overdue loans, the longest overdue first.
      *
      * @return list of overdue loans
      */
     public List<Loan> getOverdueLoans() {
-        LocalDate today = LocalDate.now();
-        List<Loan> loans = storage.loadLoans();
-        List<Loan> overdue = new ArrayList<>();
+        return OVERDUE_TIMER.time(() -> loans.findActiveDueBefore(LocalDate.now()));
+    }
 
-        for (Loan loan : loans) {
-            if (loan.isOverdue(today)) {
-                overdue.add(loan);
-            }
+    /**
+     * Returns the active loans that are not yet overdue but fall due
+     * within the given number of days (today included).
+     *
+     * @param days number of days to look ahead
+     * @return loans due soon, earliest due first
+     *
+     * @throws IllegalArgumentException if days is negative
+     */
+    public List<Loan> getLoansDueWithin(int days) {
+        if (days < 0) {
+            throw new IllegalArgumentException("Days must not be negative");
         }
-        return overdue;
+        LocalDate today = LocalDate.now();
+        return loans.findActiveDueBetween(today, today.plusDays(days));
     }
 
     /**
@@ -194,7 +243,7 @@ public class LoanService {
      * @return list of every stored loan
      */
     public List<Loan> getAllLoans() {
-        return storage.loadLoans();
+        return loans.findAll();
     }
 
     /**
@@ -205,24 +254,7 @@ public class LoanService {
      */
     public boolean hasOverdueLoans(String userId) {
         LocalDate today = LocalDate.now();
-        List<Loan> loans = storage.loadLoans();
-
-        for (Loan loan : loans) {
-
-            if (!loan.getUserId().equals(userId)) {
-                continue;
-            }
-
-            if (loan.getReturnDate() != null) {
-                continue;
-            }
-
-            if (loan.getDueDate().isBefore(today)) {
-                return true;
-            }
-        }
-
-        return false;
+        return loans.anyActiveMatch(userId, loan -> loan.getDueDate().isBefore(today));
     }
 
     /**
@@ -232,19 +264,7 @@ public class LoanService {
      * @return true if the user currently holds items
      */
     public boolean hasActiveLoans(String userId) {
-        List<Loan> loans = storage.loadLoans();
-
-        for (Loan loan : loans) {
-            if (!loan.getUserId().equals(userId)) {
-                continue;
-            }
-
-            if (!loan.isReturned()) {
-                return true;
-            }
-        }
-
-        return false;
+        return loans.anyActiveMatch(userId, loan -> true);
     }
 
     /**
@@ -260,26 +280,23 @@ public class LoanService {
      * @return the created CD {@link Loan}
      */
     public Loan borrowCd(String userId, String cdId) {
-
-        List<Loan> loans = storage.loadLoans();
-        String loanId = "L" + (loans.size() + 1);
-
-        LocalDate borrowDate = LocalDate.now();
-        LocalDate dueDate = borrowDate.plusDays(7);
-
-        Loan loan = new Loan(
-                loanId,
-                userId,
-                cdId,
-                borrowDate,
-                dueDate,
-                null,
-                MediaType.CD
-        );
-
-        loans.add(loan);
-        storage.saveLoans(loans);
-
-        return loan;
+        return BORROW_CD_TIMER.time(() -> itemLocks.withLock(cdId, () -> {
+
+            LocalDate borrowDate = LocalDate.now();
+            LocalDate dueDate = borrowDate.plusDays(7);
+
+            Loan loan = loans.addNext(loanId -> new Loan(
+                    loanId,
+                    userId,
+                    cdId,
+                    borrowDate,
+                    dueDate,
+                    null,
+                    MediaType.CD
+            ));
+            books.recordLoanChange(null, false);
+
+            return loan;
+        }));
     }
 }
@@ -0,0 +1,57 @@
+package com.library.service;
+
+import com.library.domain.EmailMessage;
+
+import javax.mail.MessagingException;
+import java.util.List;
+
+/**
+ * Delivers email messages on behalf of {@link EmailService}.
+ * <p>
+ * {@link SmtpMailTransport} sends through the real mail server. The
+ * stand-ins {@link InMemoryMailTransport} and {@link FileMailTransport}
+ * only record the messages, and {@link FaultInjectingMailTransport} adds
+ * latency and failures to any transport, so the reminder pipeline can be
+ * run and measured offline.
+ * </p>
+ *
+ * @author Maram
+ * @version 1.0
+ */
+public interface MailTransport extends AutoCloseable {
+
+    /**
+     * Sends one message.
+     *
+     * @param message the message
+     * @throws MessagingException if the message could not be sent
+     */
+    void send(EmailMessage message) throws MessagingException;
+
+    /**
+     * Sends many messages. Messages that cannot be sent are skipped.
+     *
+     * @param messages the messages to send
+     * @return number of messages sent
+     * @throws MessagingException if the transport cannot send at all
+     */
+    default int sendBatch(List<EmailMessage> messages) throws MessagingException {
+        int sent = 0;
+        for (EmailMessage message : messages) {
+            try {
+                send(message);
+                sent++;
+            } catch (MessagingException e) {
+                // skipped; the rest are still sent
+            }
+        }
+        return sent;
+    }
+
+    /**
+     * Releases any connections or files held by the transport.
+     */
+    @Override
+    default void close() {
+    }
+}
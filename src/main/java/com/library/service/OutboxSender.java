@@ -0,0 +1,176 @@
+package com.library.service;
+
+import com.library.domain.EmailMessage;
+import com.library.domain.EmailOutbox;
+import com.library.domain.OutboxEntry;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivers the emails queued in an {@link EmailOutbox}.
+ * <p>
+ * Each call to {@link #drain()} sends every message that is due. A failed
+ * message is retried later with exponential backoff (the base delay,
+ * doubled after every failure, up to a maximum); after the configured
+ * number of attempts it is dead-lettered and no longer tried.
+ * {@link #start(Duration)} drains the outbox periodically on a background
+ * thread, so code that queues messages never waits for the mail server.
+ * </p>
+ *
+ * @author Maram
+ * @version 1.0
+ */
+public class OutboxSender implements AutoCloseable {
+
+    /**
+     * Attempts made before a message is dead-lettered, by default.
+     */
+    public static final int DEFAULT_MAX_ATTEMPTS = 6;
+
+    /**
+     * Delay before the first retry, by default.
+     */
+    public static final Duration DEFAULT_BASE_BACKOFF = Duration.ofSeconds(30);
+
+    /**
+     * Longest delay between retries, by default.
+     */
+    public static final Duration DEFAULT_MAX_BACKOFF = Duration.ofHours(1);
+
+    private final EmailOutbox outbox;
+    private final EmailService emailService;
+    private final int maxAttempts;
+    private final long baseBackoff;
+    private final long maxBackoff;
+    private final Clock clock;
+
+    /**
+     * Background thread, while started.
+     */
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Creates a sender with the default retry policy.
+     *
+     * @param outbox       the outbox to drain
+     * @param emailService email sending service
+     */
+    public OutboxSender(EmailOutbox outbox, EmailService emailService) {
+        this(outbox, emailService, DEFAULT_MAX_ATTEMPTS, DEFAULT_BASE_BACKOFF, DEFAULT_MAX_BACKOFF,
+                Clock.systemUTC());
+    }
+
+    /**
+     * Creates a sender.
+     *
+     * @param outbox       the outbox to drain
+     * @param emailService email sending service
+     * @param maxAttempts  attempts made before a message is dead-lettered
+     * @param baseBackoff  delay before the first retry
+     * @param maxBackoff   longest delay between retries
+     * @param clock        time source
+     * @throws IllegalArgumentException if maxAttempts or a delay is not positive
+     */
+    public OutboxSender(EmailOutbox outbox, EmailService emailService, int maxAttempts,
+                        Duration baseBackoff, Duration maxBackoff, Clock clock) {
+        if (maxAttempts <= 0 || baseBackoff.isNegative() || baseBackoff.isZero()
+                || maxBackoff.compareTo(baseBackoff) < 0) {
+            throw new IllegalArgumentException("Attempts and backoff must be positive");
+        }
+        this.outbox = outbox;
+        this.emailService = emailService;
+        this.maxAttempts = maxAttempts;
+        this.baseBackoff = baseBackoff.toMillis();
+        this.maxBackoff = maxBackoff.toMillis();
+        this.clock = clock;
+    }
+
+    /**
+     * Sends every queued message whose next attempt is due.
+     *
+     * @return number of messages delivered
+     */
+    public synchronized int drain() {
+        int sent = 0;
+        for (OutboxEntry entry : outbox.due(clock.millis())) {
+            EmailMessage message = entry.getMessage();
+            try {
+                emailService.sendEmail(message.getTo(), message.getSubject(), message.getBody());
+            } catch (RuntimeException e) {
+                Throwable cause = (e.getCause() != null) ? e.getCause() : e;
+                String error = String.valueOf(cause.getMessage());
+                long now = clock.millis();
+                if (entry.getAttempts() + 1 >= maxAttempts) {
+                    outbox.markDead(entry.getId(), now, error);
+                } else {
+                    outbox.markFailed(entry.getId(), now + backoff(entry.getAttempts() + 1), error);
+                }
+                continue;
+            }
+            outbox.markSent(entry.getId(), clock.millis());
+            sent++;
+        }
+        return sent;
+    }
+
+    /**
+     * @param failures failed attempts so far (at least 1)
+     * @return delay before the next attempt, in milliseconds
+     */
+    long backoff(int failures) {
+        int shift = Math.max(failures - 1, 0);
+        if (shift >= Long.numberOfLeadingZeros(baseBackoff) - 1) {
+            return maxBackoff; // doubling that often would overflow
+        }
+        return Math.min(maxBackoff, baseBackoff << shift);
+    }
+
+    /**
+     * Starts draining the outbox periodically on a background thread.
+     * Does nothing if already started.
+     *
+     * @param interval time between drains
+     */
+    public synchronized void start(Duration interval) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "outbox-sender");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                drain();
+            } catch (RuntimeException e) {
+                // outbox unreadable for now; try again on the next run
+            }
+        }, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the background thread, waiting briefly for a running drain.
+     */
+    @Override
+    public void close() {
+        ScheduledExecutorService running;
+        synchronized (this) {
+            running = scheduler;
+            scheduler = null;
+        }
+        if (running == null) {
+            return;
+        }
+        running.shutdown();
+        try {
+            running.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.library.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * A token bucket that limits how often an operation may run.
+ * <p>
+ * Permits are added at a fixed rate up to a burst capacity. A caller that
+ * finds the bucket empty reserves the next permit anyway and sleeps until
+ * it is due, so callers are served in the order they arrive and the long
+ * run rate never exceeds the configured one, whatever the number of
+ * threads.
+ * </p>
+ *
+ * @author Maram
+ * @version 1.0
+ */
+public final class RateLimiter {
+
+    private final double permitsPerNano;
+    private final double burst;
+    private final LongSupplier nanoClock;
+
+    /**
+     * Available permits; negative while callers are waiting for permits
+     * they have already reserved.
+     */
+    private double permits;
+    private long refilledAt;
+
+    /**
+     * Creates a limiter that allows a burst of up to one second's permits.
+     *
+     * @param permitsPerSecond sustained rate
+     * @throws IllegalArgumentException if the rate is not positive
+     */
+    public RateLimiter(double permitsPerSecond) {
+        this(permitsPerSecond, Math.max(1, (int) permitsPerSecond), System::nanoTime);
+    }
+
+    /**
+     * Creates a limiter.
+     *
+     * @param permitsPerSecond sustained rate
+     * @param burst            permits that may be taken at once after a quiet period
+     * @param nanoClock        monotonic time source in nanoseconds
+     * @throws IllegalArgumentException if the rate or burst is not positive
+     */
+    RateLimiter(double permitsPerSecond, int burst, LongSupplier nanoClock) {
+        if (!(permitsPerSecond > 0) || burst <= 0) {
+            throw new IllegalArgumentException("Rate and burst must be positive");
+        }
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = burst;
+        this.nanoClock = nanoClock;
+        this.permits = burst;
+        this.refilledAt = nanoClock.getAsLong();
+    }
+
+    /**
+     * Takes one permit, waiting until it is available.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void acquire() throws InterruptedException {
+        long wait = reserve();
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    /**
+     * Reserves one permit.
+     *
+     * @return nanoseconds until the reserved permit is due (0 if now)
+     */
+    synchronized long reserve() {
+        long now = nanoClock.getAsLong();
+        permits = Math.min(burst, permits + (now - refilledAt) * permitsPerNano);
+        refilledAt = now;
+        permits -= 1;
+        return permits >= 0 ? 0 : (long) Math.ceil(-permits / permitsPerNano);
+    }
+}
@@ -0,0 +1,87 @@
+package com.library.service;
+
+import java.util.List;
+
+/**
+ * Outcome of one overdue reminder sent by {@link ReminderService}: a
+ * digest covering all of one user's overdue loans.
+ *
+ * @author Maram
+ * @version 1.0
+ */
+public final class ReminderResult {
+
+    /**
+     * What happened to the reminder.
+     */
+    public enum Status {
+        /** The email was handed to the mail server. */
+        SENT,
+        /** Sending failed; see {@link #getError()}. */
+        FAILED,
+        /** No email was attempted because the borrower is unknown. */
+        SKIPPED
+    }
+
+    private final List<String> loanIds;
+    private final String userId;
+    private final String recipient;
+    private final Status status;
+    private final String error;
+
+    ReminderResult(List<String> loanIds, String userId, String recipient, Status status, String error) {
+        this.loanIds = List.copyOf(loanIds);
+        this.userId = userId;
+        this.recipient = recipient;
+        this.status = status;
+        this.error = error;
+    }
+
+    /**
+     * @return IDs of the overdue loans listed in the reminder
+     */
+    public List<String> getLoanIds() {
+        return loanIds;
+    }
+
+    /**
+     * @return ID of the borrower
+     */
+    public String getUserId() {
+        return userId;
+    }
+
+    /**
+     * @return email address the reminder went to, or null if skipped
+     */
+    public String getRecipient() {
+        return recipient;
+    }
+
+    /**
+     * @return outcome of the reminder
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return reason for a failure, or null
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * @return true if the reminder was sent
+     */
+    public boolean isSent() {
+        return status == Status.SENT;
+    }
+
+    @Override
+    public String toString() {
+        return loanIds + " -> " + (recipient == null ? userId : recipient) + ": " + status
+                + (error == null ? "" : " (" + error + ")");
+    }
+}
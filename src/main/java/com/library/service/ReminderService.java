@@ -1,9 +1,28 @@
 package com.library.service;
 
+import com.library.domain.EmailMessage;
+import com.library.domain.EmailOutbox;
 import com.library.domain.Loan;
+import com.library.domain.MediaType;
+import com.library.domain.MetricsRegistry;
+import com.library.domain.ReminderLog;
 import com.library.domain.User;
 
+import java.lang.reflect.Method;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
 /**
  * Service responsible for sending reminder emails to users
@@ -18,7 +37,35 @@ import java.util.List;
 
  *
  * <p>
- * Each overdue loan generates exactly one email notice.
+ * Each user with overdue loans receives exactly one email notice: a
+ * digest listing all of their overdue items. Each recipient is looked up
+ * once, however many items they have overdue.
+ * </p>
+ *
+ * <p>
+ * {@link #sendOverdueReminders()} sends the notices one after another.
+ * {@link #dispatchOverdueReminders(int, double)} sends them concurrently,
+ * with a bound on the number of sends in flight and a global send rate,
+ * and reports the outcome of every notice.
+ * {@link #queueOverdueReminders()} only writes the notices to a durable
+ * {@link EmailOutbox}, from which an {@link OutboxSender} delivers them
+ * with retries, so a failing mail server neither aborts nor repeats the
+ * run.
+ * </p>
+ *
+ * <p>
+ * With a {@link ReminderLog}, each loan is reminded at most once per
+ * reminder interval: a loan is due for a reminder if it was never
+ * reminded or was last reminded at least {@code intervalDays} days ago,
+ * and a user is only mailed if one of their loans is due. The digest
+ * still lists all of the user's overdue items, but only the due loans
+ * are logged as reminded. Running the reminders again within the
+ * interval sends nothing.
+ * </p>
+ *
+ * <p>
+ * Runs and individual emails are timed, and reminders sent, failed and
+ * queued counted, as {@code reminder.*} in {@link MetricsRegistry#global()}.
  * </p>
  *
  * @author Maram
@@ -26,6 +73,38 @@ import java.util.List;
  */
 public class ReminderService {
 
+    private static final MetricsRegistry.Timer RUN_TIMER =
+            MetricsRegistry.global().timer("reminder.sendOverdueReminders");
+    private static final MetricsRegistry.Timer QUEUE_TIMER =
+            MetricsRegistry.global().timer("reminder.queueOverdueReminders");
+    private static final MetricsRegistry.Timer DISPATCH_TIMER =
+            MetricsRegistry.global().timer("reminder.dispatchOverdueReminders");
+    private static final MetricsRegistry.Timer EMAIL_TIMER =
+            MetricsRegistry.global().timer("reminder.email");
+    private static final MetricsRegistry.Counter SENT =
+            MetricsRegistry.global().counter("reminder.sent");
+    private static final MetricsRegistry.Counter FAILED =
+            MetricsRegistry.global().counter("reminder.failed");
+    private static final MetricsRegistry.Counter QUEUED =
+            MetricsRegistry.global().counter("reminder.queued");
+
+    /**
+     * Concurrent sends used by {@link #dispatchOverdueReminders()}.
+     */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 8;
+
+    /**
+     * Send rate used by {@link #dispatchOverdueReminders()}, in emails per second.
+     */
+    public static final double DEFAULT_SENDS_PER_SECOND = 10;
+
+    /**
+     * Days between two reminders for the same loan, by default.
+     */
+    public static final int DEFAULT_REMINDER_INTERVAL_DAYS = 7;
+
+    private static final String SUBJECT = "Library Overdue Book Reminder";
+
     /**
      * Service used to retrieve overdue loans.
      */
@@ -41,6 +120,26 @@ public class ReminderService {
      */
     private final EmailService emailService;
 
+    /**
+     * Outbox reminders are queued in (nullable).
+     */
+    private final EmailOutbox outbox;
+
+    /**
+     * Log of reminders already sent (nullable).
+     */
+    private final ReminderLog reminderLog;
+
+    /**
+     * Days between two reminders for the same loan.
+     */
+    private final int intervalDays;
+
+    /**
+     * Source of today's date.
+     */
+    private Clock clock = Clock.systemDefaultZone();
+
     /**
      * Creates a new ReminderService using the given dependencies.
      *
@@ -49,9 +148,63 @@ public class ReminderService {
      * @param emailService email sending service
      */
     public ReminderService(LoanService loanService, UserService userService, EmailService emailService) {
+        this(loanService, userService, emailService, null);
+    }
+
+    /**
+     * Creates a new ReminderService that can queue reminders in an outbox.
+     *
+     * @param loanService  loan management service
+     * @param userService  user management service
+     * @param emailService email sending service
+     * @param outbox       outbox for {@link #queueOverdueReminders()} (optional)
+     */
+    public ReminderService(LoanService loanService, UserService userService,
+                           EmailService emailService, EmailOutbox outbox) {
+        this(loanService, userService, emailService, outbox, null, DEFAULT_REMINDER_INTERVAL_DAYS);
+    }
+
+    /**
+     * Creates a new ReminderService that reminds each loan at most once
+     * per interval.
+     *
+     * @param loanService  loan management service
+     * @param userService  user management service
+     * @param emailService email sending service
+     * @param outbox       outbox for {@link #queueOverdueReminders()} (optional)
+     * @param reminderLog  log of reminders already sent (optional)
+     * @param intervalDays days between two reminders for the same loan
+     *
+     * @throws IllegalArgumentException if intervalDays is not positive
+     */
+    public ReminderService(LoanService loanService, UserService userService,
+                           EmailService emailService, EmailOutbox outbox,
+                           ReminderLog reminderLog, int intervalDays) {
+        if (intervalDays <= 0) {
+            throw new IllegalArgumentException("Reminder interval must be positive");
+        }
         this.loanService = loanService;
         this.userService = userService;
         this.emailService = emailService;
+        this.outbox = outbox;
+        this.reminderLog = reminderLog;
+        this.intervalDays = intervalDays;
+    }
+
+    /**
+     * Replaces the clock that supplies today's date, for tests.
+     *
+     * @param clock the clock
+     */
+    void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * @return true if reminders can be queued in an outbox
+     */
+    public boolean hasOutbox() {
+        return outbox != null;
     }
 
     /**
@@ -59,9 +212,10 @@ public class ReminderService {
      * <p>
      * Steps:
      * <ol>
-     *     <li>Fetch all overdue loans</li>
-     *     <li>Find the user for each overdue loan</li>
-     *     <li>Send a personalized reminder email</li>
+     *     <li>Fetch all overdue loans and group them by user, leaving out
+     *         users already reminded in the current interval</li>
+     *     <li>Find each user once</li>
+     *     <li>Send a personalized digest of the user's overdue items</li>
      *     <li>Count how many reminders were sent</li>
      * </ol>
 
@@ -70,27 +224,276 @@ public class ReminderService {
      */
     public int sendOverdueReminders() {
 
-        List<Loan> overdue = loanService.getOverdueLoans();
+        long start = System.nanoTime();
+        LocalDate today = LocalDate.now(clock);
         int count = 0;
 
-        for (Loan loan : overdue) {
+        for (List<Loan> loans : overdueByUser(today).values()) {
 
-            User user = userService.findById(loan.getUserId());
+            User user = userService.findById(loans.get(0).getUserId());
             if (user == null) continue;
 
-            String subject = "Library Overdue Book Reminder";
-            String body =
-                    "Dear " + user.getName() + ",\n\n" +
-                            "This is a reminder that your loan (Book ID: " + loan.getBookId() + ") is overdue.\n" +
-                            "Borrowed on: " + loan.getBorrowDate() + "\n" +
-                            "Due on: " + loan.getDueDate() + "\n\n" +
-                            "Please return the book as soon as possible.\n\n" +
-                            "Best regards,\nLibrary System";
-
-            emailService.sendEmail(user.getEmail(), subject, body);
+            sendDigest(user, loans);
+            logReminded(loans, today);
+            SENT.increment();
             count++;
         }
 
+        RUN_TIMER.recordSince(start);
+        return count;
+    }
+
+    /**
+     * Queues one reminder digest per user with overdue loans in the outbox.
+     * Nothing is sent here; the outbox's sender delivers the messages.
+     * <p>
+     * Each digest is queued under a key for the user and day before its
+     * loans are logged, so a run that crashed in between and is repeated
+     * the same day finds the digest already queued instead of queuing it
+     * twice.
+     * </p>
+     *
+     * @return number of reminders queued
+     *
+     * @throws IllegalStateException if no outbox was configured
+     */
+    public int queueOverdueReminders() {
+        if (outbox == null) {
+            throw new IllegalStateException("No outbox configured");
+        }
+        long start = System.nanoTime();
+        LocalDate today = LocalDate.now(clock);
+        int count = 0;
+        for (List<Loan> loans : overdueByUser(today).values()) {
+            User user = userService.findById(loans.get(0).getUserId());
+            if (user == null) continue;
+
+            outbox.enqueue(new EmailMessage(user.getEmail(), SUBJECT, reminderBody(user, loans)),
+                    "reminder:" + user.getId().trim() + ":" + today, clock.millis());
+            logReminded(loans, today);
+            QUEUED.increment();
+            count++;
+        }
+        QUEUE_TIMER.recordSince(start);
         return count;
     }
+
+    /**
+     * Sends reminder emails for all overdue loans concurrently, using
+     * {@link #DEFAULT_MAX_IN_FLIGHT} and {@link #DEFAULT_SENDS_PER_SECOND}.
+     *
+     * @return one result per user with overdue loans, ordered by each
+     *         user's earliest due date
+     */
+    public List<ReminderResult> dispatchOverdueReminders() {
+        return dispatchOverdueReminders(DEFAULT_MAX_IN_FLIGHT, DEFAULT_SENDS_PER_SECOND);
+    }
+
+    /**
+     * Sends reminder emails for all overdue loans concurrently, one digest
+     * per user.
+     * <p>
+     * Sends run on virtual threads where the JDK provides them, otherwise
+     * on a pool of {@code maxInFlight} threads. At most {@code maxInFlight}
+     * sends are in progress at once and no more than {@code sendsPerSecond}
+     * are started per second overall. A failed send is reported in its
+     * result and does not stop the others.
+     * </p>
+     *
+     * @param maxInFlight    maximum number of concurrent sends
+     * @param sendsPerSecond maximum send rate
+     * @return one result per user with overdue loans, ordered by each
+     *         user's earliest due date
+     *
+     * @throws IllegalArgumentException if a limit is not positive
+     */
+    public List<ReminderResult> dispatchOverdueReminders(int maxInFlight, double sendsPerSecond) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("Max in-flight sends must be positive");
+        }
+        long start = System.nanoTime();
+        RateLimiter rateLimiter = new RateLimiter(sendsPerSecond);
+        Semaphore inFlight = new Semaphore(maxInFlight);
+
+        LocalDate today = LocalDate.now(clock);
+        Map<String, List<Loan>> overdue = overdueByUser(today);
+        List<Future<ReminderResult>> pending = new ArrayList<>(overdue.size());
+        ExecutorService executor = newExecutor(maxInFlight);
+        try {
+            for (Map.Entry<String, List<Loan>> entry : overdue.entrySet()) {
+                List<Loan> loans = entry.getValue();
+                User user = userService.findById(loans.get(0).getUserId());
+                if (user == null) {
+                    pending.add(CompletableFuture.completedFuture(
+                            new ReminderResult(loanIds(loans), entry.getKey(), null,
+                                    ReminderResult.Status.SKIPPED, null)));
+                    continue;
+                }
+                inFlight.acquire();
+                try {
+                    pending.add(executor.submit(() -> {
+                        try {
+                            return send(loans, user, rateLimiter, today);
+                        } finally {
+                            inFlight.release();
+                        }
+                    }));
+                } catch (RuntimeException e) {
+                    inFlight.release();
+                    throw e;
+                }
+            }
+
+            List<ReminderResult> results = new ArrayList<>(pending.size());
+            for (Future<ReminderResult> future : pending) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Reminder dispatch interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to send reminders", e.getCause());
+        } finally {
+            executor.shutdownNow();
+            DISPATCH_TIMER.recordSince(start);
+        }
+    }
+
+    /**
+     * Groups the overdue loans by user. Users appear in the order of their
+     * earliest due date and each user's loans stay in due-date order.
+     * <p>
+     * With a reminder log, users none of whose loans is due for a reminder
+     * are left out, and log entries of loans no longer overdue are dropped.
+     * </p>
+     */
+    private Map<String, List<Loan>> overdueByUser(LocalDate today) {
+        List<Loan> overdue = loanService.getOverdueLoans();
+        Map<String, List<Loan>> byUser = new LinkedHashMap<>();
+        for (Loan loan : overdue) {
+            byUser.computeIfAbsent(loan.getUserId().trim(), u -> new ArrayList<>()).add(loan);
+        }
+        if (reminderLog != null) {
+            byUser.values().removeIf(loans -> {
+                for (Loan loan : loans) {
+                    if (isDue(loan, today)) {
+                        return false;
+                    }
+                }
+                return true;
+            });
+            Set<String> overdueIds = new HashSet<>();
+            for (Loan loan : overdue) {
+                overdueIds.add(loan.getId());
+            }
+            reminderLog.retainLoans(overdueIds);
+        }
+        return byUser;
+    }
+
+    /**
+     * @return true if the loan was never reminded, or last reminded at
+     *         least one interval before today
+     */
+    private boolean isDue(Loan loan, LocalDate today) {
+        LocalDate last = reminderLog.lastReminded(loan.getId());
+        return last == null || !last.plusDays(intervalDays).isAfter(today);
+    }
+
+    /**
+     * Records the due loans of a sent digest in the reminder log, if any.
+     * Loans listed only because another loan of the user was due keep
+     * their earlier reminder date.
+     */
+    private void logReminded(List<Loan> loans, LocalDate today) {
+        if (reminderLog == null) {
+            return;
+        }
+        List<String> due = new ArrayList<>(loans.size());
+        for (Loan loan : loans) {
+            if (isDue(loan, today)) {
+                due.add(loan.getId());
+            }
+        }
+        reminderLog.record(due, today);
+    }
+
+    /**
+     * Sends one digest once the rate limiter allows it.
+     */
+    private ReminderResult send(List<Loan> loans, User user, RateLimiter rateLimiter, LocalDate today)
+            throws InterruptedException {
+        rateLimiter.acquire();
+        try {
+            sendDigest(user, loans);
+        } catch (RuntimeException e) {
+            FAILED.increment();
+            Throwable cause = (e.getCause() != null) ? e.getCause() : e;
+            return new ReminderResult(loanIds(loans), user.getId(), user.getEmail(),
+                    ReminderResult.Status.FAILED, String.valueOf(cause.getMessage()));
+        }
+        logReminded(loans, today);
+        SENT.increment();
+        return new ReminderResult(loanIds(loans), user.getId(), user.getEmail(),
+                ReminderResult.Status.SENT, null);
+    }
+
+    /**
+     * Sends one digest, timing the send.
+     */
+    private void sendDigest(User user, List<Loan> loans) {
+        EMAIL_TIMER.time(() -> {
+            emailService.sendEmail(user.getEmail(), SUBJECT, reminderBody(user, loans));
+            return null;
+        });
+    }
+
+    private static List<String> loanIds(List<Loan> loans) {
+        List<String> ids = new ArrayList<>(loans.size());
+        for (Loan loan : loans) {
+            ids.add(loan.getId());
+        }
+        return ids;
+    }
+
+    private static String reminderBody(User user, List<Loan> loans) {
+        StringBuilder body = new StringBuilder();
+        body.append("Dear ").append(user.getName()).append(",\n\n");
+        if (loans.size() == 1) {
+            body.append("This is a reminder that your loan is overdue:\n\n");
+        } else {
+            body.append("This is a reminder that ").append(loans.size())
+                    .append(" of your loans are overdue:\n\n");
+        }
+        for (Loan loan : loans) {
+            body.append("- ").append(loan.getMediaType() == MediaType.CD ? "CD" : "Book")
+                    .append(" ID: ").append(loan.getBookId())
+                    .append(" (borrowed on ").append(loan.getBorrowDate())
+                    .append(", due on ").append(loan.getDueDate()).append(")\n");
+        }
+        body.append("\nPlease return ").append(loans.size() == 1 ? "it" : "them")
+                .append(" as soon as possible.\n\n")
+                .append("Best regards,\nLibrary System");
+        return body.toString();
+    }
+
+    /**
+     * Creates the executor for concurrent sends: one virtual thread per
+     * send on JDKs that have them, otherwise a fixed pool of daemon threads.
+     * The JDK method is looked up reflectively so the code still compiles
+     * and runs on older releases.
+     */
+    private static ExecutorService newExecutor(int maxInFlight) {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Executors.newFixedThreadPool(maxInFlight, r -> {
+                Thread t = new Thread(r, "reminder-sender");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
 }
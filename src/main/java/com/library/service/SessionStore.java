@@ -0,0 +1,264 @@
+package com.library.service;
+
+import com.library.domain.User;
+
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Holds the open sessions of any number of concurrently logged-in accounts.
+ * <p>
+ * Sessions are kept in a concurrent map keyed by a random, opaque token,
+ * so looking one up is a single hash lookup. A session expires after a
+ * period of inactivity (idle timeout) and at the latest a fixed time after
+ * login (absolute timeout). Expired sessions are never returned. They are
+ * removed by a hashed timing wheel rather than by scanning every session:
+ * each session sits in the wheel slot of its expiry tick, and the wheel is
+ * advanced opportunistically by the threads using the store. A slot whose
+ * session was used in the meantime simply re-files it for its new expiry.
+ * </p>
+ *
+ * @author Maram
+ * @version 1.0
+ */
+public class SessionStore {
+
+    /**
+     * Idle timeout used by {@link #SessionStore()}.
+     */
+    public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(30);
+
+    /**
+     * Absolute timeout used by {@link #SessionStore()}.
+     */
+    public static final Duration DEFAULT_ABSOLUTE_TIMEOUT = Duration.ofHours(12);
+
+    /**
+     * Duration of one wheel tick in milliseconds.
+     */
+    private static final long TICK_MILLIS = 1000;
+
+    /**
+     * Number of wheel slots (a power of two).
+     */
+    private static final int SLOTS = 512;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final Map<String, AuthSession> sessions = new ConcurrentHashMap<>();
+    private final long idleTimeout;
+    private final long absoluteTimeout;
+    private final Clock clock;
+
+    /**
+     * Guards the wheel; the session map itself needs no lock.
+     */
+    private final ReentrantLock wheelLock = new ReentrantLock();
+    private final List<ArrayDeque<Timer>> wheel = new ArrayList<>(SLOTS);
+    private long currentTick;
+
+    /**
+     * Creates a store with the default timeouts.
+     */
+    public SessionStore() {
+        this(DEFAULT_IDLE_TIMEOUT, DEFAULT_ABSOLUTE_TIMEOUT, Clock.systemUTC());
+    }
+
+    /**
+     * Creates a store.
+     *
+     * @param idleTimeout     how long an unused session stays valid
+     * @param absoluteTimeout how long any session stays valid after login
+     * @param clock           time source
+     * @throws IllegalArgumentException if a timeout is not positive
+     */
+    public SessionStore(Duration idleTimeout, Duration absoluteTimeout, Clock clock) {
+        if (idleTimeout.isNegative() || idleTimeout.isZero()
+                || absoluteTimeout.isNegative() || absoluteTimeout.isZero()) {
+            throw new IllegalArgumentException("Timeouts must be positive");
+        }
+        this.idleTimeout = idleTimeout.toMillis();
+        this.absoluteTimeout = absoluteTimeout.toMillis();
+        this.clock = clock;
+        for (int i = 0; i < SLOTS; i++) {
+            wheel.add(new ArrayDeque<>());
+        }
+        this.currentTick = clock.millis() / TICK_MILLIS;
+    }
+
+    /**
+     * Opens a session for an authenticated account.
+     *
+     * @param account the account
+     * @param role    the role it logged in with
+     * @return the new session
+     */
+    public AuthSession open(User account, AuthSession.Role role) {
+        long now = clock.millis();
+        String token = newToken();
+        AuthSession session = new AuthSession(token, account, role, now, idleTimeout, absoluteTimeout);
+        sessions.put(token, session);
+
+        wheelLock.lock();
+        try {
+            advance(now);
+            schedule(session, now);
+        } finally {
+            wheelLock.unlock();
+        }
+        return session;
+    }
+
+    /**
+     * Looks up a session and records its use.
+     *
+     * @param token session token
+     * @return the session, or null if the token is unknown, closed or expired
+     */
+    public AuthSession get(String token) {
+        if (token == null) {
+            return null;
+        }
+        AuthSession session = sessions.get(token);
+        if (session == null) {
+            return null;
+        }
+        long now = clock.millis();
+        if (session.expiresAt() <= now) {
+            sessions.remove(token, session);
+            return null;
+        }
+        session.touch(now);
+        if (wheelLock.tryLock()) {
+            try {
+                advance(now);
+            } finally {
+                wheelLock.unlock();
+            }
+        }
+        return session;
+    }
+
+    /**
+     * Closes a session. Unknown tokens are ignored.
+     *
+     * @param token session token
+     */
+    public void close(String token) {
+        if (token != null) {
+            sessions.remove(token);
+        }
+    }
+
+    /**
+     * Removes every session that has expired by now.
+     */
+    public void expire() {
+        wheelLock.lock();
+        try {
+            advance(clock.millis());
+        } finally {
+            wheelLock.unlock();
+        }
+    }
+
+    /**
+     * @return number of open sessions (expired ones may be counted until
+     *         the wheel reaches them)
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    private static String newToken() {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * Moves the wheel up to the current tick, firing the slots passed.
+     * Called with the wheel lock held.
+     *
+     * @param now current time in epoch milliseconds
+     */
+    private void advance(long now) {
+        long target = now / TICK_MILLIS;
+        if (target - currentTick >= SLOTS) {
+            // idle for a whole revolution: every slot is due, so sweep once
+            List<Timer> all = new ArrayList<>();
+            for (ArrayDeque<Timer> slot : wheel) {
+                all.addAll(slot);
+                slot.clear();
+            }
+            currentTick = target;
+            for (Timer timer : all) {
+                fire(timer, now);
+            }
+            return;
+        }
+        while (currentTick < target) {
+            currentTick++;
+            ArrayDeque<Timer> slot = wheel.get((int) (currentTick & (SLOTS - 1)));
+            int n = slot.size();
+            for (int i = 0; i < n; i++) {
+                Timer timer = slot.poll();
+                if (timer.rounds > 0) {
+                    timer.rounds--;
+                    slot.add(timer);
+                } else {
+                    fire(timer, now);
+                }
+            }
+        }
+    }
+
+    /**
+     * Handles a timer whose tick has come: drops closed sessions, removes
+     * expired ones and re-files sessions that were used since.
+     */
+    private void fire(Timer timer, long now) {
+        AuthSession session = timer.session;
+        if (sessions.get(session.getToken()) != session) {
+            return; // closed
+        }
+        if (session.expiresAt() <= now) {
+            sessions.remove(session.getToken(), session);
+        } else {
+            schedule(session, now);
+        }
+    }
+
+    /**
+     * Files a session in the slot of its expiry tick.
+     * Called with the wheel lock held.
+     */
+    private void schedule(AuthSession session, long now) {
+        long delay = Math.max(0, session.expiresAt() - now);
+        long ticks = Math.max(1, (delay + TICK_MILLIS - 1) / TICK_MILLIS);
+        long fireTick = currentTick + ticks;
+        Timer timer = new Timer(session, (ticks - 1) / SLOTS);
+        wheel.get((int) (fireTick & (SLOTS - 1))).add(timer);
+    }
+
+    /**
+     * A wheel entry.
+     */
+    private static final class Timer {
+        final AuthSession session;
+        long rounds;
+
+        Timer(AuthSession session, long rounds) {
+            this.session = session;
+            this.rounds = rounds;
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package com.library.service;
+
+import com.library.domain.EmailMessage;
+
+import javax.mail.*;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Mail transport that delivers through Gmail's SMTP server.
+ * <p>
+ * The server is used with TLS encryption. The username and password
+ * provided must correspond to an application password (App Password),
+ * not the user's regular Gmail password.
+ * </p>
+ *
+ * <p>
+ * Connections are reused: the mail session is built once, and connected
+ * transports are kept in a small pool after each send, so consecutive
+ * messages skip the connect/STARTTLS/AUTH handshake. A pooled connection
+ * idle for longer than the keep-alive period, or no longer connected, is
+ * closed instead of reused. A send that fails on a reused connection is
+ * retried once on a fresh one, unless the server rejected the message
+ * itself ({@link SendFailedException}, e.g. an unknown recipient), which
+ * a new connection cannot fix. {@link #sendBatch(List)} pushes many
+ * messages over a single connection.
+ * </p>
+ *
+ * @author Maram
+ * @version 1.0
+ */
+public class SmtpMailTransport implements MailTransport {
+
+    /**
+     * Maximum number of idle connections kept by default.
+     */
+    public static final int DEFAULT_POOL_SIZE = 4;
+
+    /**
+     * Default time an idle connection is kept before it is closed, in milliseconds.
+     */
+    public static final long DEFAULT_KEEP_ALIVE_MILLIS = 60_000;
+
+    private static final String SMTP_HOST = "smtp.gmail.com";
+    private static final int SMTP_PORT = 587;
+
+    /**
+     * The email address used as the sender.
+     */
+    private final String username;
+
+    /**
+     * The app-specific password used for SMTP authentication.
+     */
+    private final String password;
+
+    /**
+     * Maximum number of idle connections kept for reuse.
+     */
+    private final int poolSize;
+
+    /**
+     * How long an idle connection may be reused, in milliseconds.
+     */
+    private final long keepAliveMillis;
+
+    /**
+     * Idle connected transports, most recently used first.
+     */
+    private final Deque<PooledTransport> idle = new ArrayDeque<>();
+
+    /**
+     * Mail session, built on first use.
+     */
+    private Session mailSession;
+
+    /**
+     * Set once {@link #close()} has been called.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Creates a transport using the provided SMTP credentials.
+     *
+     * @param username the sender email address
+     * @param password the app password for SMTP authentication
+     */
+    public SmtpMailTransport(String username, String password) {
+        this(username, password, DEFAULT_POOL_SIZE, DEFAULT_KEEP_ALIVE_MILLIS);
+    }
+
+    /**
+     * Creates a transport with explicit pool settings.
+     *
+     * @param username        the sender email address
+     * @param password        the app password for SMTP authentication
+     * @param poolSize        maximum number of idle connections kept
+     * @param keepAliveMillis how long an idle connection may be reused
+     */
+    public SmtpMailTransport(String username, String password, int poolSize, long keepAliveMillis) {
+        this.username = username;
+        this.password = password;
+        this.poolSize = poolSize;
+        this.keepAliveMillis = keepAliveMillis;
+    }
+
+    /**
+     * Sends one message on a pooled connection, retrying once on a fresh
+     * connection if the pooled one fails. A failure on a connection that
+     * was just opened, and a message the server rejects, are not retried.
+     *
+     * @param email the message
+     * @throws SendFailedException if the server rejected the message
+     * @throws MessagingException  if the message could not be sent
+     */
+    @Override
+    public void send(EmailMessage email) throws MessagingException {
+        Message message = toMimeMessage(email);
+        Transport transport = pollIdle();
+        boolean reused = transport != null;
+        if (!reused) {
+            transport = connect();
+        }
+        try {
+            transport.sendMessage(message, message.getAllRecipients());
+        } catch (SendFailedException e) {
+            release(transport); // the connection is fine
+            throw e;
+        } catch (MessagingException e) {
+            closeQuietly(transport);
+            if (!reused) {
+                throw e;
+            }
+            transport = connect();
+            try {
+                transport.sendMessage(message, message.getAllRecipients());
+            } catch (MessagingException retryFailure) {
+                closeQuietly(transport);
+                throw retryFailure;
+            }
+        }
+        release(transport);
+    }
+
+    /**
+     * Sends many messages over one connection.
+     * <p>
+     * A message that cannot be sent is retried once on a new connection
+     * and then skipped; a message the server rejects is skipped straight
+     * away. The remaining messages are still sent.
+     * </p>
+     *
+     * @param messages the messages to send
+     * @return number of messages sent
+     * @throws MessagingException if no connection to the server can be opened
+     */
+    @Override
+    public int sendBatch(List<EmailMessage> messages) throws MessagingException {
+        int sent = 0;
+        Transport transport = null;
+        try {
+            for (EmailMessage email : messages) {
+                Message message;
+                try {
+                    message = toMimeMessage(email);
+                } catch (MessagingException e) {
+                    continue; // malformed address
+                }
+                if (transport == null) {
+                    transport = borrow();
+                }
+                try {
+                    transport.sendMessage(message, message.getAllRecipients());
+                    sent++;
+                    continue;
+                } catch (SendFailedException e) {
+                    continue; // rejected message; the connection is fine
+                } catch (MessagingException e) {
+                    closeQuietly(transport);
+                    transport = null;
+                }
+                transport = connect();
+                try {
+                    transport.sendMessage(message, message.getAllRecipients());
+                    sent++;
+                } catch (MessagingException e) {
+                    closeQuietly(transport);
+                    transport = null;
+                }
+            }
+        } finally {
+            if (transport != null) {
+                release(transport);
+            }
+        }
+        return sent;
+    }
+
+    /**
+     * Closes every pooled connection. Later sends open new connections
+     * but no longer keep them.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (idle) {
+            for (PooledTransport pooled : idle) {
+                closeQuietly(pooled.transport);
+            }
+            idle.clear();
+        }
+    }
+
+    /**
+     * Opens a new authenticated connection to the SMTP server.
+     *
+     * @return a connected transport
+     * @throws MessagingException if the connection cannot be established
+     */
+    protected Transport connect() throws MessagingException {
+        Transport transport = session().getTransport("smtp");
+        transport.connect(SMTP_HOST, SMTP_PORT, username, password);
+        return transport;
+    }
+
+    /**
+     * @return an idle pooled connection that is still usable, or a new one
+     */
+    private Transport borrow() throws MessagingException {
+        Transport transport = pollIdle();
+        return (transport != null) ? transport : connect();
+    }
+
+    /**
+     * @return an idle pooled connection that is still usable, or null
+     */
+    private Transport pollIdle() {
+        long now = System.currentTimeMillis();
+        while (true) {
+            PooledTransport pooled;
+            synchronized (idle) {
+                pooled = idle.pollFirst();
+            }
+            if (pooled == null) {
+                return null;
+            }
+            if (now - pooled.lastUsed <= keepAliveMillis && pooled.transport.isConnected()) {
+                return pooled.transport;
+            }
+            closeQuietly(pooled.transport);
+        }
+    }
+
+    /**
+     * Returns a connection to the pool, or closes it if the pool is full.
+     */
+    private void release(Transport transport) {
+        synchronized (idle) {
+            if (!closed && idle.size() < poolSize) {
+                idle.addFirst(new PooledTransport(transport, System.currentTimeMillis()));
+                return;
+            }
+        }
+        closeQuietly(transport);
+    }
+
+    private Message toMimeMessage(EmailMessage email) throws MessagingException {
+        Message message = new MimeMessage(session());
+        message.setFrom(new InternetAddress(username));
+        message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(email.getTo()));
+        message.setSubject(email.getSubject());
+        message.setText(email.getBody());
+        return message;
+    }
+
+    private synchronized Session session() {
+        if (mailSession == null) {
+            Properties props = new Properties();
+            props.put("mail.smtp.auth", "true");
+            props.put("mail.smtp.starttls.enable", "true");
+            props.put("mail.smtp.host", SMTP_HOST);
+            props.put("mail.smtp.port", String.valueOf(SMTP_PORT));
+            props.put("mail.smtp.ssl.trust", SMTP_HOST);
+            props.put("mail.smtp.ssl.protocols", "TLSv1.2");
+            props.put("mail.smtp.connectiontimeout", "10000");
+            props.put("mail.smtp.timeout", "10000");
+
+            mailSession = Session.getInstance(props, new Authenticator() {
+                @Override
+                protected PasswordAuthentication getPasswordAuthentication() {
+                    return new PasswordAuthentication(username, password);
+                }
+            });
+        }
+        return mailSession;
+    }
+
+    private static void closeQuietly(Transport transport) {
+        try {
+            transport.close();
+        } catch (MessagingException e) {
+            // the connection is being discarded anyway
+        }
+    }
+
+    /**
+     * An idle connection and when it was last used.
+     */
+    private static final class PooledTransport {
+        final Transport transport;
+        final long lastUsed;
+
+        PooledTransport(Transport transport, long lastUsed) {
+            this.transport = transport;
+            this.lastUsed = lastUsed;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.library.service;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * A fixed set of locks shared out by key.
+ * <p>
+ * Each key (an item ID, a user ID, ...) maps to one of the stripes, so
+ * operations on the same key always serialize, while operations on
+ * different keys usually take different locks and run in parallel.
+ * Unrelated keys that share a stripe merely wait for each other.
+ * </p>
+ *
+ * <pre>
+ * return itemLocks.withLock(bookId, () -&gt; {
+ *     ... check and update the book ...
+ * });
+ * </pre>
+ *
+ * @author Maram
+ * @version 1.0
+ */
+public final class StripedLock {
+
+    /**
+     * Number of stripes used by {@link #StripedLock()}.
+     */
+    public static final int DEFAULT_STRIPES = 64;
+
+    private final ReentrantLock[] stripes;
+
+    /**
+     * Creates a lock with {@link #DEFAULT_STRIPES} stripes.
+     */
+    public StripedLock() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * Creates a lock with at least the given number of stripes (rounded up
+     * to a power of two).
+     *
+     * @param stripes minimum number of stripes
+     * @throws IllegalArgumentException if stripes is not positive
+     */
+    public StripedLock(int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("Stripe count must be positive");
+        }
+        int size = Integer.highestOneBit(stripes);
+        if (size < stripes) {
+            size <<= 1;
+        }
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Runs an action while holding the stripe of the given key.
+     *
+     * @param key    the key to lock
+     * @param action the action to run
+     * @param <T>    result type
+     * @return the action's result
+     */
+    public <T> T withLock(String key, Supplier<T> action) {
+        ReentrantLock lock = stripes[indexOf(key)];
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of stripes
+     */
+    public int stripes() {
+        return stripes.length;
+    }
+
+    private int indexOf(String key) {
+        int h = (key == null) ? 0 : key.hashCode();
+        h ^= (h >>> 16);
+        return h & (stripes.length - 1);
+    }
+}
@@ -1,10 +1,9 @@
 package com.library.service;
 
+import com.library.domain.AccountRepository;
 import com.library.domain.FileStorage;
 import com.library.domain.User;
 
-import java.util.List;
-
 /**
  * Service responsible for managing user accounts in the library system.
  * <p>
@@ -27,7 +26,8 @@ import java.util.List;
 
  *
  * <p>
- * All user data is persisted through {@link FileStorage}.
+ * Users are served from the in-memory {@link AccountRepository}, which
+ * writes through to {@link FileStorage}.
  * </p>
  *
  * @author Maram
@@ -36,9 +36,9 @@ import java.util.List;
 public class UserService {
 
     /**
-     * Storage backend for loading and saving users.
+     * Cached user accounts.
      */
-    private final FileStorage storage;
+    private final AccountRepository<User> users;
 
     /**
      * Tracks the currently logged-in user (nullable).
@@ -53,7 +53,7 @@ public class UserService {
      * @param emailService email sending service (optional)
      */
     public UserService(FileStorage storage, EmailService emailService) {
-        this.storage = storage;
+        this(AccountRepository.users(storage), emailService);
     }
 
     /**
@@ -62,7 +62,17 @@ public class UserService {
      * @param storage file storage backend
      */
     public UserService(FileStorage storage) {
-        this.storage = storage;
+        this(AccountRepository.users(storage), null);
+    }
+
+    /**
+     * Creates a UserService over a shared user repository.
+     *
+     * @param users        user account repository
+     * @param emailService email sending service (optional)
+     */
+    public UserService(AccountRepository<User> users, EmailService emailService) {
+        this.users = users;
     }
 
     /**
@@ -98,7 +108,6 @@ public class UserService {
      * @throws IllegalArgumentException if the email is already registered
      */
     public User register(String name, String email, String password) {
-        List<User> users = storage.loadUsers();
 
         // Email format validation
         if (!email.matches("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+$")) {
@@ -113,17 +122,15 @@ public class UserService {
         }
 
         // Check if email already exists
-        boolean exists = users.stream()
-                .anyMatch(u -> u.getEmail().equalsIgnoreCase(email));
+        boolean exists = users.findByEmail(email) != null;
         if (exists) {
             throw new IllegalArgumentException("Email already registered");
         }
 
-        String id = "U" + (users.size() + 1);
+        String id = users.nextId();
 
         User user = new User(id, name, email, password);
         users.add(user);
-        storage.saveUsers(users);
         return user;
     }
 
@@ -136,15 +143,7 @@ public class UserService {
      * @return the matching {@link User}, or null if credentials are invalid
      */
     public User login(String email, String password) {
-        List<User> users = storage.loadUsers();
-
-        for (User u : users) {
-            if (u.getEmail().equalsIgnoreCase(email) &&
-                    u.getPassword().equals(password)) {
-                return u;
-            }
-        }
-        return null;
+        return users.authenticate(email, password);
     }
 
     /**
@@ -161,11 +160,7 @@ public class UserService {
      * @return the user with the given ID, or null if not found
      */
     public User findById(String userId) {
-        return storage.loadUsers()
-                .stream()
-                .filter(u -> u.getId().equals(userId))
-                .findFirst()
-                .orElse(null);
+        return users.findById(userId);
     }
 
     /**
@@ -201,15 +196,12 @@ public class UserService {
             );
         }
 
-        List<User> users = storage.loadUsers();
-        boolean removed = users.removeIf(u -> u.getId().equals(userId));
+        boolean removed = users.remove(userId);
 
         if (!removed) {
             throw new IllegalArgumentException("User with id " + userId + " not found.");
         }
 
-        storage.saveUsers(users);
-
         // If the removed user was logged in, log them out
         if (currentUser != null && currentUser.getId().equals(userId)) {
             currentUser = null;
@@ -0,0 +1,189 @@
+package com.library.domain;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the cached repositories built on {@link CachedRepository}.
+ *
+ * <p>Verifies that records are parsed once, served from memory, written
+ * through to {@link FileStorage}, and reloaded when a file changes outside
+ * the repository.</p>
+ */
+class CachedRepositoryTest {
+
+    @TempDir
+    Path tempDir;
+
+    private CountingStorage storage;
+
+    /**
+     * A storage that counts how often each file is parsed.
+     */
+    static class CountingStorage extends FileStorage {
+        int bookLoads;
+        int loanLoads;
+
+        CountingStorage(String dir) {
+            super(dir);
+        }
+
+        @Override
+        public List<Book> loadBooks() {
+            bookLoads++;
+            return super.loadBooks();
+        }
+
+        @Override
+        public List<Loan> loadLoans() {
+            loanLoads++;
+            return super.loadLoans();
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Files.write(tempDir.resolve("books.txt"), List.of(
+                "B1;Dune;Herbert;111;false",
+                "B2;Emma;Austen;222;false"));
+        storage = new CountingStorage(tempDir.toString());
+    }
+
+    @Test
+    void repeatedReads_parseTheFileOnce() {
+        BookRepository books = new BookRepository(storage);
+
+        assertEquals("Dune", books.findById("B1").getTitle());
+        assertEquals(2, books.size());
+        assertNotNull(books.findFirst(b -> b.getIsbn().equals("222")));
+
+        assertEquals(1, storage.bookLoads);
+    }
+
+    @Test
+    void add_writesThroughWithoutReload() {
+        BookRepository books = new BookRepository(storage);
+        books.add(new Book("B3", "Ulysses", "Joyce", "333", false));
+
+        assertEquals(3, books.size());
+        assertEquals(1, storage.bookLoads);
+        assertEquals(3, new FileStorage(tempDir.toString()).loadBooks().size());
+    }
+
+    @Test
+    void externalChange_isDetectedAndReloaded() throws IOException {
+        BookRepository books = new BookRepository(storage);
+        assertEquals(2, books.size());
+
+        Files.write(tempDir.resolve("books.txt"), List.of("B9;Other;Someone;999;true"));
+
+        assertNull(books.findById("B1"));
+        assertTrue(books.findById("B9").isBorrowed());
+        assertEquals(2, storage.bookLoads);
+    }
+
+    @Test
+    void writeThroughSameStorage_byAnotherRepository_isDetected() {
+        BookRepository first = new BookRepository(storage);
+        BookRepository second = new BookRepository(storage);
+        assertFalse(first.findById("B1").isBorrowed());
+
+        Book b1 = second.findById("B1");
+        b1.setBorrowed(true);
+        second.saveChanges();
+
+        assertTrue(first.findById("B1").isBorrowed());
+    }
+
+    @Test
+    void loanRepository_appendsWithoutReparsing() {
+        LoanRepository loans = new LoanRepository(storage);
+        LocalDate today = LocalDate.now();
+
+        loans.add(new Loan("L1", "U1", "B1", today, today.plusDays(28), null));
+        loans.markReturned(loans.findById("L1"), today);
+
+        assertTrue(loans.findById("L1").isReturned());
+        assertEquals(1, storage.loanLoads);
+        assertTrue(new FileStorage(tempDir.toString()).loadLoans().get(0).isReturned());
+    }
+
+    @Test
+    void loanRepository_indexesLoansByUser() throws IOException {
+        LocalDate today = LocalDate.now();
+        Files.write(tempDir.resolve("loans.txt"), List.of(
+                "L1;U1;B1;" + today + ";" + today.plusDays(28) + ";" + today + ";BOOK",
+                "L2;U2;B2;" + today + ";" + today.plusDays(28) + ";;BOOK"));
+        LoanRepository loans = new LoanRepository(storage);
+
+        loans.add(new Loan("L3", "U1", "B3", today, today.plusDays(28), null));
+        assertEquals(2, loans.findByUser("U1").size());
+        assertEquals("L3", loans.findActiveByUser("U1").get(0).getId());
+
+        loans.markReturned(loans.findById("L3"), today);
+        assertTrue(loans.findActiveByUser("U1").isEmpty());
+        assertFalse(loans.anyActiveMatch("U1", l -> true));
+        assertTrue(loans.anyActiveMatch("U2", l -> true));
+        assertTrue(loans.findByUser("nobody").isEmpty());
+    }
+
+    @Test
+    void fineRepository_reconcileCorrectsDriftedLedger() {
+        FineRepository fines = new FineRepository(storage);
+        fines.add(new Fine("F1", "U1", 10.0, false));
+        fines.add(new Fine("F2", "U1", 5.0, false));
+        assertEquals(15.0, fines.outstandingBalance("U1"));
+
+        fines.findByUser("U1").get(0).setPaid(true);   // changed without saving
+        assertEquals(15.0, fines.outstandingBalance("U1"));
+
+        assertEquals(1, fines.reconcile());
+        assertEquals(5.0, fines.outstandingBalance("U1"));
+        assertEquals(0, fines.reconcile());
+    }
+
+    @Test
+    void accountRepository_findsByEmailIgnoringCase() {
+        AccountRepository<User> users = AccountRepository.users(storage);
+        users.add(new User("U1", "Dana", "Dana@Example.com", "pwd"));
+
+        assertEquals("U1", users.findByEmail("dana@example.com").getId());
+        assertTrue(users.remove("U1"));
+        assertNull(users.findById("U1"));
+    }
+
+    @Test
+    void accountRepository_authenticatesThroughEmailIndex() {
+        AccountRepository<User> users = AccountRepository.users(storage);
+        users.add(new User("U1", "Dana", "dana@example.com", "first"));
+        users.add(new User("U2", "Dana Two", "DANA@example.com", "second"));
+
+        assertEquals("U2", users.authenticate("Dana@Example.COM", "second").getId());
+        assertEquals("U1", users.findByEmail("DANA@EXAMPLE.COM").getId());
+        assertNull(users.authenticate("dana@example.com", "wrong"));
+        assertNull(users.authenticate(null, "first"));
+
+        users.remove("U1");
+        assertEquals("U2", users.findByEmail("dana@example.com").getId());
+        assertEquals("U2", users.findById("U2").getId());
+    }
+
+    @Test
+    void accountRepository_mintsIdsForUsersOnly() {
+        assertTrue(AccountRepository.users(storage).nextId().startsWith("U"));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> AccountRepository.admins(storage).nextId());
+        assertTrue(e.getMessage().contains("admins.txt"));
+        assertThrows(IllegalStateException.class, () -> AccountRepository.librarians(storage).nextId());
+    }
+}
@@ -0,0 +1,136 @@
+package com.library.domain;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DatasetGeneratorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static final LocalDate TODAY = LocalDate.of(2025, 3, 1);
+
+    private DatasetGenerator generator(long seed) {
+        DatasetGenerator generator = new DatasetGenerator(200, 1000, 20000, 500, seed);
+        generator.setToday(TODAY);
+        return generator;
+    }
+
+    @Test
+    void generate_writesAllFilesWithRequestedCounts() {
+        DatasetGenerator generator = generator(1);
+        generator.setAdmins(3);
+        generator.setLibrarians(4);
+        generator.generate(tempDir);
+
+        FileStorage storage = new FileStorage(tempDir.toString());
+        assertEquals(200, storage.loadUsers().size());
+        assertEquals(1000, storage.loadBooks().size());
+        assertEquals(20000, storage.loadLoans().size());
+        assertEquals(500, storage.loadFines().size());
+        assertEquals(3, storage.loadAdmins().size());
+        assertEquals(4, storage.loadLibrarians().size());
+        assertEquals(DatasetGenerator.title(41), storage.loadBooks().get(41).getTitle());
+    }
+
+    @Test
+    void generate_isDeterministicForSeed() throws IOException {
+        Path a = tempDir.resolve("a");
+        Path b = tempDir.resolve("b");
+        Path c = tempDir.resolve("c");
+        generator(7).generate(a);
+        generator(7).generate(b);
+        generator(8).generate(c);
+
+        for (String file : List.of("users.txt", "books.txt", "loans.txt", "fines.txt")) {
+            assertEquals(Files.readAllLines(a.resolve(file)), Files.readAllLines(b.resolve(file)), file);
+        }
+        assertNotEquals(Files.readAllLines(a.resolve("loans.txt")), Files.readAllLines(c.resolve("loans.txt")));
+    }
+
+    @Test
+    void generate_activeLoansMatchBorrowedFlags() {
+        generator(3).generate(tempDir);
+        FileStorage storage = new FileStorage(tempDir.toString());
+
+        Set<String> lent = new HashSet<>();
+        for (Loan loan : storage.loadLoans()) {
+            if (!loan.isReturned()) {
+                assertTrue(lent.add(loan.getBookId()), "lent twice: " + loan.getBookId());
+            }
+        }
+        assertFalse(lent.isEmpty());
+        for (Book book : storage.loadBooks()) {
+            assertEquals(lent.contains(book.getId()), book.isBorrowed(), book.getId());
+        }
+    }
+
+    @Test
+    void generate_overdueFractionControlsOverdueLoans() {
+        DatasetGenerator generator = generator(3);
+        generator.setOverdueFraction(1.0);
+        generator.generate(tempDir);
+        List<Loan> all = new FileStorage(tempDir.toString()).loadLoans();
+        assertTrue(all.stream().filter(l -> !l.isReturned()).allMatch(l -> l.isOverdue(TODAY)));
+
+        generator.setOverdueFraction(0.0);
+        generator.generate(tempDir);
+        all = new FileStorage(tempDir.toString()).loadLoans();
+        assertTrue(all.stream().noneMatch(l -> l.isOverdue(TODAY)));
+    }
+
+    @Test
+    void generate_bookPopularityIsSkewed() {
+        generator(5).generate(tempDir);
+
+        Map<String, Integer> perBook = new HashMap<>();
+        for (Loan loan : new FileStorage(tempDir.toString()).loadLoans()) {
+            perBook.merge(loan.getBookId(), 1, Integer::sum);
+        }
+        int top = perBook.values().stream().mapToInt(Integer::intValue).max().orElse(0);
+
+        // Zipf with exponent 1 over 1000 books gives the top book about 13% of the loans
+        assertTrue(top > 20000 / 1000 * 50, "top book had " + top + " loans");
+        assertTrue(perBook.size() > 500);
+    }
+
+    @Test
+    void generate_removesJournalOfPreviousData() throws IOException {
+        Files.write(tempDir.resolve("loans.journal"), List.of("ADD;L1;U1;B1;2025-01-01;2025-01-29;;BOOK"));
+
+        generator(1).generate(tempDir);
+
+        assertFalse(Files.exists(tempDir.resolve("loans.journal")));
+    }
+
+    @Test
+    void constructor_rejectsLoansWithoutBooks() {
+        assertThrows(IllegalArgumentException.class, () -> new DatasetGenerator(10, 0, 5, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new DatasetGenerator(-1, 10, 0, 0, 1));
+    }
+
+    @Test
+    void zipfSampler_staysInRange() {
+        DatasetGenerator.ZipfSampler sampler = new DatasetGenerator.ZipfSampler(10, 1.2);
+        SplittableRandom random = new SplittableRandom(1);
+        int[] counts = new int[11];
+        for (int i = 0; i < 10000; i++) {
+            counts[sampler.sample(random)]++;
+        }
+        assertEquals(0, counts[0]);
+        assertTrue(counts[1] > counts[2] && counts[2] > counts[10]);
+    }
+}
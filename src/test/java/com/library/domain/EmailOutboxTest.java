@@ -0,0 +1,119 @@
+package com.library.domain;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmailOutboxTest {
+
+    @TempDir
+    Path tempDir;
+
+    private EmailOutbox open(int threshold) {
+        return new EmailOutbox(tempDir.resolve("outbox.txt"), threshold);
+    }
+
+    @Test
+    void replay_restoresUndeliveredMessagesAndAttempts() {
+        EmailOutbox outbox = open(100);
+        String a = outbox.enqueue(new EmailMessage("a@example.com", "Line; one", "Hi\nthere"), 1000);
+        String b = outbox.enqueue(new EmailMessage("b@example.com", "S", "B"), 1000);
+        String c = outbox.enqueue(new EmailMessage("c@example.com", "S", "B"), 1000);
+        outbox.markSent(a, 2000);
+        outbox.markFailed(b, 5000, "Timeout");
+        outbox.markDead(c, 3000, "Mailbox unavailable");
+
+        EmailOutbox reopened = open(100);
+
+        List<OutboxEntry> pending = reopened.pending();
+        assertEquals(1, pending.size());
+        assertEquals(b, pending.get(0).getId());
+        assertEquals(1, pending.get(0).getAttempts());
+        assertEquals(5000, pending.get(0).getNextAttemptAt());
+        assertEquals("Timeout", pending.get(0).getLastError());
+        assertTrue(reopened.due(4999).isEmpty());
+        assertEquals(1, reopened.due(5000).size());
+        assertEquals(List.of(c), List.of(reopened.deadLetters().get(0).getId()));
+        assertEquals("M4", reopened.enqueue(new EmailMessage("d@example.com", "S", "B"), 6000));
+    }
+
+    @Test
+    void replay_keepsMessageTextIntact() {
+        open(100).enqueue(new EmailMessage("a@example.com", "Line; one", "Dear A,\n\n- Book ID: B1\n"), 1000);
+
+        EmailMessage m = open(100).pending().get(0).getMessage();
+
+        assertEquals("a@example.com", m.getTo());
+        assertEquals("Line; one", m.getSubject());
+        assertEquals("Dear A,\n\n- Book ID: B1\n", m.getBody());
+    }
+
+    @Test
+    void append_dropsRecordTornByCrash() throws IOException {
+        EmailOutbox outbox = open(100);
+        String a = outbox.enqueue(new EmailMessage("a@example.com", "S", "B"), 1000);
+        Files.write(tempDir.resolve("outbox.txt"), "S;M1;20".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+
+        EmailOutbox reopened = open(100);
+        assertEquals(a, reopened.pending().get(0).getId());
+
+        reopened.enqueue(new EmailMessage("b@example.com", "S", "B"), 2000);
+        assertEquals(2, open(100).pending().size());
+    }
+
+    @Test
+    void compaction_dropsDeliveredMessagesButNotIds() throws IOException {
+        EmailOutbox outbox = open(4);
+        String a = outbox.enqueue(new EmailMessage("a@example.com", "S", "B"), 1000);
+        String b = outbox.enqueue(new EmailMessage("b@example.com", "S", "B"), 1000);
+        outbox.markFailed(b, 4000, "Timeout");
+        outbox.markSent(a, 2000);
+
+        List<String> lines = Files.readAllLines(tempDir.resolve("outbox.txt"));
+        assertEquals(3, lines.size(), "marker, queued and failed records of the pending message");
+
+        EmailOutbox reopened = open(4);
+        assertEquals(1, reopened.pending().size());
+        assertEquals(1, reopened.pending().get(0).getAttempts());
+        assertEquals("M3", reopened.enqueue(new EmailMessage("c@example.com", "S", "B"), 5000));
+    }
+
+    @Test
+    void enqueue_withKnownKey_queuesNothing() {
+        EmailOutbox outbox = open(100);
+        String a = outbox.enqueue(new EmailMessage("a@example.com", "S", "B"), "reminder:U1:2025-03-01", 1000);
+
+        assertEquals(a, outbox.enqueue(new EmailMessage("a@example.com", "S", "B2"), "reminder:U1:2025-03-01", 2000));
+        assertEquals(1, outbox.pending().size());
+
+        outbox.markSent(a, 3000);
+        EmailOutbox reopened = open(100);
+        assertEquals(a, reopened.enqueue(new EmailMessage("a@example.com", "S", "B"), "reminder:U1:2025-03-01", 4000));
+        assertTrue(reopened.pending().isEmpty());
+
+        reopened.enqueue(new EmailMessage("a@example.com", "S", "B"), "reminder:U1:2025-03-02", 5000);
+        assertEquals(1, open(100).pending().size());
+    }
+
+    @Test
+    void compaction_keepsDeliveredKeysUntilRetentionEnds() {
+        EmailOutbox outbox = open(2);
+        String a = outbox.enqueue(new EmailMessage("a@example.com", "S", "B"), "k1", 1000);
+        outbox.markSent(a, 2000);
+
+        EmailOutbox reopened = open(2);
+        assertEquals(a, reopened.enqueue(new EmailMessage("a@example.com", "S", "B"), "k1", 3000));
+
+        reopened.compact(1000 + EmailOutbox.KEY_RETENTION_MILLIS + 1);
+        assertNotEquals(a, open(2).enqueue(new EmailMessage("a@example.com", "S", "B"), "k1", 4000));
+    }
+}
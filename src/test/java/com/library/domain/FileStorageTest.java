@@ -7,7 +7,10 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -313,4 +316,179 @@ class FileStorageTest {
         assertEquals(MediaType.CD, loans.get(0).getMediaType());
     }
 
+    @Test
+    void appendLoan_writesJournalOnly_andIsVisibleOnLoad() throws IOException {
+        FileStorage storage = newStorage();
+        LocalDate borrow = LocalDate.of(2024, 1, 1);
+
+        storage.saveLoans(List.of(
+                new Loan("L1", "U1", "B1", borrow, borrow.plusDays(28), null)));
+        String snapshotBefore = Files.readString(tempDir.resolve("loans.txt"));
+
+        storage.appendLoan(new Loan("L2", "U2", "CD1", borrow, borrow.plusDays(7), null, MediaType.CD));
+
+        assertEquals(snapshotBefore, Files.readString(tempDir.resolve("loans.txt")));
+        assertEquals(1, Files.readAllLines(tempDir.resolve("loans.journal")).size());
+
+        List<Loan> loaded = storage.loadLoans();
+        assertEquals(2, loaded.size());
+        assertEquals("L2", loaded.get(1).getId());
+        assertEquals(MediaType.CD, loaded.get(1).getMediaType());
+    }
+
+    @Test
+    void appendLoanReturn_marksLoanReturnedOnReplay() {
+        FileStorage storage = newStorage();
+        LocalDate borrow = LocalDate.of(2024, 1, 1);
+
+        storage.appendLoan(new Loan("L1", "U1", "B1", borrow, borrow.plusDays(28), null));
+        storage.appendLoanReturn("L1", LocalDate.of(2024, 1, 5));
+
+        Loan loan = storage.loadLoans().get(0);
+        assertEquals(LocalDate.of(2024, 1, 5), loan.getReturnDate());
+    }
+
+    @Test
+    void saveLoans_discardsJournal() {
+        FileStorage storage = newStorage();
+        LocalDate borrow = LocalDate.of(2024, 1, 1);
+
+        storage.appendLoan(new Loan("L1", "U1", "B1", borrow, borrow.plusDays(28), null));
+        storage.saveLoans(List.of());
+
+        assertFalse(Files.exists(tempDir.resolve("loans.journal")));
+        assertTrue(storage.loadLoans().isEmpty());
+    }
+
+    @Test
+    void loanJournal_isCompactedIntoSnapshotAtThreshold() throws IOException {
+        FileStorage storage = new FileStorage(tempDir.toString(), 3);
+        LocalDate borrow = LocalDate.of(2024, 1, 1);
+
+        storage.appendLoan(new Loan("L1", "U1", "B1", borrow, borrow.plusDays(28), null));
+        storage.appendLoan(new Loan("L2", "U1", "B2", borrow, borrow.plusDays(28), null));
+        assertTrue(Files.exists(tempDir.resolve("loans.journal")));
+
+        storage.appendLoanReturn("L1", borrow.plusDays(3));
+
+        assertFalse(Files.exists(tempDir.resolve("loans.journal")));
+        assertEquals(2, Files.readAllLines(tempDir.resolve("loans.txt")).size());
+        List<Loan> loaded = storage.loadLoans();
+        assertTrue(loaded.get(0).isReturned());
+        assertFalse(loaded.get(1).isReturned());
+    }
+
+    @Test
+    void loadLoans_skipsTornJournalRecord_andNextAppendStartsOnNewLine() throws IOException {
+        Files.writeString(tempDir.resolve("loans.journal"), "ADD;L1;U1;B1;2024-01");
+
+        FileStorage storage = newStorage();
+        assertTrue(storage.loadLoans().isEmpty());
+
+        storage.appendLoan(new Loan("L2", "U1", "B2",
+                LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 29), null));
+
+        List<Loan> loaded = storage.loadLoans();
+        assertEquals(1, loaded.size());
+        assertEquals("L2", loaded.get(0).getId());
+    }
+
+    @Test
+    void forEachBook_stopsWhenVisitorReturnsFalse() throws IOException {
+        Files.writeString(tempDir.resolve("books.txt"),
+                "B1;T1;A1;111;false\nB2;T2;A2;222;true\nB3;T3;A3;333;false\n");
+
+        FileStorage storage = newStorage();
+        List<String> seen = new ArrayList<>();
+        boolean completed = storage.forEachBook(b -> {
+            seen.add(b.getId());
+            return !b.isBorrowed();
+        });
+
+        assertFalse(completed);
+        assertEquals(List.of("B1", "B2"), seen);
+        assertTrue(storage.forEachBook(b -> true));
+    }
+
+    @Test
+    void streamLoans_isLazy_andAppliesJournalReturns() {
+        FileStorage storage = newStorage();
+        LocalDate borrow = LocalDate.of(2024, 1, 1);
+
+        storage.saveLoans(List.of(
+                new Loan("L1", "U1", "B1", borrow, borrow.plusDays(28), null),
+                new Loan("L2", "U2", "B2", borrow, borrow.plusDays(28), null)));
+        storage.appendLoan(new Loan("L3", "U1", "B3", borrow, borrow.plusDays(28), null));
+        storage.appendLoanReturn("L2", borrow.plusDays(2));
+        storage.appendLoanReturn("L3", borrow.plusDays(4));
+
+        try (Stream<Loan> loans = storage.streamLoans()) {
+            List<Loan> returned = loans.filter(Loan::isReturned)
+                    .collect(Collectors.toList());
+            assertEquals(2, returned.size());
+            assertEquals(borrow.plusDays(2), returned.get(0).getReturnDate());
+            assertEquals("L3", returned.get(1).getId());
+        }
+        try (Stream<Loan> loans = storage.streamLoans()) {
+            assertEquals("L1", loans.findFirst().orElseThrow().getId());
+        }
+    }
+
+    @Test
+    void compactLoans_streamsJournalIntoSnapshot() throws IOException {
+        FileStorage storage = newStorage();
+        LocalDate borrow = LocalDate.of(2024, 1, 1);
+
+        storage.saveLoans(List.of(new Loan("L1", "U1", "B1", borrow, borrow.plusDays(28), null)));
+        storage.appendLoan(new Loan("L2", "U1", "B2", borrow, borrow.plusDays(28), null));
+        storage.appendLoanReturn("L1", borrow.plusDays(1));
+
+        storage.compactLoans();
+
+        assertFalse(Files.exists(tempDir.resolve("loans.journal")));
+        List<Loan> loaded = storage.loadLoans();
+        assertEquals(2, loaded.size());
+        assertTrue(loaded.get(0).isReturned());
+        assertFalse(loaded.get(1).isReturned());
+    }
+
+    @Test
+    void bookCheckout_isOneJournalRecord_andFoldedIntoBooksOnCompaction() throws IOException {
+        Path books = tempDir.resolve("books.txt");
+        Files.writeString(books, "B1;Dune;Herbert;111;false\nB2;Emma;Austen;222;false\n");
+        FileStorage storage = newStorage();
+        LocalDate borrow = LocalDate.of(2024, 1, 1);
+        Loan l1 = new Loan("L1", "U1", "B1", borrow, borrow.plusDays(28), null);
+
+        storage.appendLoan(l1);
+        storage.appendLoan(new Loan("L2", "U1", "B2", borrow, borrow.plusDays(28), null));
+        storage.appendLoanReturn(l1, borrow.plusDays(3));
+
+        assertEquals("B1;Dune;Herbert;111;false\nB2;Emma;Austen;222;false\n", Files.readString(books));
+        List<Book> loaded = storage.loadBooks();
+        assertFalse(loaded.get(0).isBorrowed());
+        assertTrue(loaded.get(1).isBorrowed());
+
+        storage.compactLoans();
+
+        assertFalse(Files.exists(tempDir.resolve("loans.journal")));
+        assertEquals(List.of("B1;Dune;Herbert;111;false", "B2;Emma;Austen;222;true"),
+                Files.readAllLines(books));
+    }
+
+    @Test
+    void appendLoan_cutsOffTornRecordBeforeAppending() throws IOException {
+        Path journal = tempDir.resolve("loans.journal");
+        Files.writeString(journal, "ADD;L1;U1;B1;2024-01-01;2024-01-29;;BOOK\nRET;L1;2024-01-0");
+
+        FileStorage storage = newStorage();
+        assertFalse(storage.loadLoans().get(0).isReturned());
+
+        storage.appendLoan(new Loan("L2", "U1", "B2",
+                LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 29), null));
+
+        List<String> lines = Files.readAllLines(journal);
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(1).startsWith("ADD;L2;"));
+    }
 }
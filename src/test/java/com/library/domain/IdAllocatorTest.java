@@ -0,0 +1,82 @@
+package com.library.domain;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdAllocatorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void next_startsAfterHighestStoredId_evenWithDuplicates() throws IOException {
+        Files.write(tempDir.resolve("books.txt"), List.of(
+                "B1;Dune;Herbert;111;false",
+                "B2;Emma;Austen;222;false",
+                "B2;Ulysses;Joyce;333;false",
+                "X7;Other;Someone;444;false"));
+
+        IdAllocator ids = new FileStorage(tempDir.toString()).ids();
+
+        assertEquals("B3", ids.next("B"));
+        assertEquals("B4", ids.next("B"));
+        assertEquals("L1", ids.next("L"));
+    }
+
+    @Test
+    void next_reservesBlocks_andNeverRepeatsAcrossInstances() throws IOException {
+        Path file = tempDir.resolve("sequences.txt");
+        IdAllocator first = new IdAllocator(file, 4, prefix -> 0);
+
+        assertEquals("F1", first.next("F"));
+        assertEquals(List.of("F;5"), Files.readAllLines(file));
+        first.next("F");
+        first.next("F");
+        first.next("F");
+        assertEquals(List.of("F;5"), Files.readAllLines(file));
+
+        IdAllocator second = new IdAllocator(file, 4, prefix -> 0);
+        Set<String> seen = new HashSet<>(List.of("F1", "F2", "F3", "F4"));
+        for (int i = 0; i < 10; i++) {
+            assertTrue(seen.add(first.next("F")));
+            assertTrue(seen.add(second.next("F")));
+        }
+    }
+
+    @Test
+    void next_scansDataOnlyWhenNoSequenceIsRecorded() throws IOException {
+        Path file = tempDir.resolve("sequences.txt");
+        AtomicInteger scans = new AtomicInteger();
+        new IdAllocator(file, 4, prefix -> {
+            scans.incrementAndGet();
+            return 10;
+        }).next("L");
+        assertEquals(1, scans.get());
+
+        IdAllocator restarted = new IdAllocator(file, 4, prefix -> {
+            scans.incrementAndGet();
+            return 10;
+        });
+
+        assertEquals("L15", restarted.next("L"));
+        assertEquals(1, scans.get());
+    }
+
+    @Test
+    void numberOf_ignoresOtherShapes() {
+        assertEquals(12, IdAllocator.numberOf("L12", "L"));
+        assertEquals(0, IdAllocator.numberOf("LB3", "L"));
+        assertEquals(0, IdAllocator.numberOf("L", "L"));
+        assertEquals(0, IdAllocator.numberOf(null, "L"));
+    }
+}
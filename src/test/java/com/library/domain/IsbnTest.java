@@ -0,0 +1,25 @@
+package com.library.domain;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class IsbnTest {
+
+    @Test
+    void normalize_stripsSeparatorsAndCase() {
+        assertEquals("9780306406157", Isbn.normalize("978-0-306-40615-7"));
+        assertEquals("ABC1", Isbn.normalize(" abc-1 "));
+        assertNull(Isbn.normalize(null));
+    }
+
+    @Test
+    void normalize_convertsValidIsbn10ToIsbn13() {
+        assertEquals("9780306406157", Isbn.normalize("0-306-40615-2"));
+        assertEquals(Isbn.normalize("9780804429573"), Isbn.normalize("080442957x"));
+    }
+
+    @Test
+    void normalize_leavesInvalidIsbn10Unchanged() {
+        assertEquals("0306406153", Isbn.normalize("0306406153"));
+    }
+}
@@ -0,0 +1,80 @@
+package com.library.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void percentile_isWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long v = 1; v <= 100_000; v++) {
+            histogram.record(v * 1000);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(100_000, snapshot.getCount());
+        assertEquals(100_000_000L, snapshot.getMax());
+        assertEquals(50_000_500.0, snapshot.getMean(), 1.0);
+        assertEquals(50_000_000, snapshot.percentile(0.50), 50_000_000 * 0.04);
+        assertEquals(99_000_000, snapshot.percentile(0.99), 99_000_000 * 0.04);
+        assertEquals(99_900_000, snapshot.percentile(0.999), 99_900_000 * 0.04);
+        assertEquals(100_000_000L, snapshot.percentile(1.0));
+    }
+
+    @Test
+    void bucket_containsItsValue() {
+        for (long v : new long[]{0, 1, 31, 32, 33, 63, 64, 1000, 123_456_789, Long.MAX_VALUE}) {
+            int index = LatencyHistogram.index(v);
+            assertTrue(LatencyHistogram.upperBound(index) >= v, "upper bound of " + v);
+            assertTrue(index == 0 || LatencyHistogram.upperBound(index - 1) < v, "lower bound of " + v);
+        }
+    }
+
+    @Test
+    void emptyHistogram_reportsZero() {
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram().snapshot();
+
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.percentile(0.99));
+        assertEquals(0.0, snapshot.getMean());
+    }
+
+    @Test
+    void record_fromManyThreads_losesNothing() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        int threads = 8;
+        int perThread = 50_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long base = t;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    histogram.record(base * 1000 + i % 100);
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals((long) threads * perThread, snapshot.getCount());
+        assertEquals(7099, snapshot.getMax());
+    }
+}
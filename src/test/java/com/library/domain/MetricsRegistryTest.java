@@ -0,0 +1,62 @@
+package com.library.domain;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsRegistryTest {
+
+    private final MetricsRegistry registry = new MetricsRegistry();
+
+    @Test
+    void counter_isSharedByName() {
+        registry.counter("a").increment();
+        registry.counter("a").add(4);
+
+        assertEquals(5, registry.counter("a").count());
+        assertEquals(5L, registry.snapshot().getCounters().get("a"));
+    }
+
+    @Test
+    void timer_recordsEvenWhenOperationThrows() {
+        MetricsRegistry.Timer timer = registry.timer("op");
+
+        assertEquals("x", timer.time(() -> "x"));
+        assertThrows(IllegalStateException.class, () -> timer.time(() -> {
+            throw new IllegalStateException("boom");
+        }));
+
+        assertEquals(2, registry.snapshot().getTimers().get("op").getCount());
+    }
+
+    @Test
+    void gauge_isReadAtSnapshot_andFailureIsNaN() {
+        double[] value = {1};
+        registry.gauge("g", () -> value[0]);
+        registry.gauge("broken", () -> {
+            throw new IllegalStateException();
+        });
+        value[0] = 42;
+
+        MetricsRegistry.Snapshot snapshot = registry.snapshot();
+
+        assertEquals(42.0, snapshot.getGauges().get("g"));
+        assertTrue(Double.isNaN(snapshot.getGauges().get("broken")));
+    }
+
+    @Test
+    void dump_listsUsedTimersCountersAndGauges() {
+        registry.timer("loan.borrowBook").record(2_000_000);
+        registry.timer("never.used");
+        registry.counter("auth.login.failed").increment();
+        registry.gauge("outbox.pending", () -> 3);
+
+        String dump = registry.dump();
+
+        assertTrue(dump.contains("loan.borrowBook"));
+        assertTrue(dump.contains("2.000"));
+        assertFalse(dump.contains("never.used"));
+        assertTrue(dump.contains("auth.login.failed"));
+        assertTrue(dump.contains("outbox.pending"));
+    }
+}
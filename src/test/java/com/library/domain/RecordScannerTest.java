@@ -0,0 +1,119 @@
+package com.library.domain;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link RecordScanner}.
+ */
+class RecordScannerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path write(String content) throws IOException {
+        Path file = tempDir.resolve("records.txt");
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @Test
+    void tokenizesFields_andSkipsBlankLines() throws IOException {
+        Path file = write("B1;Dune;Herbert;111;TRUE\n\n   \r\nB2;Emma;Austen;222;false\r\n");
+
+        try (RecordScanner r = RecordScanner.open(file)) {
+            assertTrue(r.next());
+            assertEquals(5, r.fieldCount());
+            assertEquals("Dune", r.field(1));
+            assertTrue(r.booleanField(4));
+
+            assertTrue(r.next());
+            assertEquals("B2", r.field(0));
+            assertEquals("false", r.field(4));
+            assertFalse(r.booleanField(4));
+
+            assertFalse(r.next());
+        }
+    }
+
+    @Test
+    void countsTrailingEmptyFieldsLikeSplit() throws IOException {
+        Path file = write("L1;U1;B1;2024-01-01;2024-01-29;;\n");
+
+        try (RecordScanner r = RecordScanner.open(file)) {
+            assertTrue(r.next());
+            assertEquals(7, r.fieldCount());
+            assertEquals(5, r.nonEmptyFieldCount());
+            assertTrue(r.isEmpty(5));
+            assertTrue(r.isBlank(6));
+        }
+    }
+
+    @Test
+    void decodesUtf8AndParsesDates() throws IOException {
+        Path file = write("U1;أسيل;a@b.com;2024-02-29;+12024-01-01\n");
+
+        try (RecordScanner r = RecordScanner.open(file)) {
+            assertTrue(r.next());
+            assertEquals("أسيل", r.field(1));
+            assertTrue(r.fieldEquals(0, "U1"));
+            assertFalse(r.fieldEquals(0, "U2"));
+            assertEquals(LocalDate.of(2024, 2, 29), r.dateField(3));
+            assertEquals(LocalDate.of(12024, 1, 1), r.dateField(4));
+        }
+    }
+
+    @Test
+    void invalidDate_isRejected() throws IOException {
+        Path file = write("2024-02-30\n");
+
+        try (RecordScanner r = RecordScanner.open(file)) {
+            assertTrue(r.next());
+            assertThrows(java.time.DateTimeException.class, () -> r.dateField(0));
+        }
+    }
+
+    @Test
+    void largeFile_isReadInWindowsEndingOnLineBreaks() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int lines = 0;
+        while (sb.length() < RecordScanner.DIRECT_THRESHOLD + 1000) {
+            sb.append("F").append(lines).append(";U").append(lines % 7).append(";12.5;false\n");
+            lines++;
+        }
+        Path file = write(sb.toString());
+
+        List<String> ids = new ArrayList<>();
+        try (RecordScanner r = RecordScanner.open(file, 4096)) {
+            while (r.next()) {
+                ids.add(r.field(0));
+                assertEquals(12.5, r.doubleField(2));
+            }
+        }
+
+        assertEquals(lines, ids.size());
+        assertEquals("F0", ids.get(0));
+        assertEquals("F" + (lines - 1), ids.get(lines - 1));
+    }
+
+    @Test
+    void lastLineWithoutNewline_isRead() throws IOException {
+        Path file = write("A1;Admin;admin@x.com;pw");
+
+        try (RecordScanner r = RecordScanner.open(file)) {
+            assertTrue(r.next());
+            assertEquals("pw", r.field(3));
+            assertFalse(r.next());
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.library.domain;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReminderLogTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static final LocalDate DAY = LocalDate.of(2025, 3, 1);
+
+    private ReminderLog open() {
+        return new ReminderLog(tempDir.resolve("reminders.txt"));
+    }
+
+    @Test
+    void record_isVisibleAfterReopen() {
+        open().record(List.of("L1", "L2"), DAY);
+
+        ReminderLog log = open();
+
+        assertEquals(DAY, log.lastReminded("L1"));
+        assertEquals(DAY, log.lastReminded("L2"));
+        assertNull(log.lastReminded("L3"));
+        assertEquals(2, log.size());
+    }
+
+    @Test
+    void load_keepsLatestDate_andReadsTierLines() throws IOException {
+        Files.write(tempDir.resolve("reminders.txt"), List.of(
+                "L1;0;2025-03-01",
+                "L1;2025-03-08",
+                "L2;2025-03-05",
+                "L2;2025-03-02"));
+
+        ReminderLog log = open();
+
+        assertEquals(DAY.plusDays(7), log.lastReminded("L1"));
+        assertEquals(DAY.plusDays(4), log.lastReminded("L2"));
+    }
+
+    @Test
+    void load_skipsTornLastLine() throws IOException {
+        open().record(List.of("L1"), DAY);
+        Files.write(tempDir.resolve("reminders.txt"), "L2;2025-03".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+
+        ReminderLog log = open();
+        assertNull(log.lastReminded("L2"));
+
+        log.record(List.of("L3"), DAY);
+        assertEquals(2, Files.readAllLines(tempDir.resolve("reminders.txt")).size());
+    }
+
+    @Test
+    void retainLoans_dropsOtherLoansAndSupersededLines() throws IOException {
+        ReminderLog log = open();
+        log.record(List.of("L1", "L2"), DAY);
+        log.record(List.of("L2"), DAY.plusDays(7));
+
+        log.retainLoans(Set.of("L2"));
+
+        assertNull(log.lastReminded("L1"));
+        assertEquals(List.of("L2;" + DAY.plusDays(7)), Files.readAllLines(tempDir.resolve("reminders.txt")));
+        ReminderLog reopened = open();
+        assertEquals(DAY.plusDays(7), reopened.lastReminded("L2"));
+        assertNull(reopened.lastReminded("L1"));
+    }
+}
@@ -0,0 +1,35 @@
+package com.library.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextIndexTest {
+
+    @Test
+    void tokens_splitOnNonWordCharactersAndLowerCase() {
+        assertEquals(List.of("harry", "potter", "2"), TextIndex.tokens("Harry Potter (2)"));
+        assertEquals(List.of("o", "brien"), TextIndex.tokens("O'Brien"));
+        assertTrue(TextIndex.tokens("  ").isEmpty());
+    }
+
+    @Test
+    void search_requiresEveryWord_andRanksExactMatchesFirst() {
+        TextIndex<String> index = new TextIndex<>(Function.identity());
+        index.add("Javanese Cooking");
+        index.add("Java Programming");
+        index.add("Programming Pearls");
+        index.add("Java");
+
+        assertEquals(List.of("Java", "Java Programming", "Javanese Cooking"), index.search("java"));
+        assertEquals(List.of("Java Programming"), index.search("PROG jav"));
+        assertTrue(index.search("java pearls").isEmpty());
+        assertEquals(4, index.search("").size());
+
+        index.clear();
+        assertTrue(index.search("java").isEmpty());
+    }
+}
@@ -1,5 +1,6 @@
 package com.library.service;
 
+import com.library.domain.AccountRepository;
 import com.library.domain.Admin;
 import com.library.domain.FileStorage;
 import org.junit.jupiter.api.BeforeEach;
@@ -9,6 +10,7 @@ import org.junit.jupiter.api.io.TempDir;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -216,4 +218,43 @@ class AuthServiceTest {
         assertFalse(authService.isUserLoggedIn());
     }
 
+    /**
+     * Verifies that token sessions for several accounts coexist and are
+     * independent of the console login.
+     */
+    @Test
+    void openSession_allowsConcurrentLoginsOfDifferentRoles() {
+        AuthSession admin = authService.openSession(AuthSession.Role.ADMIN, "admin@example.com", "1234");
+        AuthSession user = authService.openSession(AuthSession.Role.USER, "USER@example.com", "userpwd");
+
+        assertNull(authService.openSession(AuthSession.Role.LIBRARIAN, "librarian@example.com", "bad"));
+        assertEquals("Admin One", authService.getSession(admin.getToken()).getAccount().getName());
+        assertEquals(AuthSession.Role.USER, authService.getSession(user.getToken()).getRole());
+        assertFalse(authService.isAdminLoggedIn(), "Token sessions do not log in the console");
+
+        authService.logout(admin.getToken());
+        assertNull(authService.getSession(admin.getToken()));
+        assertNotNull(authService.getSession(user.getToken()));
+    }
+
+    /**
+     * Verifies that the console login outlives the session store's
+     * timeouts, which apply to token sessions only.
+     */
+    @Test
+    void consoleLogin_doesNotExpireWithTokenSessions() {
+        FileStorage storage = new FileStorage(tempDir.toString());
+        SessionStoreTest.ManualClock clock = new SessionStoreTest.ManualClock();
+        AuthService service = new AuthService(AccountRepository.admins(storage),
+                AccountRepository.librarians(storage), AccountRepository.users(storage),
+                new SessionStore(Duration.ofMinutes(5), Duration.ofMinutes(30), clock));
+
+        service.login("admin@example.com", "1234");
+        AuthSession token = service.openSession(AuthSession.Role.USER, "user@example.com", "userpwd");
+        clock.advance(Duration.ofHours(24));
+
+        assertNull(service.getSession(token.getToken()));
+        assertTrue(service.isAdminLoggedIn());
+        assertEquals("Admin One", service.getCurrentAdmin().getName());
+    }
 }
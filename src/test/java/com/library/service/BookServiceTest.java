@@ -150,4 +150,34 @@ class BookServiceTest {
         Book notFound = bookService.searchByIsbn("999");
         assertNull(notFound);
     }
+
+    /**
+     * Ensures ISBNs are compared after normalization, so hyphenated and
+     * ISBN-10 spellings of an existing ISBN are treated as duplicates.
+     */
+    @Test
+    void addBook_detectsDuplicateIsbnInAnotherForm() {
+        Book added = bookService.addBook("Book1", "A", "978-0-306-40615-7");
+        assertNotNull(added);
+
+        assertNull(bookService.addBook("Book1 again", "A", "0306406152"));
+        assertEquals(added.getId(), bookService.searchByIsbn("0-306-40615-2").getId());
+    }
+
+    /**
+     * Verifies that multi-word title searches require every word and
+     * that books added later are found immediately.
+     */
+    @Test
+    void searchByTitle_matchesAllWordsByPrefix() {
+        bookService.addBook("Java Programming", "A", "1");
+        bookService.addBook("Advanced Java", "B", "2");
+
+        assertEquals(1, bookService.searchByTitle("java prog").size());
+
+        bookService.addBook("Programming in Java", "C", "3");
+        List<Book> result = bookService.searchByTitle("prog java");
+        assertEquals(2, result.size());
+        assertEquals("Java Programming", result.get(0).getTitle());
+    }
 }
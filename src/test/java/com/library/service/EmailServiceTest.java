@@ -1,28 +1,24 @@
 package com.library.service;
 
+import com.library.domain.EmailMessage;
 import org.junit.jupiter.api.Test;
-import org.mockito.MockedStatic;
 
-import javax.mail.Message;
 import javax.mail.MessagingException;
-import javax.mail.Transport;
+import java.time.Duration;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.mockStatic;
 
 /**
  * Unit tests for the {@link EmailService} class.
  *
- * <p>This test suite verifies the behavior of the email-sending logic by
- * mocking the JavaMail {@link Transport} class. No real network operation
- * is performed; instead, the static send method is intercepted to validate
- * correct invocation and exception handling.</p>
+ * <p>The service is run over the in-memory and fault-injecting transports,
+ * so no network operation is performed.</p>
  *
  * <p>The tests ensure:</p>
  * <ul>
- *   <li>Email sending succeeds when Transport.send executes normally.</li>
- *   <li>MessagingException thrown by Transport.send is wrapped into a RuntimeException.</li>
+ *   <li>Messages are handed to the transport.</li>
+ *   <li>MessagingException thrown by the transport is wrapped into a RuntimeException.</li>
  * </ul>
  *
  * @author Maram
@@ -30,48 +26,44 @@ import static org.mockito.Mockito.mockStatic;
  */
 class EmailServiceTest {
 
-    /**
-     * Ensures that {@link EmailService#sendEmail(String, String, String)}
-     * successfully invokes {@link Transport#send(Message)} without throwing
-     * exceptions. Uses Mockito's {@link MockedStatic} to mock the static method.
-     */
     @Test
-    void sendEmail_invokesTransportSendSuccessfully() {
-        EmailService service = new EmailService("sender@example.com", "password");
+    void sendEmail_handsMessageToTransport() {
+        InMemoryMailTransport transport = new InMemoryMailTransport();
+        EmailService service = new EmailService(transport);
 
-        try (MockedStatic<Transport> transportMock = mockStatic(Transport.class)) {
+        service.sendEmail("to@example.com", "Subject", "Body");
 
-            assertDoesNotThrow(() ->
-                    service.sendEmail("to@example.com", "Subject", "Body")
-            );
-
-            transportMock.verify(() ->
-                    Transport.send(any(Message.class))
-            );
-        }
+        EmailMessage sent = transport.messages().get(0);
+        assertEquals("to@example.com", sent.getTo());
+        assertEquals("Subject", sent.getSubject());
+        assertEquals("Body", sent.getBody());
     }
 
-    /**
-     * Verifies that when {@link Transport#send(Message)} throws a
-     * {@link MessagingException}, the EmailService correctly wraps it
-     * inside a {@link RuntimeException}. This ensures consistent error
-     * propagation and prevents checked exceptions from leaking outward.
-     */
     @Test
     void sendEmail_whenTransportFails_wrapsMessagingException() {
-        EmailService service = new EmailService("sender@example.com", "password");
+        EmailService service = new EmailService(new FaultInjectingMailTransport(
+                new InMemoryMailTransport(), Duration.ZERO, 1.0, 1));
+
+        RuntimeException ex = assertThrows(RuntimeException.class,
+                () -> service.sendEmail("to@example.com", "Subject", "Body")
+        );
 
-        try (MockedStatic<Transport> transportMock = mockStatic(Transport.class)) {
+        assertTrue(ex.getCause() instanceof MessagingException);
+    }
 
-            transportMock.when(() ->
-                    Transport.send(any(Message.class))
-            ).thenThrow(new MessagingException("SMTP error"));
+    @Test
+    void sendBatch_skipsFailedMessages() {
+        InMemoryMailTransport sink = new InMemoryMailTransport();
+        EmailService service = new EmailService(new FaultInjectingMailTransport(
+                sink, Duration.ZERO, 0.5, 7));
+        List<EmailMessage> batch = List.of(
+                new EmailMessage("a@example.com", "S", "B"),
+                new EmailMessage("b@example.com", "S", "B"),
+                new EmailMessage("c@example.com", "S", "B"),
+                new EmailMessage("d@example.com", "S", "B"));
 
-            RuntimeException ex = assertThrows(RuntimeException.class,
-                    () -> service.sendEmail("to@example.com", "Subject", "Body")
-            );
+        int sent = service.sendBatch(batch);
 
-            assertTrue(ex.getCause() instanceof MessagingException);
-        }
+        assertEquals(sink.count(), sent);
     }
 }
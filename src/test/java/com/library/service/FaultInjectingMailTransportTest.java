@@ -0,0 +1,56 @@
+package com.library.service;
+
+import com.library.domain.EmailMessage;
+import org.junit.jupiter.api.Test;
+
+import javax.mail.MessagingException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FaultInjectingMailTransportTest {
+
+    private static int deliveries(long seed, double failureRate, int attempts) {
+        InMemoryMailTransport sink = new InMemoryMailTransport();
+        FaultInjectingMailTransport transport =
+                new FaultInjectingMailTransport(sink, Duration.ZERO, failureRate, seed);
+        for (int i = 0; i < attempts; i++) {
+            try {
+                transport.send(new EmailMessage("u" + i + "@example.com", "S", "B"));
+            } catch (MessagingException e) {
+                assertEquals("Injected failure", e.getMessage());
+            }
+        }
+        return sink.count();
+    }
+
+    @Test
+    void send_failsAboutTheConfiguredShareRepeatably() {
+        int delivered = deliveries(42, 0.25, 2000);
+
+        assertTrue(delivered > 1400 && delivered < 1600, "delivered " + delivered);
+        assertEquals(delivered, deliveries(42, 0.25, 2000));
+        assertEquals(2000, deliveries(42, 0, 2000));
+        assertEquals(0, deliveries(42, 1, 50));
+    }
+
+    @Test
+    void send_addsLatency() throws MessagingException {
+        FaultInjectingMailTransport transport = new FaultInjectingMailTransport(
+                new InMemoryMailTransport(), Duration.ofMillis(30), 0, 1);
+
+        long start = System.nanoTime();
+        transport.send(new EmailMessage("a@example.com", "S", "B"));
+
+        assertTrue(System.nanoTime() - start >= Duration.ofMillis(30).toNanos());
+    }
+
+    @Test
+    void constructor_rejectsInvalidSettings() {
+        InMemoryMailTransport sink = new InMemoryMailTransport();
+        assertThrows(IllegalArgumentException.class,
+                () -> new FaultInjectingMailTransport(sink, Duration.ofMillis(-1), 0, 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> new FaultInjectingMailTransport(sink, Duration.ZERO, 1.5, 1));
+    }
+}
@@ -0,0 +1,35 @@
+package com.library.service;
+
+import com.library.domain.EmailMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileMailTransportTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void send_appendsMessagesToFile() throws Exception {
+        Path file = tempDir.resolve("mail").resolve("sent.txt");
+        try (FileMailTransport transport = new FileMailTransport(file)) {
+            transport.send(new EmailMessage("a@example.com", "First", "Hello"));
+            transport.send(new EmailMessage("b@example.com", "Second", "Line 1\nLine 2"));
+        }
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals("To: a@example.com", lines.get(0));
+        assertEquals("Subject: First", lines.get(1));
+        assertTrue(lines.get(2).startsWith("Date: "));
+        assertEquals("Hello", lines.get(4));
+        assertEquals(".", lines.get(5));
+        assertEquals("To: b@example.com", lines.get(6));
+        assertEquals(2, lines.stream().filter("."::equals).count());
+    }
+}
@@ -214,7 +214,48 @@ class FineServiceTest {
         assertTrue(fines.stream().allMatch(f -> f.getUserId().equals("U1")));
     }
 
-}
+    /**
+     * Verifies that the running balance follows fines written to the
+     * file by someone else, and that reconciliation finds nothing to fix.
+     */
+    @Test
+    void outstandingBalance_tracksExternalChanges_andReconcilesClean() {
+        fineService.createFine("U1", 10.0);
+        assertEquals(10.0, fineService.getUserOutstandingBalance(" U1 "));
 
+        new FineService(storage).createFine("U1", 7.5);
+        assertEquals(17.5, fineService.getUserOutstandingBalance("U1"));
 
+        fineService.payFine("U1", 10.0);
+        assertEquals(7.5, fineService.getUserOutstandingBalance("U1"));
+        assertEquals(0, fineService.reconcileBalances());
+    }
 
+    /**
+     * Verifies that concurrent payments are applied one at a time, so
+     * none is lost and the ledger matches the stored fines.
+     */
+    @Test
+    void payFine_concurrentPayments_areAllApplied() throws InterruptedException {
+        for (int i = 0; i < 40; i++) {
+            fineService.createFine("U1", 5.0);
+        }
+
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10; i++) {
+                    fineService.payFine("U1", 2.0);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(40.0, fineService.getUserOutstandingBalance("U1"), 1e-9);
+        assertEquals(40.0, new FineService(storage).getUserOutstandingBalance("U1"), 1e-9);
+        assertEquals(0, fineService.reconcileBalances());
+    }
+}
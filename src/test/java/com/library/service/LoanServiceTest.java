@@ -1,8 +1,11 @@
 package com.library.service;
 
 import com.library.domain.Book;
+import com.library.domain.BookRepository;
 import com.library.domain.FileStorage;
 import com.library.domain.Loan;
+import com.library.domain.LoanRepository;
+import com.library.domain.MetricsRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -14,6 +17,11 @@ import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -113,6 +121,49 @@ class LoanServiceTest {
      * Ensures that borrowing a book that is already borrowed
      * throws an IllegalStateException.
      */
+    @Test
+    void borrowAndReturn_doNotReloadCatalog() {
+        int[] bookLoads = {0};
+        FileStorage counting = new FileStorage(tempDir.toString()) {
+            @Override
+            public List<Book> loadBooks() {
+                bookLoads[0]++;
+                return super.loadBooks();
+            }
+        };
+        BookRepository books = new BookRepository(counting);
+        LoanService service = new LoanService(new LoanRepository(counting), books);
+        assertNotNull(books.findById("B1"));
+        assertEquals(1, bookLoads[0]);
+
+        Loan loan = service.borrowBook("U1", "B1");
+        assertTrue(books.findById("B1").isBorrowed());
+        service.returnBook(loan.getId());
+        assertFalse(books.findById("B1").isBorrowed());
+        service.borrowCd("U1", "CD1");
+        books.findById("B1");
+
+        assertEquals(1, bookLoads[0]);
+    }
+
+    @Test
+    void borrowAndReturn_areTimed() {
+        MetricsRegistry metrics = MetricsRegistry.global();
+        long borrows = metrics.timer("loan.borrowBook").snapshot().getCount();
+        long returns = metrics.timer("loan.returnBook").snapshot().getCount();
+
+        Loan loan = loanService.borrowBook("U1", "B1");
+        loanService.returnBook(loan.getId());
+        assertThrows(IllegalStateException.class, () -> {
+            loanService.borrowBook("U1", "B1");
+            loanService.borrowBook("U2", "B1");
+        });
+        assertThrows(IllegalArgumentException.class, () -> loanService.returnBook("L-404"));
+
+        assertEquals(borrows + 3, metrics.timer("loan.borrowBook").snapshot().getCount());
+        assertEquals(returns + 2, metrics.timer("loan.returnBook").snapshot().getCount());
+    }
+
     @Test
     void borrowBook_onAlreadyBorrowedBook_throwsException() {
         loanService.borrowBook("U1", "B1");
@@ -318,4 +369,92 @@ class LoanServiceTest {
     void hasOverdueLoans_whenUserHasNoLoans_returnsFalse() {
         assertFalse(loanService.hasOverdueLoans("U999"));
     }
+
+    /**
+     * Tests getOverdueLoans orders by due date and drops returned loans immediately.
+     */
+    @Test
+    void getOverdueLoans_ordersByDueDate_andReturnRemovesLoan() {
+        LocalDate today = LocalDate.now();
+        storage.saveLoans(List.of(
+                new Loan("L1", "U1", "B1", today.minusDays(20), today.minusDays(1), null),
+                new Loan("L2", "U2", "B1", today.minusDays(30), today.minusDays(9), null)));
+
+        List<Loan> overdue = loanService.getOverdueLoans();
+        assertEquals("L2", overdue.get(0).getId());
+        assertEquals("L1", overdue.get(1).getId());
+
+        loanService.returnBook("L2");
+        assertEquals(1, loanService.getOverdueLoans().size());
+    }
+
+    /**
+     * Tests getLoansDueWithin returns only active loans due in the window.
+     */
+    @Test
+    void getLoansDueWithin_returnsLoansDueInWindow() {
+        loanService.borrowCd("U1", "CD1");   // due in 7 days
+        loanService.borrowBook("U1", "B1");  // due in 28 days
+
+        assertEquals(1, loanService.getLoansDueWithin(7).size());
+        assertEquals(2, loanService.getLoansDueWithin(28).size());
+        assertTrue(loanService.getLoansDueWithin(6).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> loanService.getLoansDueWithin(-1));
+    }
+
+    /**
+     * Verifies that a checkout is committed by the loan journal alone:
+     * books.txt is not rewritten, yet a fresh service sees the book as
+     * borrowed, and a return makes it available again.
+     */
+    @Test
+    void borrowBook_commitsThroughJournalOnly() throws IOException {
+        String booksBefore = Files.readString(tempDir.resolve("books.txt"));
+
+        Loan loan = loanService.borrowBook("U1", "B1");
+
+        assertEquals(booksBefore, Files.readString(tempDir.resolve("books.txt")));
+        LoanService fresh = new LoanService(new FileStorage(tempDir.toString()));
+        assertThrows(IllegalStateException.class, () -> fresh.borrowBook("U2", "B1"));
+
+        fresh.returnBook(loan.getId());
+        assertFalse(new FileStorage(tempDir.toString()).loadBooks().get(0).isBorrowed());
+    }
+
+    /**
+     * Verifies that concurrent checkouts of the same book lend it once,
+     * and that concurrent checkouts never reuse a loan ID.
+     */
+    @Test
+    void borrowBook_concurrentCheckouts_lendBookOnce() throws Exception {
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Loan>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            String userId = "U" + i;
+            results.add(pool.submit(() -> {
+                start.await();
+                loanService.borrowCd(userId, "CD-" + userId);
+                return loanService.borrowBook(userId, "B1");
+            }));
+        }
+        start.countDown();
+
+        int lent = 0;
+        for (Future<Loan> result : results) {
+            try {
+                result.get();
+                lent++;
+            } catch (ExecutionException e) {
+                assertInstanceOf(IllegalStateException.class, e.getCause());
+            }
+        }
+        pool.shutdown();
+
+        assertEquals(1, lent);
+        List<Loan> all = loanService.getAllLoans();
+        assertEquals(threads + 1, all.size());
+        assertEquals(all.size(), all.stream().map(Loan::getId).distinct().count());
+    }
 }
@@ -0,0 +1,117 @@
+package com.library.service;
+
+import com.library.domain.EmailMessage;
+import com.library.domain.EmailOutbox;
+import com.library.domain.FileStorage;
+import com.library.domain.OutboxEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutboxSenderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final SessionStoreTest.ManualClock clock = new SessionStoreTest.ManualClock();
+
+    /**
+     * Email service that fails while {@code down} is set.
+     */
+    static class FlakyEmailService extends EmailService {
+        final List<String> sent = new ArrayList<>();
+        boolean down;
+
+        FlakyEmailService() {
+            super("test@example.com", "dummy-password");
+        }
+
+        @Override
+        public void sendEmail(String to, String subject, String body) {
+            if (down) {
+                throw new RuntimeException("Failed to send email", new Exception("Connection refused"));
+            }
+            sent.add(to);
+        }
+    }
+
+    private OutboxSender sender(EmailOutbox outbox, EmailService email) {
+        return new OutboxSender(outbox, email, 3, Duration.ofSeconds(10), Duration.ofSeconds(15), clock);
+    }
+
+    @Test
+    void drain_sendsQueuedMessagesOnce() {
+        EmailOutbox outbox = new FileStorage(tempDir.toString()).outbox();
+        outbox.enqueue(new EmailMessage("a@example.com", "S", "B"), clock.millis());
+        outbox.enqueue(new EmailMessage("b@example.com", "S", "B"), clock.millis());
+        FlakyEmailService email = new FlakyEmailService();
+
+        assertEquals(2, sender(outbox, email).drain());
+        assertEquals(0, sender(outbox, email).drain());
+        assertEquals(List.of("a@example.com", "b@example.com"), email.sent);
+        assertTrue(new FileStorage(tempDir.toString()).outbox().pending().isEmpty());
+    }
+
+    @Test
+    void drain_backsOffThenDeadLetters() {
+        EmailOutbox outbox = new FileStorage(tempDir.toString()).outbox();
+        outbox.enqueue(new EmailMessage("a@example.com", "S", "B"), clock.millis());
+        FlakyEmailService email = new FlakyEmailService();
+        email.down = true;
+        OutboxSender sender = sender(outbox, email);
+
+        assertEquals(0, sender.drain());
+        OutboxEntry entry = outbox.pending().get(0);
+        assertEquals(1, entry.getAttempts());
+        assertEquals(clock.millis() + 10_000, entry.getNextAttemptAt());
+        assertEquals("Connection refused", entry.getLastError());
+
+        clock.advance(Duration.ofSeconds(5));
+        sender.drain();
+        assertEquals(1, outbox.pending().get(0).getAttempts(), "not due yet");
+
+        clock.advance(Duration.ofSeconds(5));
+        sender.drain();
+        assertEquals(clock.millis() + 15_000, outbox.pending().get(0).getNextAttemptAt(), "capped backoff");
+
+        clock.advance(Duration.ofSeconds(15));
+        sender.drain();
+        assertTrue(outbox.pending().isEmpty());
+        assertEquals(1, outbox.deadLetters().size());
+
+        email.down = false;
+        clock.advance(Duration.ofHours(1));
+        assertEquals(0, sender.drain());
+        assertTrue(email.sent.isEmpty());
+    }
+
+    @Test
+    void backoff_doublesUpToMaximum() {
+        OutboxSender sender = new OutboxSender(null, null, 5, Duration.ofSeconds(1), Duration.ofSeconds(5), clock);
+
+        assertEquals(1000, sender.backoff(1));
+        assertEquals(2000, sender.backoff(2));
+        assertEquals(4000, sender.backoff(3));
+        assertEquals(5000, sender.backoff(4));
+        assertEquals(5000, sender.backoff(60));
+    }
+
+    @Test
+    void backoff_neverOverflows() {
+        Duration year = Duration.ofDays(365);
+        OutboxSender sender = new OutboxSender(null, null, 5, year, year.multipliedBy(10), clock);
+
+        assertEquals(year.toMillis(), sender.backoff(0));
+        for (int failures = 1; failures <= 200; failures++) {
+            long delay = sender.backoff(failures);
+            assertTrue(delay >= year.toMillis() && delay <= year.multipliedBy(10).toMillis(), "failures " + failures);
+        }
+        assertEquals(year.multipliedBy(10).toMillis(), sender.backoff(Integer.MAX_VALUE));
+    }
+}
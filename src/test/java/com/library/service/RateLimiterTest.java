@@ -0,0 +1,44 @@
+package com.library.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void reserve_allowsBurstThenSpacesPermits() {
+        AtomicLong now = new AtomicLong();
+        RateLimiter limiter = new RateLimiter(4, 2, now::get);
+
+        assertEquals(0, limiter.reserve());
+        assertEquals(0, limiter.reserve());
+        assertEquals(SECOND / 4, limiter.reserve());
+        assertEquals(SECOND / 2, limiter.reserve());
+    }
+
+    @Test
+    void reserve_refillsOverTimeUpToBurst() {
+        AtomicLong now = new AtomicLong();
+        RateLimiter limiter = new RateLimiter(4, 2, now::get);
+        limiter.reserve();
+        limiter.reserve();
+
+        now.addAndGet(10 * SECOND);
+
+        assertEquals(0, limiter.reserve());
+        assertEquals(0, limiter.reserve());
+        assertTrue(limiter.reserve() > 0);
+    }
+
+    @Test
+    void constructor_rejectsNonPositiveRate() {
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter(0));
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter(Double.NaN));
+    }
+}
@@ -1,5 +1,6 @@
 package com.library.service;
 
+import com.library.domain.EmailMessage;
 import com.library.domain.FileStorage;
 import com.library.domain.User;
 import org.junit.jupiter.api.BeforeEach;
@@ -9,11 +10,13 @@ import org.junit.jupiter.api.io.TempDir;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * Unit tests for {@link ReminderService}.
@@ -206,4 +209,247 @@ class ReminderServiceTest {
         assertEquals(0, emailService.toList.size(), "Email list must remain empty");
     }
 
+    @Test
+    void dispatchOverdueReminders_reportsEveryLoan() throws IOException {
+        LocalDate today = LocalDate.now();
+        Files.write(tempDir.resolve("loans.txt"), List.of(
+                "L1;U1;B1;" + today.minusDays(40) + ";" + today.minusDays(5) + ";",
+                "L2;U2;B2;" + today.minusDays(40) + ";" + today.minusDays(3) + ";",
+                "L3;U3;B3;" + today.minusDays(40) + ";" + today.minusDays(1) + ";",
+                "L4;U4;B4;" + today.minusDays(5) + ";" + today.plusDays(10) + ";"
+        ));
+
+        EmailService failingForU2 = new EmailService("test@example.com", "dummy-password") {
+            @Override
+            public void sendEmail(String to, String subject, String body) {
+                if (to.startsWith("U2")) {
+                    throw new RuntimeException("Failed to send email", new Exception("Mailbox full"));
+                }
+            }
+        };
+        UserService usersWithoutU3 = new FakeUserService() {
+            @Override
+            public User findById(String userId) {
+                return "U3".equals(userId) ? null : super.findById(userId);
+            }
+        };
+        reminderService = new ReminderService(loanService, usersWithoutU3, failingForU2);
+
+        List<ReminderResult> results = reminderService.dispatchOverdueReminders(4, 1000);
+
+        assertEquals(3, results.size());
+        assertEquals(List.of("L1"), results.get(0).getLoanIds());
+        assertEquals(ReminderResult.Status.SENT, results.get(0).getStatus());
+        assertEquals("U1@example.com", results.get(0).getRecipient());
+        assertEquals(ReminderResult.Status.FAILED, results.get(1).getStatus());
+        assertEquals("Mailbox full", results.get(1).getError());
+        assertEquals(ReminderResult.Status.SKIPPED, results.get(2).getStatus());
+    }
+
+    @Test
+    void dispatchOverdueReminders_limitsSendsInFlight() throws IOException {
+        LocalDate today = LocalDate.now();
+        List<String> lines = new ArrayList<>();
+        for (int i = 1; i <= 12; i++) {
+            lines.add("L" + i + ";U" + i + ";B" + i + ";" + today.minusDays(40) + ";" + today.minusDays(2) + ";");
+        }
+        Files.write(tempDir.resolve("loans.txt"), lines);
+
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger maxInside = new AtomicInteger();
+        EmailService slow = new EmailService("test@example.com", "dummy-password") {
+            @Override
+            public void sendEmail(String to, String subject, String body) {
+                maxInside.accumulateAndGet(inside.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    inside.decrementAndGet();
+                }
+            }
+        };
+        reminderService = new ReminderService(loanService, new FakeUserService(), slow);
+
+        List<ReminderResult> results = reminderService.dispatchOverdueReminders(3, 1000);
+
+        assertEquals(12, results.size());
+        assertTrue(results.stream().allMatch(ReminderResult::isSent));
+        assertTrue(maxInside.get() <= 3, "at most 3 sends in flight, saw " + maxInside.get());
+    }
+
+    @Test
+    void dispatchOverdueReminders_rejectsNonPositiveLimits() {
+        assertThrows(IllegalArgumentException.class, () -> reminderService.dispatchOverdueReminders(0, 10));
+        assertThrows(IllegalArgumentException.class, () -> reminderService.dispatchOverdueReminders(2, 0));
+    }
+
+    @Test
+    void sendOverdueReminders_sendsOneDigestPerUser() throws IOException {
+        LocalDate today = LocalDate.now();
+        Files.write(tempDir.resolve("loans.txt"), List.of(
+                "L1;U1;B1;" + today.minusDays(40) + ";" + today.minusDays(5) + ";",
+                "L2;U2;B2;" + today.minusDays(40) + ";" + today.minusDays(4) + ";",
+                "L3;U1;B3;" + today.minusDays(40) + ";" + today.minusDays(3) + ";",
+                "L4;U1;C1;" + today.minusDays(40) + ";" + today.minusDays(2) + ";;CD"
+        ));
+
+        AtomicInteger lookups = new AtomicInteger();
+        UserService countingUsers = new FakeUserService() {
+            @Override
+            public User findById(String userId) {
+                lookups.incrementAndGet();
+                return super.findById(userId);
+            }
+        };
+        reminderService = new ReminderService(loanService, countingUsers, emailService);
+
+        int count = reminderService.sendOverdueReminders();
+
+        assertEquals(2, count);
+        assertEquals(2, lookups.get());
+        assertEquals(List.of("U1@example.com", "U2@example.com"), emailService.toList);
+        String digest = emailService.bodyList.get(0);
+        assertTrue(digest.contains("3 of your loans are overdue"));
+        assertTrue(digest.contains("Book ID: B1"));
+        assertTrue(digest.contains("Book ID: B3"));
+        assertTrue(digest.contains("CD ID: C1"));
+        assertFalse(digest.contains("B2"));
+    }
+
+    @Test
+    void queueOverdueReminders_writesDigestsToOutbox() throws IOException {
+        LocalDate today = LocalDate.now();
+        Files.write(tempDir.resolve("loans.txt"), List.of(
+                "L1;U1;B1;" + today.minusDays(40) + ";" + today.minusDays(5) + ";",
+                "L2;U1;B2;" + today.minusDays(40) + ";" + today.minusDays(3) + ";",
+                "L3;U2;B3;" + today.minusDays(40) + ";" + today.minusDays(1) + ";"
+        ));
+        reminderService = new ReminderService(loanService, new FakeUserService(), emailService, storage.outbox());
+
+        int queued = reminderService.queueOverdueReminders();
+
+        assertEquals(2, queued);
+        assertTrue(emailService.toList.isEmpty(), "nothing is sent while queuing");
+        assertEquals(2, new FileStorage(tempDir.toString()).outbox().pending().size());
+    }
+
+    @Test
+    void queueOverdueReminders_afterCrashBeforeLogging_doesNotQueueTwice() throws IOException {
+        LocalDate today = LocalDate.now();
+        Files.write(tempDir.resolve("loans.txt"), List.of(
+                "L1;U1;B1;" + today.minusDays(40) + ";" + today.minusDays(5) + ";"
+        ));
+        // the previous run queued the digest, then crashed before logging it
+        storage.outbox().enqueue(new EmailMessage("u1@example.com", "S", "B"),
+                "reminder:U1:" + today, System.currentTimeMillis());
+        reminderService = new ReminderService(loanService, new FakeUserService(), emailService,
+                storage.outbox(), storage.reminderLog(), 7);
+
+        reminderService.queueOverdueReminders();
+
+        assertEquals(1, storage.outbox().pending().size());
+        assertEquals(today, storage.reminderLog().lastReminded("L1"));
+        assertEquals(0, reminderService.queueOverdueReminders());
+    }
+
+    @Test
+    void queueOverdueReminders_withoutOutbox_throws() {
+        assertThrows(IllegalStateException.class, () -> reminderService.queueOverdueReminders());
+    }
+
+    @Test
+    void sendOverdueReminders_withLog_doesNotRemindTwiceInOneInterval() throws IOException {
+        LocalDate today = LocalDate.now();
+        Files.write(tempDir.resolve("loans.txt"), List.of(
+                "L1;U1;B1;" + today.minusDays(40) + ";" + today.minusDays(5) + ";",
+                "L2;U2;B2;" + today.minusDays(40) + ";" + today.minusDays(3) + ";"
+        ));
+        reminderService = new ReminderService(loanService, new FakeUserService(), emailService,
+                null, storage.reminderLog(), 7);
+
+        assertEquals(2, reminderService.sendOverdueReminders());
+        assertEquals(0, reminderService.sendOverdueReminders());
+
+        // a fresh service over the same directory sees the persisted log
+        ReminderService rerun = new ReminderService(loanService, new FakeUserService(), emailService,
+                null, new FileStorage(tempDir.toString()).reminderLog(), 7);
+        assertEquals(0, rerun.sendOverdueReminders());
+        assertEquals(2, emailService.toList.size());
+    }
+
+    @Test
+    void sendOverdueReminders_withLog_remindsAgainInNextInterval() throws IOException {
+        LocalDate today = LocalDate.now();
+        Files.write(tempDir.resolve("loans.txt"), List.of(
+                "L1;U1;B1;" + today.minusDays(40) + ";" + today.minusDays(8) + ";"
+        ));
+        storage.reminderLog().record(List.of("L1"), today.minusDays(7));
+        reminderService = new ReminderService(loanService, new FakeUserService(), emailService,
+                null, storage.reminderLog(), 7);
+
+        assertEquals(1, reminderService.sendOverdueReminders());
+        assertEquals(today, storage.reminderLog().lastReminded("L1"));
+    }
+
+    @Test
+    void sendOverdueReminders_withLog_countsIntervalFromLastReminder() throws IOException {
+        LocalDate today = LocalDate.now();
+        Files.write(tempDir.resolve("loans.txt"), List.of(
+                "L1;U1;B1;" + today.minusDays(40) + ";" + today.minusDays(7) + ";"
+        ));
+        SessionStoreTest.ManualClock clock = new SessionStoreTest.ManualClock();
+        clock.millis = System.currentTimeMillis();
+        reminderService = new ReminderService(loanService, new FakeUserService(), emailService,
+                null, storage.reminderLog(), 7);
+        reminderService.setClock(clock);
+
+        assertEquals(1, reminderService.sendOverdueReminders(), "day 7 overdue");
+        clock.advance(Duration.ofDays(1));
+        assertEquals(0, reminderService.sendOverdueReminders(), "day 8 overdue");
+        clock.advance(Duration.ofDays(5));
+        assertEquals(0, reminderService.sendOverdueReminders(), "day 13 overdue");
+        clock.advance(Duration.ofDays(1));
+        assertEquals(1, reminderService.sendOverdueReminders(), "day 14 overdue");
+    }
+
+    @Test
+    void sendOverdueReminders_withLog_logsOnlyDueLoans() throws IOException {
+        LocalDate today = LocalDate.now();
+        Files.write(tempDir.resolve("loans.txt"), List.of(
+                "L1;U1;B1;" + today.minusDays(40) + ";" + today.minusDays(10) + ";",
+                "L2;U1;B2;" + today.minusDays(40) + ";" + today.minusDays(3) + ";"
+        ));
+        storage.reminderLog().record(List.of("L1"), today.minusDays(7));
+        storage.reminderLog().record(List.of("L2"), today.minusDays(2));
+        reminderService = new ReminderService(loanService, new FakeUserService(), emailService,
+                null, storage.reminderLog(), 7);
+
+        assertEquals(1, reminderService.sendOverdueReminders());
+
+        assertEquals(today, storage.reminderLog().lastReminded("L1"));
+        assertEquals(today.minusDays(2), storage.reminderLog().lastReminded("L2"));
+        assertEquals(3, Files.readAllLines(tempDir.resolve("reminders.txt")).size());
+    }
+
+    @Test
+    void sendOverdueReminders_withLog_includesAlreadyRemindedLoansInDigest() throws IOException {
+        LocalDate today = LocalDate.now();
+        Files.write(tempDir.resolve("loans.txt"), List.of(
+                "L1;U1;B1;" + today.minusDays(40) + ";" + today.minusDays(5) + ";"
+        ));
+        reminderService = new ReminderService(loanService, new FakeUserService(), emailService,
+                null, storage.reminderLog(), 7);
+        reminderService.sendOverdueReminders();
+
+        Files.write(tempDir.resolve("loans.txt"), List.of(
+                "L1;U1;B1;" + today.minusDays(40) + ";" + today.minusDays(5) + ";",
+                "L2;U1;B2;" + today.minusDays(40) + ";" + today.minusDays(1) + ";"
+        ));
+        assertEquals(1, reminderService.sendOverdueReminders());
+
+        String digest = emailService.bodyList.get(1);
+        assertTrue(digest.contains("B1") && digest.contains("B2"));
+    }
 }
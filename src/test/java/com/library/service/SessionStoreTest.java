@@ -0,0 +1,94 @@
+package com.library.service;
+
+import com.library.domain.User;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionStoreTest {
+
+    /**
+     * A clock the test moves by hand.
+     */
+    static class ManualClock extends Clock {
+        long millis = 1_700_000_000_000L;
+
+        void advance(Duration d) {
+            millis += d.toMillis();
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+
+    private final ManualClock clock = new ManualClock();
+    private final SessionStore store =
+            new SessionStore(Duration.ofMinutes(5), Duration.ofMinutes(30), clock);
+    private final User dana = new User("U1", "Dana", "dana@example.com", "pwd");
+
+    @Test
+    void open_issuesDistinctTokensForConcurrentSessions() {
+        AuthSession a = store.open(dana, AuthSession.Role.USER);
+        AuthSession b = store.open(dana, AuthSession.Role.USER);
+
+        assertNotEquals(a.getToken(), b.getToken());
+        assertSame(a, store.get(a.getToken()));
+        assertSame(b, store.get(b.getToken()));
+        assertEquals(2, store.size());
+
+        store.close(a.getToken());
+        assertNull(store.get(a.getToken()));
+        assertNotNull(store.get(b.getToken()));
+    }
+
+    @Test
+    void get_extendsIdleTimeout_untilAbsoluteTimeout() {
+        AuthSession s = store.open(dana, AuthSession.Role.USER);
+
+        for (int i = 0; i < 6; i++) {
+            clock.advance(Duration.ofMinutes(4));
+            assertNotNull(store.get(s.getToken()), "used within idle timeout");
+        }
+        clock.advance(Duration.ofMinutes(4));   // 28 minutes
+        assertNotNull(store.get(s.getToken()));
+        clock.advance(Duration.ofMinutes(3));   // past the absolute timeout
+        assertNull(store.get(s.getToken()));
+    }
+
+    @Test
+    void expire_removesIdleSessionsWithoutLookup() {
+        AuthSession idle = store.open(dana, AuthSession.Role.USER);
+        AuthSession active = store.open(dana, AuthSession.Role.ADMIN);
+
+        clock.advance(Duration.ofMinutes(3));
+        store.get(active.getToken());
+        clock.advance(Duration.ofMinutes(3));
+        store.expire();
+
+        assertEquals(1, store.size());
+        assertNotNull(store.get(active.getToken()));
+
+        clock.advance(Duration.ofHours(2));
+        store.expire();
+        assertEquals(0, store.size());
+        assertNull(store.get(idle.getToken()));
+    }
+}
@@ -0,0 +1,227 @@
+package com.library.service;
+
+import com.library.domain.EmailMessage;
+import org.junit.jupiter.api.Test;
+
+import javax.mail.Address;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.Transport;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the {@link SmtpMailTransport} class.
+ *
+ * <p>This test suite verifies the connection handling of the SMTP transport
+ * by replacing the connection step with mocked JavaMail {@link Transport}
+ * objects. No real network operation is performed.</p>
+ *
+ * <p>The tests ensure:</p>
+ * <ul>
+ *   <li>Consecutive sends reuse one connection.</li>
+ *   <li>A send failing on a pooled connection is retried once on a new one.</li>
+ *   <li>The MessagingException of the retry is reported.</li>
+ *   <li>Batches are sent over one connection.</li>
+ * </ul>
+ *
+ * @author Maram
+ * @version 1.0
+ */
+class SmtpMailTransportTest {
+
+    /**
+     * SmtpMailTransport whose connections are handed out from a queue of mocks.
+     */
+    private static class MockedSmtpTransport extends SmtpMailTransport {
+        final Deque<Transport> transports = new ArrayDeque<>();
+        int connects;
+
+        MockedSmtpTransport(Transport... transports) {
+            super("sender@example.com", "password");
+            this.transports.addAll(List.of(transports));
+        }
+
+        @Override
+        protected Transport connect() throws MessagingException {
+            connects++;
+            Transport t = transports.poll();
+            if (t == null) {
+                throw new MessagingException("Connection refused");
+            }
+            return t;
+        }
+    }
+
+    private static Transport connectedTransport() {
+        Transport t = mock(Transport.class);
+        when(t.isConnected()).thenReturn(true);
+        return t;
+    }
+
+    @Test
+    void send_reusesConnectionAcrossMessages() throws Exception {
+        Transport t = connectedTransport();
+        MockedSmtpTransport service = new MockedSmtpTransport(t);
+
+        service.send(new EmailMessage("a@example.com", "S1", "B1"));
+        service.send(new EmailMessage("b@example.com", "S2", "B2"));
+
+        assertEquals(1, service.connects);
+        verify(t, times(2)).sendMessage(any(Message.class), any(Address[].class));
+        verify(t, never()).close();
+    }
+
+    @Test
+    void send_dropsDisconnectedPooledTransport() throws Exception {
+        Transport stale = mock(Transport.class);
+        Transport fresh = connectedTransport();
+        MockedSmtpTransport service = new MockedSmtpTransport(stale, fresh);
+
+        service.send(new EmailMessage("a@example.com", "S1", "B1"));
+        // stale reports not connected, so it is closed instead of reused
+        service.send(new EmailMessage("b@example.com", "S2", "B2"));
+
+        assertEquals(2, service.connects);
+        verify(stale).close();
+        verify(fresh).sendMessage(any(Message.class), any(Address[].class));
+    }
+
+    @Test
+    void send_reconnectsOnceWhenPooledConnectionFails() throws Exception {
+        Transport broken = connectedTransport();
+        doNothing().doThrow(new MessagingException("Connection reset"))
+                .when(broken).sendMessage(any(Message.class), any(Address[].class));
+        Transport fresh = connectedTransport();
+        MockedSmtpTransport service = new MockedSmtpTransport(broken, fresh);
+        service.send(new EmailMessage("first@example.com", "Subject", "Body"));
+
+        service.send(new EmailMessage("to@example.com", "Subject", "Body"));
+
+        verify(broken).close();
+        verify(fresh).sendMessage(any(Message.class), any(Address[].class));
+    }
+
+    @Test
+    void send_whenRetryFails_throwsMessagingException() throws Exception {
+        Transport first = connectedTransport();
+        Transport second = connectedTransport();
+        doNothing().doThrow(new MessagingException("SMTP error"))
+                .when(first).sendMessage(any(Message.class), any(Address[].class));
+        doThrow(new MessagingException("SMTP error"))
+                .when(second).sendMessage(any(Message.class), any(Address[].class));
+        MockedSmtpTransport service = new MockedSmtpTransport(first, second);
+        service.send(new EmailMessage("first@example.com", "Subject", "Body"));
+
+        assertThrows(MessagingException.class,
+                () -> service.send(new EmailMessage("to@example.com", "Subject", "Body"))
+        );
+
+        verify(second).close();
+    }
+
+    @Test
+    void send_whenNewConnectionFails_doesNotReconnect() throws Exception {
+        Transport fresh = connectedTransport();
+        doThrow(new MessagingException("535 Authentication failed"))
+                .when(fresh).sendMessage(any(Message.class), any(Address[].class));
+        MockedSmtpTransport service = new MockedSmtpTransport(fresh, connectedTransport());
+
+        assertThrows(MessagingException.class,
+                () -> service.send(new EmailMessage("to@example.com", "Subject", "Body")));
+
+        assertEquals(1, service.connects);
+        verify(fresh).close();
+    }
+
+    @Test
+    void send_whenMessageRejected_throwsWithoutReconnecting() throws Exception {
+        Transport t = connectedTransport();
+        doThrow(new SendFailedException("550 No such user")).doNothing()
+                .when(t).sendMessage(any(Message.class), any(Address[].class));
+        MockedSmtpTransport service = new MockedSmtpTransport(t);
+
+        assertThrows(SendFailedException.class,
+                () -> service.send(new EmailMessage("nobody@example.com", "S", "B")));
+        service.send(new EmailMessage("a@example.com", "S", "B"));
+
+        assertEquals(1, service.connects);
+        verify(t, never()).close();
+    }
+
+    @Test
+    void sendBatch_skipsRejectedMessageWithoutReconnecting() throws Exception {
+        Transport t = connectedTransport();
+        doNothing().doThrow(new SendFailedException("550 No such user")).doNothing()
+                .when(t).sendMessage(any(Message.class), any(Address[].class));
+        MockedSmtpTransport service = new MockedSmtpTransport(t);
+
+        int sent = service.sendBatch(List.of(
+                new EmailMessage("a@example.com", "S", "B"),
+                new EmailMessage("nobody@example.com", "S", "B"),
+                new EmailMessage("c@example.com", "S", "B")));
+
+        assertEquals(2, sent);
+        assertEquals(1, service.connects);
+    }
+
+    @Test
+    void sendBatch_sendsAllMessagesOverOneConnection() throws Exception {
+        Transport t = connectedTransport();
+        MockedSmtpTransport service = new MockedSmtpTransport(t);
+
+        int sent = service.sendBatch(List.of(
+                new EmailMessage("a@example.com", "S", "B"),
+                new EmailMessage("b@example.com", "S", "B"),
+                new EmailMessage("c@example.com", "S", "B")));
+
+        assertEquals(3, sent);
+        assertEquals(1, service.connects);
+        verify(t, times(3)).sendMessage(any(Message.class), any(Address[].class));
+    }
+
+    @Test
+    void sendBatch_skipsMessageThatFailsTwice() throws Exception {
+        Transport first = connectedTransport();
+        doNothing().doThrow(new MessagingException("Rejected"))
+                .when(first).sendMessage(any(Message.class), any(Address[].class));
+        Transport second = connectedTransport();
+        doThrow(new MessagingException("Rejected")).doNothing()
+                .when(second).sendMessage(any(Message.class), any(Address[].class));
+        Transport third = connectedTransport();
+        MockedSmtpTransport service = new MockedSmtpTransport(first, second, third);
+
+        int sent = service.sendBatch(List.of(
+                new EmailMessage("a@example.com", "S", "B"),
+                new EmailMessage("b@example.com", "S", "B"),
+                new EmailMessage("c@example.com", "S", "B")));
+
+        assertEquals(2, sent);
+        verify(third).sendMessage(any(Message.class), any(Address[].class));
+    }
+
+    @Test
+    void sendBatch_whenServerUnreachable_throws() {
+        MockedSmtpTransport service = new MockedSmtpTransport();
+
+        assertThrows(MessagingException.class,
+                () -> service.sendBatch(List.of(new EmailMessage("a@example.com", "S", "B"))));
+    }
+
+    @Test
+    void close_closesPooledConnections() throws Exception {
+        Transport t = connectedTransport();
+        MockedSmtpTransport service = new MockedSmtpTransport(t);
+        service.send(new EmailMessage("a@example.com", "S", "B"));
+
+        service.close();
+
+        verify(t).close();
+    }
+}